@@ -0,0 +1,107 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.AimdBatchSizer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Convergence simulation for AimdBatchSizer (not a JMH suite: it runs on virtual time, nothing sleeps).
+ *
+ * Model of the pipeline writer in front of Postgres:
+ * - records arrive at a steady rate into the buffer; the writer takes up to the batch size (lingering for
+ *   more when the sizer says so) and the write takes commit + rows x row cost, +-20% jitter
+ * - phases: normal (commit 4 ms, 20 us per row, 30k records/s), degraded Postgres (commit 30 ms, 150 us per
+ *   row, e.g. a checkpoint storm; 5k records/s), normal again
+ * Prints, per 10 s of virtual time, the batch size limit, linger, p99 write latency, throughput, commits and
+ * backlog for fixed batches of 500 and 2000 and for the sizer (defaults of app.kafka.pipeline.adaptive,
+ * target 250 ms).
+ * The pool-waiters signal is not modelled (single writer).
+ *
+ *   gradle :benchmarks:batchSizer
+ */
+public final class BatchSizerSimulation {
+
+    private static final long TARGET_P99_MS = 250;
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long PHASE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /** Phases: commit cost (ns), row cost (ns), arrivals per second. */
+    private static final long[][] PHASES = {
+            {4_000_000, 20_000, 30_000},
+            {30_000_000, 150_000, 5_000},
+            {4_000_000, 20_000, 30_000},
+    };
+
+    private BatchSizerSimulation() { /* no instances */ }
+
+    public static void main(String[] args) {
+        run("fixed 500", null, 500);
+        run("fixed 2000", null, 2000);
+        run("adaptive (AIMD)", new AimdBatchSizer(50, 2000, 500, 50, 0.5, TARGET_P99_MS, 20, 20, () -> false), 0);
+    }
+
+    private static void run(String label, AimdBatchSizer sizer, int fixedBatch) {
+        System.out.printf("%n=== %s ===%n", label);
+        System.out.printf("%6s %8s %8s %10s %10s %10s %9s %9s%n", "t(s)", "commit", "batch", "linger(ms)", "p99(ms)",
+                "written/s", "commits/s", "backlog");
+        Random random = new Random(42);
+        long now = 0;
+        double arrived = 0;
+        long written = 0;
+        long writtenInReport = 0;
+        long commitsInReport = 0;
+        long nextReport = REPORT_NANOS;
+        long end = PHASE_NANOS * PHASES.length;
+        long[] latencies = new long[100_000];
+        int latencyCount = 0;
+
+        while (now < end) {
+            long[] phase = PHASES[(int) (now / PHASE_NANOS)];
+            int limit = sizer == null ? fixedBatch : sizer.batchSize();
+            long buffered = (long) arrived - written;
+            if (buffered == 0) {
+                // idle writer: wait for the next record
+                now += Math.max(1, TimeUnit.SECONDS.toNanos(1) / phase[2]);
+                arrived += (double) phase[2] * Math.max(1, TimeUnit.SECONDS.toNanos(1) / phase[2]) / 1e9;
+                continue;
+            }
+            if (buffered < limit && sizer != null && sizer.lingerNanos() > 0) {
+                long fill = (long) ((limit - buffered) * 1e9 / phase[2]);
+                long wait = Math.min(fill, sizer.lingerNanos());
+                now += wait;
+                arrived += phase[2] * wait / 1e9;
+                buffered = (long) arrived - written;
+            }
+            int batch = (int) Math.min(limit, buffered);
+            long latency = (long) ((phase[0] + batch * phase[1]) * (0.8 + 0.4 * random.nextDouble()));
+            now += latency;
+            arrived += phase[2] * latency / 1e9;
+            written += batch;
+            writtenInReport += batch;
+            commitsInReport++;
+            if (latencyCount < latencies.length) latencies[latencyCount++] = latency;
+            if (sizer != null) sizer.record(batch, limit, latency);
+
+            if (now >= nextReport) {
+                Arrays.sort(latencies, 0, latencyCount);
+                long p99 = latencyCount == 0 ? 0 : latencies[Math.max(0, (int) Math.ceil(latencyCount * 0.99) - 1)];
+                System.out.printf("%6d %6dms %8d %10.1f %10.1f %,10d %,9d %,9d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(nextReport), phase[0] / 1_000_000,
+                        sizer == null ? fixedBatch : sizer.batchSize(),
+                        sizer == null ? 0.0 : sizer.lingerNanos() / 1e6,
+                        p99 / 1e6, writtenInReport * TimeUnit.SECONDS.toNanos(1) / REPORT_NANOS,
+                        commitsInReport * TimeUnit.SECONDS.toNanos(1) / REPORT_NANOS, (long) arrived - written);
+                writtenInReport = 0;
+                commitsInReport = 0;
+                latencyCount = 0;
+                nextReport += REPORT_NANOS;
+            }
+        }
+        if (sizer != null) {
+            System.out.printf("decisions: grow=%d shrink=%d hold=%d%n", sizer.decisions(AimdBatchSizer.Decision.GROW),
+                    sizer.decisions(AimdBatchSizer.Decision.SHRINK), sizer.decisions(AimdBatchSizer.Decision.HOLD));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * JDBC connection for the database-backed benchmarks.
+ * Defaults match docker-compose.yml (postgres on localhost:5438, superuser app/app).
+ */
+final class BenchDb {
+
+    private BenchDb() { /* no instances */ }
+
+    static Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5438/appdb"),
+                System.getProperty("bench.jdbc.user", "app"),
+                System.getProperty("bench.jdbc.password", "app"));
+    }
+}
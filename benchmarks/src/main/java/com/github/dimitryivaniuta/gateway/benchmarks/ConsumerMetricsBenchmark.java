@@ -0,0 +1,58 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.config.KafkaConsumerConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of the consumer meters (ConsumerMetrics, Prometheus registry), as paid by a record listener:
+ * - record: partition lookup + outcome counter + end-to-end timer + one write timer / batch size record
+ * - batchOf500: the same for a batch listener, per record (one write record per 500 records)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerMetricsBenchmark {
+
+    private static final int PARTITIONS = 12;
+
+    private ConsumerMetrics metrics;
+    private LeadEvent event;
+    private int inBatch;
+
+    @Setup
+    public void setup() {
+        metrics = new ConsumerMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), KafkaConsumerConfig.GROUP, 0.0);
+        for (int p = 0; p < PARTITIONS; p++) {
+            metrics.partition(p);
+        }
+        LeadEvent lead = Fixtures.fullLead();
+        event = new LeadEvent(lead.eventId(), lead.tenantId(), lead.type(), lead.payload(), Instant.now().minusMillis(250));
+    }
+
+    @Benchmark
+    public void record() {
+        long start = System.nanoTime();
+        metrics.recordWrite(start, 1);
+        metrics.partition(ThreadLocalRandom.current().nextInt(PARTITIONS)).processed(event, true);
+    }
+
+    @Benchmark
+    public void batchOf500() {
+        if (++inBatch == 500) {
+            inBatch = 0;
+            metrics.recordWrite(System.nanoTime(), 500);
+        }
+        metrics.partition(ThreadLocalRandom.current().nextInt(PARTITIONS)).processed(event, true);
+    }
+}
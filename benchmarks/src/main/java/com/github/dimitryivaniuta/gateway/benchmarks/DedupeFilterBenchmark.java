@@ -0,0 +1,103 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay through the record listener path: one operation = a poll of {@value #POLL} records of which
+ * replayPercent are events stored (and seen by this instance) earlier, the rest new.
+ * - upsertOnly: LeadIngestService#ingest per record (INSERT ... ON CONFLICT DO NOTHING transaction each)
+ * - filtered: RecentEventFilter first, as LeadFanoutListener does (a replay costs a SELECT, no transaction)
+ * - offsets=true: the transaction also writes the offset row (offsets.storage=db; the workers' process()
+ *   does the same), so a replayed record is no longer a read-only transaction but a commit with a WAL flush
+ * events/s = ops/s * 100. Needs Postgres (see BenchDb); uses the scratch database of FanoutPersistence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class DedupeFilterBenchmark {
+
+    private static final int POLL = 100;
+    private static final int STORED = 20_000;
+    private static final int PARTITION = 0;
+
+    @Param({"50", "90"})
+    public int replayPercent;
+
+    @Param({"false", "true"})
+    public boolean offsets;
+
+    private long offset;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadIngestService ingest;
+    private RecentEventFilter recent;
+    private final List<LeadEvent> stored = new ArrayList<>(STORED);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start();
+        ingest = context.getBean(LeadIngestService.class);
+        recent = context.getBean(RecentEventFilter.class);
+        FanoutPersistence.truncate("crm.lead");
+        FanoutPersistence.truncate("crm.lead_current");
+        FanoutPersistence.truncate("crm.lead_event_offset");
+        stored.clear();
+        for (int i = 0; i < STORED; i += POLL) {
+            List<LeadEvent> poll = new ArrayList<>(POLL);
+            for (int j = 0; j < POLL; j++) poll.add(Fixtures.fullLead());
+            ingest.ingestAll(poll);
+            recent.markStored(PARTITION, poll);
+            stored.addAll(poll);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int upsertOnly() {
+        int inserted = 0;
+        for (LeadEvent e : poll()) {
+            if (write(e)) inserted++;
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int filtered() {
+        int inserted = 0;
+        for (LeadEvent e : poll()) {
+            if (recent.isStored(PARTITION, e)) continue;
+            if (write(e)) inserted++;
+            recent.markStored(PARTITION, e);
+        }
+        return inserted;
+    }
+
+    private boolean write(LeadEvent e) {
+        return offsets ? ingest.ingest(e, "leads.events", PARTITION, offset++) : ingest.ingest(e);
+    }
+
+    private List<LeadEvent> poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<LeadEvent> events = new ArrayList<>(POLL);
+        for (int i = 0; i < POLL; i++) {
+            events.add(random.nextInt(100) < replayPercent ? stored.get(random.nextInt(STORED)) : Fixtures.fullLead());
+        }
+        return events;
+    }
+}
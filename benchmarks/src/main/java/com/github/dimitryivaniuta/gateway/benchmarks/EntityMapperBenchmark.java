@@ -0,0 +1,34 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
+import com.github.dimitryivaniuta.gateway.workers.persistence.mapper.LeadAggregateMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Consumer-side event -> entity builders: LeadMapper (fan-out) and LeadAggregateMapper (workers). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityMapperBenchmark {
+
+    private final LeadMapper leadMapper = new LeadMapper();
+    private final LeadAggregateMapper aggregateMapper = new LeadAggregateMapper();
+    private final LeadEvent event = Fixtures.fullLead();
+
+    @Benchmark
+    public LeadEntity leadEntity() {
+        return leadMapper.toEntity(event);
+    }
+
+    @Benchmark
+    public LeadAggregateEntity aggregateEntity() {
+        return aggregateMapper.toEntity(event);
+    }
+}
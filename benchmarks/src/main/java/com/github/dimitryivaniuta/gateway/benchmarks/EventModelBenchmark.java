@@ -0,0 +1,64 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LeadEvent/LeadPayload construction, i.e. the cost of the compact constructors (trim + validate).
+ * - clean: fields already trimmed (trim() returns the same String, no copy)
+ * - padded: every text field has surrounding whitespace (trim() allocates a copy)
+ * Run with the GC profiler (default in the jmh task) to see the allocated bytes per event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventModelBenchmark {
+
+    @Param({"clean", "padded"})
+    public String input;
+
+    private UUID eventId;
+    private Instant occurredAt;
+    private String tenantId, leadId, fullName, email, phone, city, source;
+
+    @Setup
+    public void setup() {
+        String pad = "padded".equals(input) ? "  " : "";
+        eventId = UUID.randomUUID();
+        occurredAt = Instant.now();
+        tenantId = pad + "acme-realty" + pad;
+        leadId = pad + "crm-000042" + pad;
+        fullName = pad + "Jane Doe" + pad;
+        email = pad + "jane.doe@example.com" + pad;
+        phone = pad + "+1-555-1234" + pad;
+        city = pad + "Warsaw" + pad;
+        source = pad + "fb-ads" + pad;
+    }
+
+    @Benchmark
+    public LeadPayload payload() {
+        return new LeadPayload(leadId, fullName, email, phone, city, source, 250_000);
+    }
+
+    @Benchmark
+    public LeadEvent event() {
+        return new LeadEvent(eventId, tenantId, LeadEventType.CREATED,
+                new LeadPayload(leadId, fullName, email, phone, city, source, 250_000), occurredAt);
+    }
+
+    /** Includes the Instant.now() default the producer relies on. */
+    @Benchmark
+    public LeadEvent eventNow() {
+        return LeadEvent.now(eventId, tenantId, LeadEventType.CREATED,
+                new LeadPayload(leadId, fullName, email, phone, city, source, 250_000));
+    }
+}
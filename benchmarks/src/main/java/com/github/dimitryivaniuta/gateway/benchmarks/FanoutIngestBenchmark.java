@@ -0,0 +1,90 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * consumer-fanout sink throughput for one poll of {@code batchSize} new events:
+ * - perRecord: LeadIngestService#ingest per event (record listener: one transaction + INSERT per record)
+ * - batch: LeadIngestService#ingestAll (batch listener: one transaction, multi-row INSERT ... RETURNING)
+ * - copy: LeadIngestService#ingestAllByCopy (catch-up mode: COPY into the staging table + merge)
+ * One operation = one poll, so events/s = ops/s * batchSize. Every 10th event repeats an earlier eventId
+ * to exercise the duplicate path. Needs Postgres (see BenchDb); uses the scratch database of FanoutPersistence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class FanoutIngestBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int batchSize;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadIngestService ingest;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start();
+        ingest = context.getBean(LeadIngestService.class);
+        FanoutPersistence.truncate("crm.lead");
+        FanoutPersistence.truncate("crm.lead_current");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int perRecord() {
+        int inserted = 0;
+        for (LeadEvent e : poll()) {
+            if (ingest.ingest(e)) inserted++;
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int batch() {
+        int inserted = 0;
+        for (boolean b : ingest.ingestAll(poll())) {
+            if (b) inserted++;
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int copy() {
+        int inserted = 0;
+        for (boolean b : ingest.ingestAllByCopy(poll())) {
+            if (b) inserted++;
+        }
+        return inserted;
+    }
+
+    private List<LeadEvent> poll() {
+        List<LeadEvent> events = new ArrayList<>(batchSize);
+        Instant now = Instant.now();
+        for (int i = 0; i < batchSize; i++) {
+            LeadEvent e = i % 10 == 9
+                    ? events.get(i - 1)
+                    : i % 3 == 0
+                    ? Fixtures.minimalLead(UuidV7.nextString(), now)
+                    : Fixtures.fullLead(UuidV7.nextString(), LeadEventType.CREATED, now);
+            events.add(e);
+        }
+        return events;
+    }
+}
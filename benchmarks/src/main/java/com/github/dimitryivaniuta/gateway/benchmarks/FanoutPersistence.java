@@ -0,0 +1,165 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadUpsertRepository;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * consumer-fanout's persistence layer (mapper, repositories, LeadIngestService with its transactions) in a
+ * plain Spring context against a scratch database {@value #DATABASE}, created next to the BenchDb one and
+ * initialized with fan-out's Flyway scripts (each applied once; drop the database after changing one).
+ * Kafka is not involved.
+ */
+final class FanoutPersistence {
+
+    static final String DATABASE = "fanout_bench";
+    private static final List<String> SCHEMA_SCRIPTS = List.of(
+            "db/migration/V20250921.000001__init_crm_schema.sql",
+            "db/migration/V20251017.000001__lead_copy_staging.sql",
+            "db/migration/V20251017.000002__lead_current.sql",
+            "db/migration/V20251017.000003__lead_partitioned.sql",
+            "db/migration/V20251017.000004__lead_rebuild.sql",
+            "db/migration/V20251017.000005__drop_lead_copy_staging.sql");
+
+    private FanoutPersistence() { /* no instances */ }
+
+    /** Creates/initializes the scratch database and starts the context; close it in @TearDown. */
+    static AnnotationConfigApplicationContext start() throws Exception {
+        return start(4);
+    }
+
+    /** As {@link #start()}, with {@code poolSize} pooled connections. */
+    static AnnotationConfigApplicationContext start(int poolSize) throws Exception {
+        try (Connection c = BenchDb.connect(); Statement st = c.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM pg_database WHERE datname = '" + DATABASE + "'")) {
+                if (!rs.next()) st.execute("CREATE DATABASE " + DATABASE);
+            }
+        }
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("CREATE SCHEMA IF NOT EXISTS crm");
+            // Each script once, like Flyway: they are not all re-runnable (V20250921 would index the partitioned lead)
+            st.execute("CREATE TABLE IF NOT EXISTS crm.bench_schema_history (script TEXT PRIMARY KEY)");
+            for (String script : SCHEMA_SCRIPTS) {
+                try (ResultSet rs = st.executeQuery("SELECT 1 FROM crm.bench_schema_history WHERE script = '" + script + "'")) {
+                    if (rs.next()) continue;
+                }
+                st.execute(new ClassPathResource(script).getContentAsString(StandardCharsets.UTF_8));
+                st.execute("INSERT INTO crm.bench_schema_history VALUES ('" + script + "')");
+            }
+        }
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean("poolSize", Integer.class, () -> poolSize);
+        context.register(Context.class);
+        context.refresh();
+        return context;
+    }
+
+    /** JDBC connection to the scratch database. */
+    static Connection connect() throws SQLException {
+        return DriverManager.getConnection(url(),
+                System.getProperty("bench.jdbc.user", "app"), System.getProperty("bench.jdbc.password", "app"));
+    }
+
+    private static String url() {
+        String base = System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5438/appdb");
+        int slash = base.lastIndexOf('/');
+        int query = base.indexOf('?', slash);
+        return base.substring(0, slash + 1) + DATABASE + (query < 0 ? "" : base.substring(query));
+    }
+
+    static void truncate(String table) throws SQLException {
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("TRUNCATE " + table);
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({LeadMapper.class, LeadIngestService.class})
+    @ComponentScan(basePackageClasses = LeadUpsertRepository.class)
+    static class Context {
+
+        /** Pooled like the service (Hikari), so every transaction does not pay for a new connection. */
+        @Bean(destroyMethod = "close")
+        HikariDataSource dataSource(Integer poolSize) {
+            HikariDataSource ds = new HikariDataSource();
+            ds.setJdbcUrl(url());
+            ds.setUsername(System.getProperty("bench.jdbc.user", "app"));
+            ds.setPassword(System.getProperty("bench.jdbc.password", "app"));
+            ds.setMaximumPoolSize(poolSize);
+            return ds;
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /** As KafkaConsumerConfig declares it, with the service's defaults. */
+        @Bean
+        RecentEventFilter recentEventFilter(LeadUpsertRepository upserts, MeterRegistry registry) {
+            return new RecentEventFilter(upserts::findExisting, registry, true, 1_000_000, 0.01, 2, 1_800_000);
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
+            emf.setDataSource(dataSource);
+            emf.setPackagesToScan(LeadEntity.class.getPackageName());
+            emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            emf.setJpaPropertyMap(Map.of("hibernate.default_schema", "crm"));
+            return emf;
+        }
+
+        /** Transaction-bound EntityManager proxy for constructor injection (what Spring Data registers in the service). */
+        @Bean
+        EntityManager entityManager(EntityManagerFactory emf) {
+            return SharedEntityManagerCreator.createSharedEntityManager(emf);
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+
+        @Bean
+        static PersistenceExceptionTranslationPostProcessor exceptionTranslation() {
+            return new PersistenceExceptionTranslationPostProcessor();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+
+import java.time.Instant;
+
+/** Representative events shared by the suites (field sizes match typical partner-feed leads). */
+final class Fixtures {
+
+    private Fixtures() { /* no instances */ }
+
+    /** A CREATED event with every optional field set. */
+    static LeadEvent fullLead() {
+        return fullLead(UuidV7.nextString(), LeadEventType.CREATED, Instant.now());
+    }
+
+    /** An event of lead {@code leadId} with every optional field set. */
+    static LeadEvent fullLead(String leadId, LeadEventType type, Instant occurredAt) {
+        return new LeadEvent(
+                UuidV7.next(),
+                "acme-realty",
+                type,
+                new LeadPayload(leadId, "Jane Doe", "jane.doe@example.com", "+1-555-1234",
+                        "Warsaw", "fb-ads", 250_000),
+                occurredAt);
+    }
+
+    /** A CREATED event with only the required fields. */
+    static LeadEvent minimalLead() {
+        return minimalLead("crm-42", Instant.now());
+    }
+
+    /** A CREATED event of lead {@code leadId} with only the required fields. */
+    static LeadEvent minimalLead(String leadId, Instant occurredAt) {
+        return new LeadEvent(
+                UuidV7.next(),
+                "acme-realty",
+                LeadEventType.CREATED,
+                new LeadPayload(leadId, "John Roe", null, null, null, null, null),
+                occurredAt);
+    }
+}
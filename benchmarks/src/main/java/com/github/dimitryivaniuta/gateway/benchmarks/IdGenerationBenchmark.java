@@ -0,0 +1,43 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation throughput: UUID.randomUUID() (shared SecureRandom) vs UuidV7 (CAS + ThreadLocalRandom).
+ * Run with -t N to see contention; randomUUID serializes on the SecureRandom lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public UUID randomV4() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UUID timeOrderedV7() {
+        return UuidV7.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID randomV4Contended() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID timeOrderedV7Contended() {
+        return UuidV7.next();
+    }
+}
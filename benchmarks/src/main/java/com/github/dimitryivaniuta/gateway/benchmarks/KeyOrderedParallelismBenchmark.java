@@ -0,0 +1,94 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel consumption beyond the partition count (LeadFanoutParallelListener / LeadWorkerParallelListener):
+ * one operation = one poll of {@value #RECORDS_PER_PARTITION} records from each of {@value #PARTITIONS}
+ * partitions, written with LeadIngestService#ingest (one transaction per record) through a KeyOrderedExecutor
+ * with maxConcurrency permits and as many pooled connections.
+ * - ordering=partition: tasks keyed by partition, i.e. what one consumer thread per partition does today
+ *   (never more than 3 records in the database, whatever maxConcurrency is)
+ * - ordering=key: tasks keyed by lead id (the parallel listener mode)
+ * - rttMillis: extra wait per record while holding its permit, standing in for the network round trips to a
+ *   remote database (0 = local Postgres on the same host, where both sides compete for the same CPUs)
+ * events/s = ops/s * 300. Needs Postgres (see BenchDb); uses the scratch database of FanoutPersistence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class KeyOrderedParallelismBenchmark {
+
+    private static final int PARTITIONS = 3;
+    private static final int RECORDS_PER_PARTITION = 100;
+    private static final int LEADS_PER_PARTITION = 60;
+
+    @Param({"partition", "key"})
+    public String ordering;
+
+    @Param({"3", "8", "16"})
+    public int maxConcurrency;
+
+    @Param({"0", "2"})
+    public int rttMillis;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadIngestService ingest;
+    private KeyOrderedExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start(maxConcurrency);
+        ingest = context.getBean(LeadIngestService.class);
+        executor = new KeyOrderedExecutor(maxConcurrency, "bench-");
+        FanoutPersistence.truncate("crm.lead");
+        FanoutPersistence.truncate("crm.lead_current");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void poll() {
+        Instant now = Instant.now();
+        List<CompletableFuture<Void>> done = new ArrayList<>(PARTITIONS * RECORDS_PER_PARTITION);
+        // interleaved like a poll spanning partitions; leads repeat within their partition
+        for (int i = 0; i < RECORDS_PER_PARTITION; i++) {
+            for (int p = 0; p < PARTITIONS; p++) {
+                String leadId = "lead-" + p + "-" + (i % LEADS_PER_PARTITION);
+                LeadEvent event = Fixtures.fullLead(leadId, LeadEventType.UPDATED, now);
+                Object key = "partition".equals(ordering) ? p : leadId;
+                done.add(executor.submit(key, () -> write(event)));
+            }
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void write(LeadEvent event) {
+        if (rttMillis > 0) {
+            try {
+                Thread.sleep(rttMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ingest.ingest(event);
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadCurrentRepository;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * crm.lead_current maintenance for one poll of 500 new events spread over {@code leads} leads (a burst of
+ * UPDATEDs when leads is small), in one transaction like the batch listener:
+ * - perEvent: one guarded upsert per event, in poll order (the projection without conflation)
+ * - conflated: LeadIngestService#ingestAll's way - the latest event per lead only, one multi-row upsert
+ * - ingestAll: the whole batch path (crm.lead insert + conflated projection), for scale
+ * One operation = one poll, so events/s = ops/s * 500. Needs Postgres (see BenchDb).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class LeadCurrentBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"10", "100", "500"})
+    public int leads;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadIngestService ingest;
+    private LeadCurrentRepository current;
+    private LeadMapper mapper;
+    private TransactionTemplate tx;
+    private List<String> leadIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start();
+        ingest = context.getBean(LeadIngestService.class);
+        current = context.getBean(LeadCurrentRepository.class);
+        mapper = context.getBean(LeadMapper.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        FanoutPersistence.truncate("crm.lead");
+        FanoutPersistence.truncate("crm.lead_current");
+        leadIds = new ArrayList<>(leads);
+        for (int i = 0; i < leads; i++) {
+            leadIds.add(UuidV7.nextString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int perEvent() {
+        List<LeadEvent> events = poll();
+        return tx.execute(status -> {
+            int written = 0;
+            for (LeadEvent e : events) {
+                written += current.upsertLatest(List.of(mapper.toCurrent(e)));
+            }
+            return written;
+        });
+    }
+
+    @Benchmark
+    public int conflated() {
+        List<LeadEvent> events = poll();
+        return tx.execute(status -> {
+            // same reduction as LeadIngestService: events are in occurredAt order, so the last one per lead wins
+            Map<String, LeadCurrentEntity> latest = new LinkedHashMap<>();
+            for (LeadEvent e : events) {
+                latest.put(e.key(), mapper.toCurrent(e));
+            }
+            return current.upsertLatest(latest.values());
+        });
+    }
+
+    @Benchmark
+    public int ingestAll() {
+        int inserted = 0;
+        for (boolean b : ingest.ingestAll(poll())) {
+            if (b) inserted++;
+        }
+        return inserted;
+    }
+
+    private List<LeadEvent> poll() {
+        List<LeadEvent> events = new ArrayList<>(BATCH_SIZE);
+        Instant now = Instant.now();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            events.add(Fixtures.fullLead(leadIds.get(i % leads),
+                    i < leads ? LeadEventType.CREATED : LeadEventType.UPDATED, now.plusNanos(i * 1000L)));
+        }
+        return events;
+    }
+}
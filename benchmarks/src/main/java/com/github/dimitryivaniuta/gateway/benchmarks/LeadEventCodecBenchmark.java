@@ -0,0 +1,97 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventBinaryCodec;
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventJsonCodec;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LeadEvent value codecs: Spring JsonSerializer/JsonDeserializer (ObjectMapper binding) vs the streaming
+ * LeadEventJsonCodec (same JSON fields) vs LeadEventBinaryCodec.
+ * Encoded size per record is printed at set-up; encode/decode cost is reported in ns/op.
+ * Wire compatibility of the streaming codec with ObjectMapper is covered by LeadEventJsonCodecTest (common).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeadEventCodecBenchmark {
+
+    private static final String TOPIC = "leads.events";
+
+    @Param({"full", "minimal"})
+    public String shape;
+
+    private LeadEvent event;
+    private JsonSerializer<Object> jsonSerializer;
+    private JsonDeserializer<LeadEvent> jsonDeserializer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() {
+        event = "full".equals(shape) ? Fixtures.fullLead() : Fixtures.minimalLead();
+
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        jsonDeserializer = new JsonDeserializer<>(LeadEvent.class);
+        jsonDeserializer.ignoreTypeHeaders();
+
+        json = jsonSerializer.serialize(TOPIC, event);
+        binary = LeadEventBinaryCodec.encode(event);
+        if (!event.equals(LeadEventBinaryCodec.decode(binary))) {
+            throw new IllegalStateException("binary round-trip changed the event");
+        }
+        System.out.printf("%n[%s] bytes/record: json=%d binary=%d (%.0f%%)%n",
+                shape, json.length, binary.length, 100.0 * binary.length / json.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonStreaming() {
+        return LeadEventJsonCodec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return LeadEventBinaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public LeadEvent decodeJson() {
+        return jsonDeserializer.deserialize(TOPIC, new RecordHeaders(), json);
+    }
+
+    @Benchmark
+    public LeadEvent decodeJsonStreaming() {
+        return LeadEventJsonCodec.decode(json);
+    }
+
+    @Benchmark
+    public LeadEvent decodeBinary() {
+        return LeadEventBinaryCodec.decode(binary);
+    }
+
+    /** Producer serialize + consumer deserialize through Spring's JsonSerializer/JsonDeserializer. */
+    @Benchmark
+    public LeadEvent roundTripJson() {
+        RecordHeaders headers = new RecordHeaders();
+        return jsonDeserializer.deserialize(TOPIC, headers, jsonSerializer.serialize(TOPIC, headers, event));
+    }
+
+    @Benchmark
+    public LeadEvent roundTripJsonStreaming() {
+        return LeadEventJsonCodec.decode(LeadEventJsonCodec.encode(event));
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadPartitionRepository;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadPartitionMaintenance;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * crm.lead after {@code months} months of {@code rowsPerMonth} rows, as one heap table with the original
+ * indexes (layout=plain: PRIMARY KEY + UNIQUE on event_id, B-trees on tenant_id, lead_id, occurred_at) vs
+ * partitioned by month (layout=partitioned: the Flyway schema, with LeadPartitionMaintenance run once so the
+ * older months have BRIN indexes on occurred_at).
+ * One operation = {@code batchSize} new rows of the current month with INSERT ... ON CONFLICT DO NOTHING in one
+ * transaction, so rows/s = ops/s * batchSize: rowsPerStatement=1 as a JDBC batch of single-row statements
+ * (record listener shape), =1000 as one multi-row statement (batch listener shape; partition routing is set up
+ * once per statement). Index sizes are printed at set-up and tear-down. Needs Postgres (see BenchDb); uses the scratch database of FanoutPersistence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class LeadPartitioningBenchmark {
+
+    private static final String PLAIN = "crm.bench_lead_plain";
+    private static final String COLUMNS =
+            "(event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at)";
+
+    @Param({"plain", "partitioned"})
+    public String layout;
+
+    @Param({"24"})
+    public int months;
+
+    @Param({"100000"})
+    public int rowsPerMonth;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    @Param({"1", "1000"})
+    public int rowsPerStatement;
+
+    private AnnotationConfigApplicationContext context;
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start();
+        connection = FanoutPersistence.connect();
+        boolean partitioned = "partitioned".equals(layout);
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        try (Statement st = connection.createStatement()) {
+            if (partitioned) {
+                table = "crm.lead";
+                st.execute("TRUNCATE crm.lead");
+                LeadPartitionRepository partitions = context.getBean(LeadPartitionRepository.class);
+                for (int m = months; m >= 0; m--) {
+                    partitions.createPartition(now.minusMonths(m));
+                }
+            } else {
+                table = PLAIN;
+                st.execute("DROP TABLE IF EXISTS " + PLAIN);
+                st.execute("""
+                    CREATE TABLE crm.bench_lead_plain (
+                        event_id UUID NOT NULL PRIMARY KEY, tenant_id TEXT NOT NULL, lead_id TEXT NOT NULL,
+                        full_name TEXT NOT NULL, email TEXT, phone TEXT, city TEXT, source TEXT, budget_usd INTEGER,
+                        occurred_at TIMESTAMPTZ NOT NULL, created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+                        UNIQUE (event_id))
+                    """);
+                st.execute("CREATE INDEX ON crm.bench_lead_plain (tenant_id)");
+                st.execute("CREATE INDEX ON crm.bench_lead_plain (lead_id)");
+                st.execute("CREATE INDEX ON crm.bench_lead_plain (occurred_at)");
+            }
+        }
+        fill(now);
+        if (partitioned) {
+            context.registerBean(LeadPartitionMaintenance.class);
+            context.getBean(LeadPartitionMaintenance.class).maintain();
+        }
+        try (Statement st = connection.createStatement()) {
+            st.execute("VACUUM ANALYZE " + table);
+        }
+        report("after " + months + " months");
+
+        connection.setAutoCommit(false);
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(' ').append(COLUMNS).append(" VALUES ");
+        for (int r = 0; r < rowsPerStatement; r++) {
+            sql.append(r == 0 ? "" : ", ")
+               .append("(?, ?, ?, 'Jane Doe', 'jane.doe@example.com', NULL, 'Warsaw', 'fb-ads', 250000, ?)");
+        }
+        sql.append(" ON CONFLICT ").append(partitioned ? "(event_id, occurred_at)" : "(event_id)").append(" DO NOTHING");
+        insert = connection.prepareStatement(sql.toString());
+    }
+
+    @Benchmark
+    public int insertBatch() throws SQLException {
+        Timestamp now = Timestamp.from(Instant.now());
+        int p = 1;
+        for (int i = 0; i < batchSize; i++) {
+            insert.setObject(p++, UuidV7.next());
+            insert.setString(p++, "tenant-" + (i % 50));
+            insert.setString(p++, UuidV7.nextString());
+            insert.setTimestamp(p++, now);
+            if (p > rowsPerStatement * 4) {
+                insert.addBatch();
+                p = 1;
+            }
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try {
+            connection.setAutoCommit(true);
+            report("after the run");
+            try (Statement st = connection.createStatement()) {
+                st.execute("partitioned".equals(layout) ? "TRUNCATE crm.lead" : "DROP TABLE " + PLAIN);
+            }
+        } finally {
+            connection.close();
+            context.close();
+        }
+    }
+
+    /** Months of history in occurred_at order (as the consumer writes them), time-ordered event ids. */
+    private void fill(YearMonth now) throws SQLException {
+        String sql = "INSERT INTO " + table + " " + COLUMNS + """
+             SELECT encode(overlay(uuid_send(gen_random_uuid())
+                                   PLACING substring(int8send((extract(epoch FROM ts) * 1000)::bigint) FROM 3)
+                                   FROM 1 FOR 6), 'hex')::uuid,
+                    'tenant-' || (g % 50), md5(? || ':' || g), 'Jane Doe', 'jane.doe@example.com', NULL,
+                    'Warsaw', 'fb-ads', 250000, ts
+               FROM (SELECT g, ?::timestamptz + g * (INTERVAL '1 month' / ?) AS ts
+                       FROM generate_series(0, ? - 1) g) s
+            """;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int m = months; m >= 1; m--) {
+                YearMonth month = now.minusMonths(m);
+                ps.setString(1, month.toString());
+                ps.setObject(2, OffsetDateTime.of(month.atDay(1).atStartOfDay(), ZoneOffset.UTC));
+                ps.setInt(3, rowsPerMonth);
+                ps.setInt(4, rowsPerMonth);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void report(String when) throws SQLException {
+        String sql = "partitioned".equals(layout)
+                ? """
+                  SELECT (SELECT count(*) FROM crm.lead),
+                         sum(pg_indexes_size(relid)), sum(pg_relation_size(relid)),
+                         (SELECT coalesce(sum(pg_relation_size(i.indexrelid)), 0)
+                            FROM pg_partition_tree('crm.lead') t JOIN pg_index i ON i.indrelid = t.relid
+                            JOIN pg_class ic ON ic.oid = i.indexrelid
+                           WHERE ic.relname LIKE '%occurred_at%')
+                    FROM pg_partition_tree('crm.lead') WHERE isleaf
+                  """
+                : """
+                  SELECT (SELECT count(*) FROM crm.bench_lead_plain),
+                         pg_indexes_size('crm.bench_lead_plain'), pg_relation_size('crm.bench_lead_plain'),
+                         pg_relation_size('crm.bench_lead_plain_occurred_at_idx')
+                  """;
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            long rows = rs.getLong(1);
+            System.out.printf("%n[%s, %s] rows=%d indexes=%d MiB (%.1f bytes/row), occurred_at index=%d KiB, heap=%d MiB%n",
+                    layout, when, rows, rs.getLong(2) >> 20, (double) rs.getLong(2) / Math.max(rows, 1),
+                    rs.getLong(4) >> 10, rs.getLong(3) >> 20);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
+import com.github.dimitryivaniuta.gateway.producer.service.LeadPublisher;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request message building on the producer hot path.
+ * - toMessage: LeadPublisher#toMessage (ids, payload/event construction, MessageBuilder headers)
+ * - toProducerRecord: what KafkaTemplate#send(Message) does next (MessagingMessageConverter + header mapper)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBuildingBenchmark {
+
+    private static final LeadCreateRequest REQUEST = new LeadCreateRequest(
+            null, "Jane Doe", "jane.doe@example.com", "+1-555-1234", "Warsaw", "web", 250_000);
+
+    private final MessagingMessageConverter converter = new MessagingMessageConverter();
+    private Message<LeadEvent> message;
+
+    @Setup
+    public void setup() {
+        message = LeadPublisher.toMessage(REQUEST, "acme-realty", "0199693c-6f2b-7a4e-8b1c-2d3e4f506172");
+    }
+
+    @Benchmark
+    public Message<LeadEvent> toMessage() {
+        return LeadPublisher.toMessage(REQUEST, "acme-realty", "0199693c-6f2b-7a4e-8b1c-2d3e4f506172");
+    }
+
+    @Benchmark
+    public ProducerRecord<?, ?> toProducerRecord() {
+        return converter.fromMessage(message, Topics.LEADS);
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.producer.config.RateLimitProperties;
+import com.github.dimitryivaniuta.gateway.producer.service.AdmissionController;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishMetrics;
+import com.github.dimitryivaniuta.gateway.producer.service.TenantRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory stand-in for the broker used by the publish and replay benchmarks.
+ * - Records are serialized exactly like in producer-service (String key, JSON value).
+ * - Every transaction commit costs {@code commitLatencyNanos}, modelling the EndTxn/acks=all round-trip.
+ * - LogConsumer serves an already deserialized log to readers (no fetch latency).
+ */
+final class MockKafka {
+
+    /** Shared like the factory-level serializers of DefaultKafkaProducerFactory (creating an ObjectMapper is costly). */
+    private static final StringSerializer KEY_SERIALIZER = new StringSerializer();
+    private static final JsonSerializer<Object> VALUE_SERIALIZER = new JsonSerializer<>();
+
+    private MockKafka() { /* no instances */ }
+
+    /** Transactional template; each transaction gets its own producer, like the real factory's cache. */
+    static KafkaTemplate<String, Object> transactionalTemplate(long commitLatencyNanos) {
+        MockProducerFactory<String, Object> pf = new MockProducerFactory<>(
+                (transactional, txId) -> new SlowCommitProducer(commitLatencyNanos),
+                "bench-tx-");
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(pf);
+        template.setDefaultTopic(Topics.LEADS);
+        return template;
+    }
+
+    /** Admission control that measures but never rejects, so the suites see raw publish cost. */
+    static AdmissionController unthrottled() {
+        return new AdmissionController(new SimpleMeterRegistry(), false, 1000, 50, 10_000, 250, 0.9, 0.2, 500, 250);
+    }
+
+    /** Per-tenant rate limiting switched off. */
+    static TenantRateLimiter noTenantLimits() {
+        return new TenantRateLimiter(
+                new RateLimitProperties(false, null, null, null, null, null), new SimpleMeterRegistry());
+    }
+
+    /** Publish meters in a throwaway registry, per-record log sampling off. */
+    static PublishMetrics publishMetrics() {
+        return new PublishMetrics(new SimpleMeterRegistry(), 500, 0.0);
+    }
+
+    /** MockProducer whose commitTransaction blocks for one simulated broker round-trip. */
+    static final class SlowCommitProducer extends MockProducer<String, Object> {
+
+        private final long commitLatencyNanos;
+
+        SlowCommitProducer(long commitLatencyNanos) {
+            super(true, KEY_SERIALIZER, VALUE_SERIALIZER);
+            this.commitLatencyNanos = commitLatencyNanos;
+            initTransactions();
+        }
+
+        @Override
+        public void commitTransaction() {
+            // Outside MockProducer's monitor so waiting virtual threads are not pinned
+            LockSupport.parkNanos(commitLatencyNanos);
+            super.commitTransaction();
+        }
+    }
+
+    /**
+     * MockConsumer over a fixed log of leads.events ({@code log.get(p)} = partition p, offsets from 0): each
+     * poll hands out up to maxPollRecords records of the assigned, unpaused partitions.
+     */
+    static final class LogConsumer<V> extends MockConsumer<String, V> {
+
+        private final List<List<ConsumerRecord<String, V>>> log;
+        private final int maxPollRecords;
+
+        LogConsumer(List<List<ConsumerRecord<String, V>>> log, int maxPollRecords) {
+            super(OffsetResetStrategy.NONE);
+            this.log = log;
+            this.maxPollRecords = maxPollRecords;
+            List<PartitionInfo> partitions = new ArrayList<>();
+            Map<TopicPartition, Long> begin = new HashMap<>();
+            Map<TopicPartition, Long> end = new HashMap<>();
+            for (int p = 0; p < log.size(); p++) {
+                partitions.add(new PartitionInfo(Topics.LEADS, p, Node.noNode(), new Node[0], new Node[0]));
+                begin.put(new TopicPartition(Topics.LEADS, p), 0L);
+                end.put(new TopicPartition(Topics.LEADS, p), (long) log.get(p).size());
+            }
+            updatePartitions(Topics.LEADS, partitions);
+            updateBeginningOffsets(begin);
+            updateEndOffsets(end);
+        }
+
+        @Override
+        public synchronized ConsumerRecords<String, V> poll(Duration timeout) {
+            List<TopicPartition> fetchable = new ArrayList<>(assignment());
+            fetchable.removeAll(paused());
+            int perPartition = fetchable.isEmpty() ? 0 : Math.max(1, maxPollRecords / fetchable.size());
+            for (TopicPartition tp : fetchable) {
+                List<ConsumerRecord<String, V>> partition = log.get(tp.partition());
+                int from = (int) position(tp);
+                for (int o = from; o < Math.min(partition.size(), from + perPartition); o++) {
+                    addRecord(partition.get(o));
+                }
+            }
+            return super.poll(timeout);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.common.kafka.HotKeyAwarePartitioner;
+import com.github.dimitryivaniuta.gateway.common.kafka.HotKeyTracker;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Skew simulation for HotKeyAwarePartitioner (not a JMH suite: it measures load distribution, not time).
+ *
+ * Traffic model:
+ * - CRM tenants (half of the traffic) send their own numeric lead ids "1".."ids-per-crm" with Zipf(1.1)
+ *   popularity, so the same few ids ("1", "2", ...) are reused heavily by every CRM tenant
+ * - the other tenants send unique UUIDv7 lead ids
+ *
+ * For each partition count it prints the per-partition load share and skew (busiest / even share) with the
+ * default partitioner and with the CRM tenants salted, and checks that every (tenant, lead) stayed on one
+ * partition (per-lead ordering).
+ *
+ *   gradle :benchmarks:partitionSkew [-Psim.records=1000000]
+ */
+public final class PartitionSkewSimulation {
+
+    private static final int CRM_TENANTS = 8;
+    private static final int OTHER_TENANTS = 32;
+    private static final int IDS_PER_CRM = 1_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private PartitionSkewSimulation() { /* no instances */ }
+
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<String> crmTenants = IntStream.range(0, CRM_TENANTS).mapToObj(i -> "crm-" + i).toList();
+
+        for (int partitions : new int[] {3, 12}) {
+            System.out.printf("%n=== %s: %d partitions, %,d records ===%n", Topics.LEADS, partitions, records);
+            run("default murmur2", partitions, records, List.of(), crmTenants);
+            run("salted CRM tenants", partitions, records, crmTenants, crmTenants);
+        }
+    }
+
+    private static void run(String label, int partitions, int records, List<String> salted, List<String> crmTenants) {
+        HotKeyTracker tracker = new HotKeyTracker(128, Long.MAX_VALUE);
+        HotKeyAwarePartitioner partitioner = new HotKeyAwarePartitioner();
+        partitioner.configure(Map.of(
+                HotKeyAwarePartitioner.TRACKER_CONFIG, tracker,
+                HotKeyAwarePartitioner.SALTED_TENANTS_CONFIG, String.join(",", salted)));
+        Cluster cluster = cluster(partitions);
+
+        Random random = new Random(42);
+        Zipf zipf = new Zipf(IDS_PER_CRM, ZIPF_EXPONENT, random);
+        long[] load = new long[partitions];
+        Map<String, Integer> partitionOfLead = new HashMap<>();
+        Map<String, Set<Integer>> partitionsOfHotId = new HashMap<>();
+        int orderingViolations = 0;
+
+        for (int i = 0; i < records; i++) {
+            boolean crm = random.nextBoolean();
+            String tenantId = crm
+                    ? crmTenants.get(random.nextInt(CRM_TENANTS))
+                    : "tenant-" + random.nextInt(OTHER_TENANTS);
+            String leadId = crm ? Integer.toString(zipf.next()) : UuidV7.nextString();
+            LeadEvent event = new LeadEvent(UuidV7.next(), tenantId, LeadEventType.CREATED,
+                    new LeadPayload(leadId, "Sim Lead", null, null, null, "sim", null), Instant.EPOCH);
+
+            int p = partitioner.partition(Topics.LEADS, leadId, leadId.getBytes(StandardCharsets.UTF_8),
+                    event, null, cluster);
+            load[p]++;
+            if (crm) {
+                Integer previous = partitionOfLead.putIfAbsent(tenantId + '/' + leadId, p);
+                if (previous != null && previous != p) orderingViolations++;
+                if (leadId.length() == 1) {
+                    partitionsOfHotId.computeIfAbsent(leadId, k -> new HashSet<>()).add(p);
+                }
+            }
+        }
+
+        double even = (double) records / partitions;
+        long max = 0;
+        for (long l : load) max = Math.max(max, l);
+        System.out.printf("%-20s skew %.2f  shares %s%n", label, max / even,
+                Arrays.stream(load).mapToObj(l -> "%.1f%%".formatted(100.0 * l / records))
+                        .collect(Collectors.joining(" ", "[", "]")));
+        System.out.printf("%-20s top keys %s%n", "", tracker.topKeys(3).stream()
+                .map(k -> "%s=%.1f%%".formatted(k.key(), 100 * k.share())).toList());
+        System.out.printf("%-20s partitions used by ids 1..3: %s; per-lead ordering violations: %d%n", "",
+                IntStream.rangeClosed(1, 3).mapToObj(Integer::toString)
+                        .map(id -> id + "->" + partitionsOfHotId.getOrDefault(id, Set.of()).size()).toList(),
+                orderingViolations);
+    }
+
+    private static Cluster cluster(int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            infos.add(new PartitionInfo(Topics.LEADS, p, node, new Node[] {node}, new Node[] {node}));
+        }
+        return new Cluster("sim", List.of(node), infos, Set.of(), Set.of());
+    }
+
+    /** Zipf sampler over 1..n via inverse CDF (binary search). */
+    private static final class Zipf {
+        private final double[] cdf;
+        private final Random random;
+
+        Zipf(int n, double exponent, Random random) {
+            this.random = random;
+            this.cdf = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1 / Math.pow(k, exponent);
+                cdf[k - 1] = sum;
+            }
+            for (int k = 0; k < n; k++) cdf[k] /= sum;
+        }
+
+        int next() {
+            int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return (i >= 0 ? i : -i - 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.BatchPipeline;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * consumer-fanout end to end for 10 polls of {@code pollSize} new events, each poll preceded by a simulated
+ * fetch of {@code fetchMs} (the broker round trip the poll thread waits on):
+ * - inlineRecord: fetch, then LeadIngestService#ingest per record on the poll thread (record listener)
+ * - inlineBatch: fetch, then LeadIngestService#ingestAll on the poll thread (batch listener)
+ * - pipelined: fetch, then hand the records to a BatchPipeline whose writer calls ingestAll in batches of up
+ *   to 500 (pipeline listener); the operation ends when the writer is idle, so every record is written
+ * One operation = 10 polls, so events/s = ops/s * 10 * pollSize. Needs Postgres (see BenchDb).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PipelinedIngestBenchmark {
+
+    private static final int POLLS = 10;
+
+    @Param({"500"})
+    public int pollSize;
+
+    @Param({"0", "20"})
+    public int fetchMs;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadIngestService ingest;
+    private BatchPipeline<LeadEvent> pipeline;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start();
+        ingest = context.getBean(LeadIngestService.class);
+        FanoutPersistence.truncate("crm.lead");
+        FanoutPersistence.truncate("crm.lead_current");
+        int capacity = 4 * pollSize;
+        pipeline = new BatchPipeline<>("bench-pipeline-writer", capacity, 500, capacity - pollSize, pollSize,
+                ingest::ingestAll, new BatchPipeline.Backpressure() {
+                    @Override
+                    public void pause() {
+                    }
+
+                    @Override
+                    public void resume() {
+                    }
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int inlineRecord() {
+        int inserted = 0;
+        for (int p = 0; p < POLLS; p++) {
+            for (LeadEvent e : fetch()) {
+                if (ingest.ingest(e)) inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int inlineBatch() {
+        int inserted = 0;
+        for (int p = 0; p < POLLS; p++) {
+            for (boolean b : ingest.ingestAll(fetch())) {
+                if (b) inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public boolean pipelined() throws InterruptedException {
+        for (int p = 0; p < POLLS; p++) {
+            for (LeadEvent e : fetch()) {
+                pipeline.put(e);
+            }
+        }
+        return pipeline.awaitIdle(60_000);
+    }
+
+    private List<LeadEvent> fetch() {
+        if (fetchMs > 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(fetchMs));
+        List<LeadEvent> events = new ArrayList<>(pollSize);
+        Instant now = Instant.now();
+        for (int i = 0; i < pollSize; i++) {
+            events.add(i % 3 == 0
+                    ? Fixtures.minimalLead(UuidV7.nextString(), now)
+                    : Fixtures.fullLead(UuidV7.nextString(), LeadEventType.CREATED, now));
+        }
+        return events;
+    }
+}
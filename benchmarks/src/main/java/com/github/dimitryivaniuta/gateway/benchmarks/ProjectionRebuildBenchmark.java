@@ -0,0 +1,150 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.kafka.TopicReplayer;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadRebuildRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadUpsertRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding crm.lead from {@code events} events of leads.events (12 partitions, occurred_at spread over the
+ * last 6 months, 5% redeliveries), served from memory and read by TopicReplayer with {@code readers} consumers:
+ * - liveTable: each poll inserted into the partitioned, indexed crm.lead (multi-row INSERT ... ON CONFLICT DO
+ *   NOTHING), i.e. what replaying through the consumer group into the live table costs
+ * - shadowTable: LeadRebuildService's path: COPY into the UNLOGGED, index-less load table, finish (dedupe,
+ *   key and indexes built once) and the swap (with nothing left to catch up)
+ * SingleShotTime: one op = one full rebuild into an empty table. Needs Postgres (see BenchDb).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProjectionRebuildBenchmark {
+
+    private static final int PARTITIONS = 12;
+    private static final int MAX_POLL_RECORDS = 5000;
+
+    @Param({"200000"})
+    public int events;
+
+    @Param({"1", "4"})
+    public int readers;
+
+    private AnnotationConfigApplicationContext context;
+    private LeadUpsertRepository upsert;
+    private LeadRebuildRepository rebuild;
+    private LeadMapper mapper;
+    private List<List<ConsumerRecord<String, LeadEvent>>> log;
+    private long distinct;
+    private int swaps;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = FanoutPersistence.start(readers + 1);
+        upsert = context.getBean(LeadUpsertRepository.class);
+        rebuild = context.getBean(LeadRebuildRepository.class);
+        mapper = context.getBean(LeadMapper.class);
+
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        log = new ArrayList<>();
+        for (int p = 0; p < PARTITIONS; p++) log.add(new ArrayList<>());
+        List<LeadEvent> published = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            LeadEvent event;
+            if (!published.isEmpty() && random.nextInt(100) < 5) {
+                event = published.get(random.nextInt(published.size()));
+            } else {
+                LeadEvent lead = Fixtures.fullLead();
+                event = new LeadEvent(UuidV7.next(), lead.tenantId(), lead.type(), lead.payload(),
+                        now.minus(random.nextInt(180 * 24 * 60), ChronoUnit.MINUTES));
+                published.add(event);
+            }
+            int p = Math.floorMod(event.eventId().hashCode(), PARTITIONS);
+            log.get(p).add(new ConsumerRecord<>(Topics.LEADS, p, log.get(p).size(), event.tenantId(), event));
+        }
+        distinct = published.size();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTables() throws Exception {
+        rebuild.abort();
+        FanoutPersistence.truncate("crm.lead");
+        try (Connection c = FanoutPersistence.connect(); Statement st = c.createStatement()) {
+            st.execute("""
+                DO $$
+                DECLARE t TEXT;
+                BEGIN
+                    FOR t IN SELECT relname FROM pg_class
+                              WHERE relnamespace = 'crm'::regnamespace AND relkind = 'p' AND relname LIKE 'lead\\_retired\\_%'
+                    LOOP
+                        EXECUTE format('DROP TABLE crm.%I', t);
+                    END LOOP;
+                END $$
+                """);
+        }
+    }
+
+    /** Both paths must end with one row per distinct event. */
+    @TearDown(Level.Iteration)
+    public void check() throws Exception {
+        try (Connection c = FanoutPersistence.connect(); Statement st = c.createStatement();
+             var rs = st.executeQuery("SELECT count(*) FROM crm.lead")) {
+            rs.next();
+            if (rs.getLong(1) != distinct) {
+                throw new IllegalStateException("crm.lead has " + rs.getLong(1) + " rows, expected " + distinct);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long liveTable() throws InterruptedException {
+        TopicReplayer<String, LeadEvent> replayer = replayer();
+        replayer.replay(replayer.beginningOffsets(), replayer.endOffsets(),
+                records -> upsert.insertAllIfAbsent(entities(records)));
+        return replayer.done();
+    }
+
+    @Benchmark
+    public String shadowTable() throws InterruptedException {
+        TopicReplayer<String, LeadEvent> replayer = replayer();
+        rebuild.prepare();
+        replayer.replay(replayer.beginningOffsets(), replayer.endOffsets(), records -> rebuild.load(entities(records)));
+        rebuild.finish();
+        return rebuild.swap("bench" + swaps++, 5000, List::of);
+    }
+
+    private TopicReplayer<String, LeadEvent> replayer() {
+        return new TopicReplayer<>(() -> new MockKafka.LogConsumer<>(log, MAX_POLL_RECORDS), Topics.LEADS, readers,
+                "bench-rebuild-reader", Duration.ofMillis(100));
+    }
+
+    private List<LeadEntity> entities(List<ConsumerRecord<String, LeadEvent>> records) {
+        List<LeadEntity> entities = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, LeadEvent> record : records) entities.add(mapper.toEntity(record.value()));
+        return entities;
+    }
+}
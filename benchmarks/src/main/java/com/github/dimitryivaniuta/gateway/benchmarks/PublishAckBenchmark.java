@@ -0,0 +1,85 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
+import com.github.dimitryivaniuta.gateway.producer.service.LeadPublisher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledged async publish vs. the blocking request-thread path of LeadPublisher.
+ * One operation = a burst of {@code inFlight} concurrent POST /api/leads calls, each committing its own
+ * Kafka transaction that takes {@code ackLatencyMs} to be acked (see MockKafka).
+ * - blockingOnRequestThreads: 200 platform threads (Tomcat's default max) each block in publishCreate.
+ * - acknowledgedAsync: publishCreateAsync; commits park on virtual threads, request threads are not held.
+ * SampleTime reports p50/p99/p99.9 of the burst latency; once inFlight exceeds the platform pool the blocking
+ * path queues requests and its latency grows with inFlight, which bounds its max concurrency.
+ * Both paths get TOMCAT_MAX_THREADS transaction slots (app.kafka.group-commit.committers), so they hold at most
+ * as many transactional producers as the blocking path did with one per request thread.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PublishAckBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private static final LeadCreateRequest REQUEST = new LeadCreateRequest(
+            null, "Jane Doe", "jane.doe@example.com", "+1-555-1234", "Warsaw", "web", 250_000);
+
+    @Param({"5", "20"})
+    public int ackLatencyMs;
+
+    @Param({"100", "1000", "5000"})
+    public int inFlight;
+
+    private ExecutorService requestThreads;
+    private ExecutorService ackExecutor;
+    private LeadPublisher publisher;
+
+    @Setup
+    public void setup() {
+        requestThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        ackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        publisher = new LeadPublisher(
+                MockKafka.transactionalTemplate(TimeUnit.MILLISECONDS.toNanos(ackLatencyMs)),
+                Optional.empty(),
+                ackExecutor,
+                MockKafka.unthrottled(),
+                MockKafka.noTenantLimits(),
+                Optional.empty(),
+                MockKafka.publishMetrics(),
+                TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        requestThreads.shutdownNow();
+        ackExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void blockingOnRequestThreads() {
+        CompletableFuture<?>[] done = new CompletableFuture<?>[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            done[i] = CompletableFuture.runAsync(() -> publisher.publishCreate(REQUEST, "bench"), requestThreads);
+        }
+        CompletableFuture.allOf(done).join();
+    }
+
+    @Benchmark
+    public void acknowledgedAsync() {
+        CompletableFuture<?>[] done = new CompletableFuture<?>[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            done[i] = publisher.publishCreateAsync(REQUEST, "bench");
+        }
+        CompletableFuture.allOf(done).join();
+    }
+}
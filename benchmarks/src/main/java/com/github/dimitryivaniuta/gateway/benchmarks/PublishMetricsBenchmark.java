@@ -0,0 +1,68 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the publish-path meters in the Prometheus registry:
+ * - preallocated: PublishMetrics lookup + latency, transaction and serialization/size records
+ * - builderPerRequest: the same four records with Timer.builder(...).tags(...).register() per request,
+ *   i.e. what tagging by tenant costs without preallocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublishMetricsBenchmark {
+
+    @Param({"10", "500"})
+    public int tenants;
+
+    private PrometheusMeterRegistry registry;
+    private PublishMetrics metrics;
+    private String[] tenantIds;
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        metrics = new PublishMetrics(registry, 1000, 0.0);
+        tenantIds = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantIds[i] = "tenant-" + i;
+            metrics.meters(tenantIds[i], LeadEventType.CREATED);
+        }
+    }
+
+    @Benchmark
+    public void preallocated() {
+        String tenant = tenantIds[ThreadLocalRandom.current().nextInt(tenants)];
+        long start = System.nanoTime();
+        PublishMetrics.Meters meters = metrics.meters(tenant, LeadEventType.CREATED);
+        meters.recordSerialization(1_500, 420);
+        meters.recordTransaction(start);
+        meters.recordLatency(start, true);
+    }
+
+    @Benchmark
+    public void builderPerRequest() {
+        String tenant = tenantIds[ThreadLocalRandom.current().nextInt(tenants)];
+        long start = System.nanoTime();
+        String type = LeadEventType.CREATED.name();
+        Timer.builder("bench.serialization").tags("tenant", tenant, "type", type).publishPercentileHistogram()
+                .register(registry).record(1_500, TimeUnit.NANOSECONDS);
+        registry.summary("bench.record.size", "tenant", tenant, "type", type).record(420);
+        Timer.builder("bench.transaction").tags("tenant", tenant, "type", type).publishPercentileHistogram()
+                .register(registry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        Timer.builder("bench.latency").tags("tenant", tenant, "type", type, "outcome", "success")
+                .publishPercentileHistogram().register(registry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
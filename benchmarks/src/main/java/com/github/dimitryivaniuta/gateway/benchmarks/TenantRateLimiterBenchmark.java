@@ -0,0 +1,54 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.producer.config.RateLimitProperties;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishRejectedException;
+import com.github.dimitryivaniuta.gateway.producer.service.TenantRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one per-tenant rate-limit check (bucket lookup + GCRA CAS + counter) with many live tenants.
+ * The rate is high enough that checks are admitted; run with -t N for contention on shared buckets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TenantRateLimiterBenchmark {
+
+    @Param({"10", "50000"})
+    public int tenants;
+
+    private TenantRateLimiter limiter;
+    private String[] tenantIds;
+
+    @Setup
+    public void setup() {
+        limiter = new TenantRateLimiter(new RateLimitProperties(true, "standard",
+                Map.of("standard", new RateLimitProperties.Tier(1e9, 1_000_000)),
+                Map.of(), Duration.ofMinutes(10), 100_000L), new SimpleMeterRegistry());
+        tenantIds = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantIds[i] = "tenant-" + i;
+            limiter.acquire(tenantIds[i], 1);
+        }
+    }
+
+    @Benchmark
+    public boolean acquire() {
+        String tenant = tenantIds[ThreadLocalRandom.current().nextInt(tenants)];
+        try {
+            limiter.acquire(tenant, 1);
+            return true;
+        } catch (PublishRejectedException ex) {
+            return false;
+        }
+    }
+}
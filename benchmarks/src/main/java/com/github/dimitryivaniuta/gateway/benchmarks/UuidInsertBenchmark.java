@@ -0,0 +1,80 @@
+package com.github.dimitryivaniuta.gateway.benchmarks;
+
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postgres insert rate and primary-key index size for random (v4) vs time-ordered (v7) event ids,
+ * using the crm.lead key shape (uuid PRIMARY KEY). One operation = one JDBC batch of {@code batchSize} rows,
+ * so rows/s = ops/s * batchSize. The index size after the run is printed at tear-down.
+ * Needs a running Postgres (docker compose up postgres); override with -Dbench.jdbc.url/user/password.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+    @Param({"v4", "v7"})
+    public String idVersion;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = BenchDb.connect();
+        table = "bench_uuid_" + idVersion;
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+            st.execute("CREATE TABLE " + table + " (event_id UUID PRIMARY KEY, tenant_id TEXT NOT NULL, occurred_at TIMESTAMPTZ NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + table + " (event_id, tenant_id, occurred_at) VALUES (?, ?, ?)");
+    }
+
+    @Benchmark
+    public int insertBatch() throws SQLException {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < batchSize; i++) {
+            insert.setObject(1, "v7".equals(idVersion) ? UuidV7.next() : UUID.randomUUID());
+            insert.setString(2, "bench");
+            insert.setTimestamp(3, now);
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT count(*), pg_relation_size('" + table + "_pkey'), pg_relation_size('" + table + "')"
+                     + " FROM " + table)) {
+            rs.next();
+            long rows = rs.getLong(1);
+            long indexBytes = rs.getLong(2);
+            System.out.printf("%n[%s] rows=%d pk_index=%d MiB (%.1f bytes/row) heap=%d MiB%n",
+                    idVersion, rows, indexBytes >> 20, (double) indexBytes / Math.max(rows, 1), rs.getLong(3) >> 20);
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.dimitryivaniuta.gateway.common.codec;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact, versioned binary encoding of LeadEvent (no field names on the wire).
+ *
+ * Schema v1 (all varints are unsigned LEB128, zigzag where noted):
+ *   u8      version (= 1)
+ *   u64     eventId most significant bits, big-endian
+ *   u64     eventId least significant bits, big-endian
+ *   u8      type code (CREATED=1, UPDATED=2, QUALIFIED=3, REJECTED=4; codes are never reused)
+ *   varlong occurredAt epoch seconds (zigzag)
+ *   varint  occurredAt nano adjustment
+ *   string  tenantId
+ *   string  payload.leadId
+ *   string  payload.fullName
+ *   u8      presence bits for optional fields: 0=email 1=phone 2=city 3=source 4=budgetUsd
+ *   string  email, phone, city, source   (each only if present, in this order)
+ *   varint  budgetUsd                    (only if present; validated >= 0)
+ * where string = varint byte length + UTF-8 bytes.
+ *
+ * New fields must go into a new version; decoders reject versions they do not know.
+ */
+public final class LeadEventBinaryCodec {
+
+    private LeadEventBinaryCodec() { /* no instances */ }
+
+    public static final byte VERSION_1 = 1;
+
+    private static final int HAS_EMAIL  = 1;
+    private static final int HAS_PHONE  = 1 << 1;
+    private static final int HAS_CITY   = 1 << 2;
+    private static final int HAS_SOURCE = 1 << 3;
+    private static final int HAS_BUDGET = 1 << 4;
+
+    /** Per-thread scratch buffer; large buffers are not retained. */
+    private static final int RETAINED_BUFFER_LIMIT = 16 * 1024;
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(() -> new Writer(256));
+
+    /** Encodes an event with the current schema version. */
+    public static byte[] encode(LeadEvent e) {
+        Writer w = WRITERS.get();
+        w.reset();
+
+        LeadPayload p = e.payload();
+        w.writeByte(VERSION_1);
+        w.writeLong(e.eventId().getMostSignificantBits());
+        w.writeLong(e.eventId().getLeastSignificantBits());
+        w.writeByte(typeCode(e.type()));
+        w.writeVarLong(zigzag(e.occurredAt().getEpochSecond()));
+        w.writeVarLong(e.occurredAt().getNano());
+        w.writeString(e.tenantId());
+        w.writeString(p.leadId());
+        w.writeString(p.fullName());
+
+        int presence = (p.email() != null ? HAS_EMAIL : 0)
+                | (p.phone() != null ? HAS_PHONE : 0)
+                | (p.city() != null ? HAS_CITY : 0)
+                | (p.source() != null ? HAS_SOURCE : 0)
+                | (p.budgetUsd() != null ? HAS_BUDGET : 0);
+        w.writeByte(presence);
+        if (p.email() != null)     w.writeString(p.email());
+        if (p.phone() != null)     w.writeString(p.phone());
+        if (p.city() != null)      w.writeString(p.city());
+        if (p.source() != null)    w.writeString(p.source());
+        if (p.budgetUsd() != null) w.writeVarLong(p.budgetUsd());
+
+        byte[] out = w.toByteArray();
+        if (w.capacity() > RETAINED_BUFFER_LIMIT) {
+            WRITERS.remove();
+        }
+        return out;
+    }
+
+    /**
+     * Decodes a value produced by {@link #encode}.
+     * @throws IllegalArgumentException on unknown versions, unknown type codes, out-of-range numbers or truncated input
+     */
+    public static LeadEvent decode(byte[] data) {
+        Reader r = new Reader(data);
+
+        int version = r.readByte();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported LeadEvent binary version: " + version);
+        }
+
+        UUID eventId = new UUID(r.readLong(), r.readLong());
+        LeadEventType type = typeOf(r.readByte());
+        long epochSecond = unzigzag(r.readVarLong());
+        long nanos = r.readVarLong();
+        if (epochSecond < Instant.MIN.getEpochSecond() || epochSecond > Instant.MAX.getEpochSecond()
+                || nanos >= 1_000_000_000L) {
+            throw new IllegalArgumentException(
+                    "LeadEvent occurredAt out of range: " + epochSecond + "s " + nanos + "ns");
+        }
+        String tenantId = r.readString();
+        String leadId = r.readString();
+        String fullName = r.readString();
+
+        int presence = r.readByte();
+        String email  = (presence & HAS_EMAIL) != 0  ? r.readString() : null;
+        String phone  = (presence & HAS_PHONE) != 0  ? r.readString() : null;
+        String city   = (presence & HAS_CITY) != 0   ? r.readString() : null;
+        String source = (presence & HAS_SOURCE) != 0 ? r.readString() : null;
+        Integer budgetUsd = (presence & HAS_BUDGET) != 0 ? readInt(r) : null;
+
+        return new LeadEvent(
+                eventId,
+                tenantId,
+                type,
+                new LeadPayload(leadId, fullName, email, phone, city, source, budgetUsd),
+                Instant.ofEpochSecond(epochSecond, nanos));
+    }
+
+    private static int readInt(Reader r) {
+        long v = r.readVarLong();
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("LeadEvent budgetUsd out of int range: " + v);
+        }
+        return (int) v;
+    }
+
+    private static int typeCode(LeadEventType type) {
+        return switch (type) {
+            case CREATED -> 1;
+            case UPDATED -> 2;
+            case QUALIFIED -> 3;
+            case REJECTED -> 4;
+        };
+    }
+
+    private static LeadEventType typeOf(int code) {
+        return switch (code) {
+            case 1 -> LeadEventType.CREATED;
+            case 2 -> LeadEventType.UPDATED;
+            case 3 -> LeadEventType.QUALIFIED;
+            case 4 -> LeadEventType.REJECTED;
+            default -> throw new IllegalArgumentException("Unknown LeadEventType code: " + code);
+        };
+    }
+
+    private static long zigzag(long v)   { return (v << 1) ^ (v >> 63); }
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    /** Growable big-endian byte sink. */
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int initialCapacity) { this.buf = new byte[initialCapacity]; }
+
+        void reset() { pos = 0; }
+
+        int capacity() { return buf.length; }
+
+        byte[] toByteArray() { return Arrays.copyOf(buf, pos); }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+    }
+
+    /** Bounds-checked cursor over an encoded value. */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) { this.buf = buf; }
+
+        int readByte() {
+            require(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        long readLong() {
+            require(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("Malformed varint at byte " + pos);
+        }
+
+        String readString() {
+            long len = readVarLong();
+            if (len > buf.length - pos) {
+                throw new IllegalArgumentException("Truncated LeadEvent: string of " + len + " bytes at byte " + pos);
+            }
+            String s = new String(buf, pos, (int) len, StandardCharsets.UTF_8);
+            pos += (int) len;
+            return s;
+        }
+
+        private void require(int n) {
+            if (pos + n > buf.length) {
+                throw new IllegalArgumentException("Truncated LeadEvent at byte " + pos);
+            }
+        }
+    }
+}
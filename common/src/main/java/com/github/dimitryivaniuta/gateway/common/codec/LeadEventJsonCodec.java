@@ -0,0 +1,226 @@
+package com.github.dimitryivaniuta.gateway.common.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Streaming (JsonParser/JsonGenerator) codec for LeadEvent in the JSON wire format - no ObjectMapper,
+ * no reflection, no intermediate tree.
+ *
+ * The output has exactly the fields and values Spring's JsonSerializer (ObjectMapper) writes today:
+ *   {"eventId":"...","tenantId":"...","type":"CREATED",
+ *    "payload":{"leadId":..,"fullName":..,"email":..,"phone":..,"city":..,"source":..,"budgetUsd":..},
+ *    "occurredAt":1758449730.123456789,"qualified":false,"created":true,"updated":false,"rejected":false}
+ * - null fields are written as null
+ * - occurredAt is decimal epoch seconds with 9 fraction digits
+ * - the derived isX() flags are written but ignored on read (ObjectMapper orders them by reflection,
+ *   which varies between JVM runs; here the order is fixed)
+ *
+ * Decoding is as lenient as the ObjectMapper it replaces: unknown fields are skipped, and occurredAt may be
+ * decimal/integer epoch seconds or an ISO-8601 string.
+ */
+public final class LeadEventJsonCodec {
+
+    private LeadEventJsonCodec() { /* no instances */ }
+
+    private static final JsonFactory FACTORY = JsonFactory.builder().build();
+
+    /** Per-thread output buffer; large buffers are not retained. */
+    private static final int RETAINED_BUFFER_LIMIT = 16 * 1024;
+    private static final ThreadLocal<ByteArrayBuilder> BUFFERS = ThreadLocal.withInitial(() -> new ByteArrayBuilder(512));
+
+    private static final char[] NANO_ZEROS = "000000000".toCharArray();
+
+    /** Encodes an event in the JSON wire format. */
+    public static byte[] encode(LeadEvent e) {
+        ByteArrayBuilder buf = BUFFERS.get();
+        buf.reset();
+        try (JsonGenerator g = FACTORY.createGenerator(buf)) {
+            LeadPayload p = e.payload();
+            g.writeStartObject();
+            g.writeStringField("eventId", e.eventId().toString());
+            g.writeStringField("tenantId", e.tenantId());
+            g.writeStringField("type", e.type().name());
+
+            g.writeFieldName("payload");
+            g.writeStartObject();
+            g.writeStringField("leadId", p.leadId());
+            g.writeStringField("fullName", p.fullName());
+            g.writeStringField("email", p.email());
+            g.writeStringField("phone", p.phone());
+            g.writeStringField("city", p.city());
+            g.writeStringField("source", p.source());
+            g.writeFieldName("budgetUsd");
+            if (p.budgetUsd() == null) g.writeNull(); else g.writeNumber(p.budgetUsd());
+            g.writeEndObject();
+
+            g.writeFieldName("occurredAt");
+            writeEpochDecimal(g, e.occurredAt());
+            g.writeBooleanField("qualified", e.isQualified());
+            g.writeBooleanField("created", e.isCreated());
+            g.writeBooleanField("updated", e.isUpdated());
+            g.writeBooleanField("rejected", e.isRejected());
+            g.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot encode LeadEvent " + e.eventId(), ex);
+        }
+
+        byte[] out = buf.toByteArray();
+        if (out.length > RETAINED_BUFFER_LIMIT) {
+            BUFFERS.remove();
+        }
+        return out;
+    }
+
+    /**
+     * Decodes a JSON LeadEvent.
+     * @throws IllegalArgumentException on malformed JSON or invalid field values
+     */
+    public static LeadEvent decode(byte[] data) {
+        try (JsonParser p = FACTORY.createParser(data)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("LeadEvent JSON must be an object");
+            }
+            UUID eventId = null;
+            String tenantId = null;
+            LeadEventType type = null;
+            LeadPayload payload = null;
+            Instant occurredAt = null;
+
+            String field;
+            while ((field = p.nextFieldName()) != null) {
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "eventId" -> eventId = t == JsonToken.VALUE_NULL ? null : UUID.fromString(p.getText());
+                    case "tenantId" -> tenantId = text(p, t);
+                    case "type" -> type = t == JsonToken.VALUE_NULL ? null : LeadEventType.valueOf(p.getText());
+                    case "payload" -> payload = t == JsonToken.VALUE_NULL ? null : readPayload(p, t);
+                    case "occurredAt" -> occurredAt = readInstant(p, t);
+                    default -> p.skipChildren(); // derived isX() flags and unknown fields
+                }
+            }
+            return new LeadEvent(eventId, tenantId, type, payload, occurredAt);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Malformed LeadEvent JSON: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static LeadPayload readPayload(JsonParser p, JsonToken start) throws IOException {
+        if (start != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("LeadEvent payload must be an object");
+        }
+        String leadId = null, fullName = null, email = null, phone = null, city = null, source = null;
+        Integer budgetUsd = null;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "leadId" -> leadId = text(p, t);
+                case "fullName" -> fullName = text(p, t);
+                case "email" -> email = text(p, t);
+                case "phone" -> phone = text(p, t);
+                case "city" -> city = text(p, t);
+                case "source" -> source = text(p, t);
+                case "budgetUsd" -> budgetUsd = t == JsonToken.VALUE_NULL ? null : readInt(p, t);
+                default -> p.skipChildren();
+            }
+        }
+        return new LeadPayload(leadId, fullName, email, phone, city, source, budgetUsd);
+    }
+
+    private static String text(JsonParser p, JsonToken t) throws IOException {
+        return switch (t) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> p.getText();
+            default -> throw new IllegalArgumentException("Expected a scalar for '" + p.currentName() + "', got " + t);
+        };
+    }
+
+    private static int readInt(JsonParser p, JsonToken t) throws IOException {
+        return switch (t) {
+            case VALUE_NUMBER_INT -> p.getIntValue();
+            case VALUE_STRING -> Integer.parseInt(p.getText().trim());
+            default -> throw new IllegalArgumentException("Expected an integer for '" + p.currentName() + "', got " + t);
+        };
+    }
+
+    /** Decimal epoch seconds (what we write), integer epoch seconds, ISO-8601 string or null. */
+    private static Instant readInstant(JsonParser p, JsonToken t) throws IOException {
+        return switch (t) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT -> Instant.ofEpochSecond(p.getLongValue());
+            case VALUE_NUMBER_FLOAT -> parseEpochDecimal(p.getText());
+            case VALUE_STRING -> {
+                try {
+                    yield Instant.parse(p.getText());
+                } catch (DateTimeParseException ex) {
+                    throw new IllegalArgumentException("Invalid occurredAt: " + p.getText(), ex);
+                }
+            }
+            default -> throw new IllegalArgumentException("Expected a timestamp for 'occurredAt', got " + t);
+        };
+    }
+
+    /**
+     * Writes seconds.nnnnnnnnn exactly as jackson-datatype-jsr310 does (including its "0.0" for the epoch),
+     * without going through BigDecimal. Before 1970 the fraction is still the nano adjustment, so the instant
+     * half a second before the epoch is -1.500000000 (jsr310 writes the same and reads it back as such).
+     */
+    private static void writeEpochDecimal(JsonGenerator g, Instant instant) throws IOException {
+        long seconds = instant.getEpochSecond();
+        int nanos = instant.getNano();
+        if (seconds == 0 && nanos == 0) {
+            g.writeNumber("0.0");
+            return;
+        }
+        String secs = Long.toString(seconds);
+        String frac = Integer.toString(nanos);
+        char[] chars = new char[secs.length() + 10];
+        secs.getChars(0, secs.length(), chars, 0);
+        chars[secs.length()] = '.';
+        int fracStart = secs.length() + 1;
+        int pad = 9 - frac.length();
+        System.arraycopy(NANO_ZEROS, 0, chars, fracStart, pad);
+        frac.getChars(0, frac.length(), chars, fracStart + pad);
+        g.writeNumber(chars, 0, chars.length);
+    }
+
+    /**
+     * Inverse of {@link #writeEpochDecimal}, reading numbers the way jsr310 does: the integer part (truncated
+     * towards zero) is the seconds and the unsigned fraction the nano adjustment, so -1.5 is half a second before
+     * the epoch; only a "-0." value, whose seconds cannot carry the sign, is negative by its fraction (-0.5 too).
+     */
+    private static Instant parseEpochDecimal(String text) {
+        int dot = text.indexOf('.');
+        if (dot < 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+            // exponent notation: rare enough to pay for BigDecimal
+            BigDecimal seconds = new BigDecimal(text);
+            long whole = seconds.longValue();
+            int nanos = seconds.subtract(BigDecimal.valueOf(whole)).abs().movePointRight(9).intValue();
+            return epochSeconds(whole, nanos, seconds.signum() < 0);
+        }
+        long seconds = Long.parseLong(text, 0, dot, 10);
+        int fracLen = Math.min(text.length() - dot - 1, 9);
+        int nanos = fracLen == 0 ? 0 : Integer.parseInt(text, dot + 1, dot + 1 + fracLen, 10);
+        for (int i = fracLen; i < 9; i++) nanos *= 10;
+        return epochSeconds(seconds, nanos, text.charAt(0) == '-');
+    }
+
+    private static Instant epochSeconds(long seconds, int nanos, boolean negative) {
+        return Instant.ofEpochSecond(seconds, seconds == 0 && negative ? -nanos : nanos);
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.dimitryivaniuta.gateway.common.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * AIMD controller of a writer's batch size and linger, fed with the latency of every batch written.
+ * Decisions are taken once per window of batches:
+ * - SHRINK if the window's p99 latency is over the target, or the connection pool had waiters after any of
+ *   its batches (congested probe): size and linger are multiplied by decreaseFactor (at least minBatch)
+ * - GROW if the latency is within the target and the batches were full: size + step (at most maxBatch);
+ *   a full batch means more was buffered, so a larger one saves commits
+ * - GROW linger if the latency is within the target but the batches were not full: + lingerStep (at most
+ *   maxLinger), so the writer waits a little for fuller batches instead of committing crumbs
+ * - HOLD otherwise (at the limits)
+ * Single writer: record is called by one thread; the getters may be read from any thread (metrics).
+ */
+public final class AimdBatchSizer {
+
+    public enum Decision { GROW, SHRINK, HOLD }
+
+    private final int minBatch;
+    private final int maxBatch;
+    private final int step;
+    private final double decreaseFactor;
+    private final long targetNanos;
+    private final long maxLingerNanos;
+    private final long lingerStepNanos;
+    private final BooleanSupplier congested;
+
+    // Window, confined to the writer thread
+    private final long[] latencies;
+    private int samples;
+    private int fullBatches;
+    private boolean congestedSeen;
+
+    private volatile int batchSize;
+    private volatile long lingerNanos;
+    private volatile long lastP99Nanos;
+    private volatile Decision lastDecision = Decision.HOLD;
+    private final AtomicLongArray decisions = new AtomicLongArray(Decision.values().length);
+
+    /**
+     * @param minBatch       smallest batch size
+     * @param maxBatch       largest batch size
+     * @param initialBatch   batch size to start with (clamped to [minBatch, maxBatch])
+     * @param step           additive increase of the batch size
+     * @param decreaseFactor multiplicative decrease, in (0, 1)
+     * @param targetP99Ms    latency target of a batch write (p99 over a window)
+     * @param maxLingerMs    longest wait for a batch to fill (0: never wait)
+     * @param window         batches per decision
+     * @param congested      true if the sink's resources are saturated (e.g. threads waiting for a connection)
+     */
+    public AimdBatchSizer(int minBatch, int maxBatch, int initialBatch, int step, double decreaseFactor,
+                          long targetP99Ms, long maxLingerMs, int window, BooleanSupplier congested) {
+        if (minBatch < 1 || maxBatch < minBatch) throw new IllegalArgumentException("need 1 <= minBatch <= maxBatch");
+        if (step < 1) throw new IllegalArgumentException("step must be >= 1");
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) throw new IllegalArgumentException("decreaseFactor must be in (0, 1)");
+        if (targetP99Ms < 1) throw new IllegalArgumentException("targetP99Ms must be >= 1");
+        if (maxLingerMs < 0) throw new IllegalArgumentException("maxLingerMs must be >= 0");
+        if (window < 1) throw new IllegalArgumentException("window must be >= 1");
+        this.minBatch = minBatch;
+        this.maxBatch = maxBatch;
+        this.step = step;
+        this.decreaseFactor = decreaseFactor;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetP99Ms);
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+        // ~10 steps from 0 to maxLinger
+        this.lingerStepNanos = Math.max(1, maxLingerNanos / 10);
+        this.congested = congested;
+        this.latencies = new long[window];
+        this.batchSize = Math.clamp(initialBatch, minBatch, maxBatch);
+    }
+
+    /** Current batch size limit. */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /** Largest batch size this sizer may return. */
+    public int maxBatch() {
+        return maxBatch;
+    }
+
+    /** Current wait for a batch to fill, in nanoseconds. */
+    public long lingerNanos() {
+        return lingerNanos;
+    }
+
+    /** p99 write latency of the last complete window, in nanoseconds. */
+    public long lastP99Nanos() {
+        return lastP99Nanos;
+    }
+
+    public Decision lastDecision() {
+        return lastDecision;
+    }
+
+    /** Decisions of one kind taken so far. */
+    public long decisions(Decision decision) {
+        return decisions.get(decision.ordinal());
+    }
+
+    /**
+     * Records one batch written by the writer thread; decides at the end of a window.
+     * @param size         records in the batch
+     * @param limit        the batch size limit it was drained with
+     * @param latencyNanos time the sink took to write it
+     * @return the decision taken, or null within a window
+     */
+    public Decision record(int size, int limit, long latencyNanos) {
+        latencies[samples++] = latencyNanos;
+        if (size >= limit) fullBatches++;
+        if (!congestedSeen && congested.getAsBoolean()) congestedSeen = true;
+        if (samples < latencies.length) return null;
+
+        Arrays.sort(latencies);
+        long p99 = latencies[Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * 0.99) - 1)];
+        // most batches were full: the writer is behind the producers
+        boolean full = fullBatches * 2 > samples;
+        Decision decision = decide(p99, full, congestedSeen);
+
+        lastP99Nanos = p99;
+        lastDecision = decision;
+        decisions.incrementAndGet(decision.ordinal());
+        samples = 0;
+        fullBatches = 0;
+        congestedSeen = false;
+        return decision;
+    }
+
+    private Decision decide(long p99, boolean full, boolean congestion) {
+        int size = batchSize;
+        long linger = lingerNanos;
+        if (congestion || p99 > targetNanos) {
+            int smaller = Math.max(minBatch, (int) (size * decreaseFactor));
+            long shorter = (long) (linger * decreaseFactor);
+            if (smaller == size && shorter == linger) return Decision.HOLD;
+            batchSize = smaller;
+            lingerNanos = shorter < lingerStepNanos ? 0 : shorter;
+            return Decision.SHRINK;
+        }
+        if (full) {
+            if (size >= maxBatch) return Decision.HOLD;
+            batchSize = Math.min(maxBatch, size + step);
+            return Decision.GROW;
+        }
+        if (linger >= maxLingerNanos) return Decision.HOLD;
+        lingerNanos = Math.min(maxLingerNanos, linger + lingerStepNanos);
+        return Decision.GROW;
+    }
+}
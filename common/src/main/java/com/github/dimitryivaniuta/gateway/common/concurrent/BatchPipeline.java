@@ -0,0 +1,189 @@
+package com.github.dimitryivaniuta.gateway.common.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands items from producer threads (Kafka poll threads) to ONE writer thread through a bounded FIFO buffer;
+ * the writer drains it in batches of up to maxBatch and passes each batch to the sink (the list is reused
+ * once the sink returned).
+ * - Order: items reach the sink in put order (one queue, one writer), so per-partition order is kept and
+ *   the sink may acknowledge "everything up to the last item of a partition" after each batch.
+ * - Backpressure: put never waits while the buffer has room; when the buffer reaches pauseAt items the
+ *   Backpressure is paused (e.g. the listener container stops fetching), and resumed once the writer has
+ *   brought it down to resumeAt. pauseAt must leave room for what producers may still put after a pause
+ *   (a poll already returned), otherwise put blocks.
+ * - Batch size: fixed (maxBatch), or set by an AimdBatchSizer from the sink's latency; the sizer may also
+ *   have the writer linger for a batch to fill.
+ * - The sink handles its own failures; if it throws anyway, the pipeline stops for good: it stays paused and
+ *   drops further puts, so the failed batch and everything behind it are never acknowledged (redelivered
+ *   after a restart or rebalance).
+ * Thread-safe: put, awaitIdle and size may be called from any thread.
+ */
+public final class BatchPipeline<T> implements AutoCloseable {
+
+    /** Flow control of whatever produces the items; called from the producer and the writer thread. */
+    public interface Backpressure {
+        void pause();
+
+        void resume();
+    }
+
+    private final BlockingQueue<T> buffer;
+    private final int maxBatch;
+    private final AimdBatchSizer sizer;
+    private final int pauseAt;
+    private final int resumeAt;
+    private final Consumer<List<T>> sink;
+    private final Backpressure backpressure;
+    private final Thread writer;
+
+    // Guarded by this
+    private boolean paused;
+    private boolean failed;
+    private long pending; // put, not yet through the sink
+
+    /**
+     * @param capacity buffer size (items)
+     * @param maxBatch most items per sink call
+     * @param pauseAt  buffered items at which the producers are paused (&lt;= capacity)
+     * @param resumeAt buffered items at which they are resumed (&lt; pauseAt)
+     */
+    public BatchPipeline(String name, int capacity, int maxBatch, int pauseAt, int resumeAt,
+                         Consumer<List<T>> sink, Backpressure backpressure) {
+        this(name, capacity, maxBatch, null, pauseAt, resumeAt, sink, backpressure);
+    }
+
+    /** Batches sized by {@code sizer} (batch size and linger adapted to the sink's latency). */
+    public BatchPipeline(String name, int capacity, AimdBatchSizer sizer, int pauseAt, int resumeAt,
+                         Consumer<List<T>> sink, Backpressure backpressure) {
+        this(name, capacity, sizer.maxBatch(), sizer, pauseAt, resumeAt, sink, backpressure);
+    }
+
+    private BatchPipeline(String name, int capacity, int maxBatch, AimdBatchSizer sizer, int pauseAt, int resumeAt,
+                          Consumer<List<T>> sink, Backpressure backpressure) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        if (pauseAt < 1 || pauseAt > capacity) throw new IllegalArgumentException("pauseAt must be in [1, capacity]");
+        if (resumeAt < 0 || resumeAt >= pauseAt) throw new IllegalArgumentException("resumeAt must be in [0, pauseAt)");
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.sizer = sizer;
+        this.pauseAt = pauseAt;
+        this.resumeAt = resumeAt;
+        this.sink = sink;
+        this.backpressure = backpressure;
+        this.writer = Thread.ofPlatform().name(name).daemon().start(this::drain);
+    }
+
+    /** Appends an item; blocks only if the buffer is full (pauseAt left too little headroom). */
+    public void put(T item) throws InterruptedException {
+        synchronized (this) {
+            if (failed) return;
+            pending++;
+        }
+        try {
+            buffer.put(item);
+        } catch (InterruptedException ex) {
+            synchronized (this) {
+                pending--;
+            }
+            throw ex;
+        }
+        if (buffer.size() >= pauseAt) {
+            synchronized (this) {
+                if (!paused) {
+                    paused = true;
+                    backpressure.pause();
+                }
+            }
+        }
+    }
+
+    /** Waits until every item put so far went through the sink; false on timeout or if the pipeline failed. */
+    public synchronized boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!failed && pending > 0) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return !failed;
+    }
+
+    /** True once the sink threw: nothing is written any more. */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /** Items buffered (not yet taken by the writer). */
+    public int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public void close() {
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits up to lingerNanos for the batch to reach limit items. */
+    private void linger(List<T> batch, int limit, long lingerNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < limit) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return;
+            T item = buffer.poll(left, TimeUnit.NANOSECONDS);
+            if (item == null) return;
+            batch.add(item);
+            buffer.drainTo(batch, limit - batch.size());
+        }
+    }
+
+    private void drain() {
+        List<T> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int limit = sizer == null ? maxBatch : sizer.batchSize();
+                batch.add(buffer.take());
+                buffer.drainTo(batch, limit - 1);
+                if (sizer != null) {
+                    linger(batch, limit, sizer.lingerNanos());
+                }
+                long start = System.nanoTime();
+                sink.accept(batch);
+                if (sizer != null) {
+                    sizer.record(batch.size(), limit, System.nanoTime() - start);
+                }
+                synchronized (this) {
+                    pending -= batch.size();
+                    if (paused && buffer.size() <= resumeAt) {
+                        paused = false;
+                        backpressure.resume();
+                    }
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            // close(): items still buffered are left unacknowledged
+        } catch (RuntimeException | Error ex) {
+            synchronized (this) {
+                failed = true;
+                if (!paused) {
+                    paused = true;
+                    backpressure.pause();
+                }
+                notifyAll();
+            }
+            throw ex;
+        }
+    }
+}
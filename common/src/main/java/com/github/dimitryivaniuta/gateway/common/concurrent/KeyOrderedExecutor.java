@@ -0,0 +1,101 @@
+package com.github.dimitryivaniuta.gateway.common.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on virtual threads, in submission order per key and in parallel across keys.
+ * - Per key, a task starts only after the previous task of that key completed (normally or not); the chain
+ *   of a key is dropped from the map as soon as its last task is done, so idle keys cost nothing.
+ * - A null key has no ordering: the task runs independently.
+ * - At most maxConcurrent tasks run at the same time (a semaphore, typically sized to the JDBC pool):
+ *   threads beyond it park cheaply instead of queueing for a pooled connection with a timeout.
+ * Thread-safe; submit may be called from any thread.
+ */
+public final class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConcurrent tasks allowed to run at the same time
+     * @param threadPrefix  name prefix of the virtual threads
+     */
+    public KeyOrderedExecutor(int maxConcurrent, String threadPrefix) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadPrefix, 0).factory());
+    }
+
+    /** Schedules {@code task} after all earlier tasks of {@code key}; the future completes with the task. */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        if (key == null) {
+            return CompletableFuture.runAsync(() -> runBounded(task), executor);
+        }
+        CompletableFuture<Void> tail = tails.compute(key, (k, previous) -> previous == null
+                ? CompletableFuture.runAsync(() -> runBounded(task), executor)
+                // a failed predecessor does not block the key: failures are the task's own business
+                : previous.handle((r, ex) -> null).thenRunAsync(() -> runBounded(task), executor));
+        tail.whenComplete((r, ex) -> tails.remove(key, tail));
+        return tail;
+    }
+
+    /** Keys with a task queued or running. */
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    /** Tasks running right now (holding a permit). */
+    public int running() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Sleeps inside a running task without holding its permit (e.g. a retry backoff), so tasks of other keys use
+     * the database meanwhile; later tasks of the key still wait for this one. Call from a task of this executor only.
+     * Returns false if interrupted (shutdown); the permit is taken back either way.
+     */
+    public boolean pause(long millis) {
+        permits.release();
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            permits.acquireUninterruptibly();
+        }
+    }
+
+    private void runBounded(Runnable task) {
+        permits.acquireUninterruptibly();
+        try {
+            task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Stops accepting tasks, waits up to 30 s for the submitted ones, then interrupts what is left. */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
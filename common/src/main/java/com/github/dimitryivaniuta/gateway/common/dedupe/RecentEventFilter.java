@@ -0,0 +1,139 @@
+package com.github.dimitryivaniuta.gateway.common.dedupe;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Skips the sink write for replayed / retried events, per partition, with a RotatingBloomFilter of the
+ * eventIds committed recently:
+ * - "definitely new" (not in the filter): no probe at all, the event goes straight to the INSERT
+ * - "maybe seen": the events are checked with one lookup in the sink per call (e.g. one SELECT); those found
+ *   are skipped without a write transaction, the others (false positives) are written normally
+ * The INSERT keeps its ON CONFLICT DO NOTHING: the filter only knows ids committed by this instance since
+ * its start, within the last generations. A skipped replay costs one read instead of a write transaction.
+ *
+ * Memory: generations x bits for expected-per-generation ids at fpp, per partition (logged on creation).
+ * Metrics: leads.dedupe.lookups{result=new|maybe}, leads.dedupe.skipped, leads.dedupe.false.positives
+ * (observed rate = false.positives / (false.positives + lookups{result=new})), leads.dedupe.fpp (estimated
+ * from the fill of the partition filters, worst partition), leads.dedupe.memory.
+ * Disabled with app.dedupe.filter.enabled=false.
+ */
+@Slf4j
+public class RecentEventFilter {
+
+    private final Function<Map<UUID, Instant>, Set<UUID>> findExisting;
+    private final boolean enabled;
+    private final long expectedPerGeneration;
+    private final double fpp;
+    private final int generations;
+    private final long rotateMillis;
+    private final Map<Integer, RotatingBloomFilter> filters = new ConcurrentHashMap<>();
+
+    private final Counter lookupsNew;
+    private final Counter lookupsMaybe;
+    private final Counter skipped;
+    private final Counter falsePositives;
+
+    /**
+     * @param findExisting the ids among the given ones (with each event's occurredAt) already in the sink
+     */
+    public RecentEventFilter(Function<Map<UUID, Instant>, Set<UUID>> findExisting, MeterRegistry registry,
+                             boolean enabled, long expectedPerGeneration, double fpp, int generations,
+                             long rotateEveryMs) {
+        this.findExisting = findExisting;
+        this.enabled = enabled;
+        this.expectedPerGeneration = expectedPerGeneration;
+        this.fpp = fpp;
+        this.generations = generations;
+        this.rotateMillis = rotateEveryMs;
+
+        this.lookupsNew = Counter.builder("leads.dedupe.lookups").tag("result", "new")
+                .description("Dedupe filter lookups by answer").register(registry);
+        this.lookupsMaybe = Counter.builder("leads.dedupe.lookups").tag("result", "maybe")
+                .description("Dedupe filter lookups by answer").register(registry);
+        this.skipped = Counter.builder("leads.dedupe.skipped")
+                .description("Events skipped as already stored, without a write").register(registry);
+        this.falsePositives = Counter.builder("leads.dedupe.false.positives")
+                .description("Events the filter reported as maybe seen that were not stored").register(registry);
+        Gauge.builder("leads.dedupe.fpp", this, RecentEventFilter::worstFpp)
+                .description("Estimated false-positive probability of the dedupe filter (worst partition)").register(registry);
+        Gauge.builder("leads.dedupe.memory", this, RecentEventFilter::memoryBytes).baseUnit("bytes")
+                .description("Heap used by the dedupe filters").register(registry);
+    }
+
+    /** True if {@code event} of {@code partition} is already stored (see {@link #storedAmong}). */
+    public boolean isStored(int partition, LeadEvent event) {
+        return !storedAmong(partition, List.of(event)).isEmpty();
+    }
+
+    /** The ids of the {@code events} of {@code partition} that are already stored; at most one SELECT. */
+    public Set<UUID> storedAmong(int partition, Collection<LeadEvent> events) {
+        if (!enabled || events.isEmpty()) return Set.of();
+        RotatingBloomFilter filter = filter(partition);
+        Map<UUID, Instant> maybe = new HashMap<>();
+        for (LeadEvent e : events) {
+            if (filter.mightContain(e.eventId())) maybe.put(e.eventId(), e.occurredAt());
+        }
+        lookupsNew.increment(events.size() - maybe.size());
+        if (maybe.isEmpty()) return Set.of();
+        lookupsMaybe.increment(maybe.size());
+
+        Set<UUID> stored = findExisting.apply(maybe);
+        skipped.increment(stored.size());
+        falsePositives.increment(maybe.size() - stored.size());
+        return stored;
+    }
+
+    /** Remembers events of {@code partition} as stored; call after their transaction committed. */
+    public void markStored(int partition, Collection<LeadEvent> events) {
+        if (!enabled) return;
+        RotatingBloomFilter filter = filter(partition);
+        for (LeadEvent e : events) {
+            filter.put(e.eventId());
+        }
+    }
+
+    public void markStored(int partition, LeadEvent event) {
+        markStored(partition, List.of(event));
+    }
+
+    private RotatingBloomFilter filter(int partition) {
+        return filters.computeIfAbsent(partition, p -> {
+            RotatingBloomFilter f = new RotatingBloomFilter(expectedPerGeneration, fpp, generations, rotateMillis,
+                    Clock.systemUTC());
+            log.info("Dedupe filter for partition {}: {} KiB ({} generations of {} ids at fpp {})",
+                    p, f.memoryBytes() / 1024, generations, expectedPerGeneration, fpp);
+            return f;
+        });
+    }
+
+    private double worstFpp() {
+        double worst = 0;
+        for (RotatingBloomFilter f : filters.values()) {
+            worst = Math.max(worst, f.fpp());
+        }
+        return worst;
+    }
+
+    private double memoryBytes() {
+        long bytes = 0;
+        for (RotatingBloomFilter f : filters.values()) {
+            bytes += f.memoryBytes();
+        }
+        return bytes;
+    }
+}
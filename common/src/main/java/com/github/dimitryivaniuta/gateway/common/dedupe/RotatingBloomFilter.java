@@ -0,0 +1,136 @@
+package com.github.dimitryivaniuta.gateway.common.dedupe;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of recently seen event ids that forgets: a ring of generations, new ids go to the current one,
+ * lookups check all of them, and the oldest is dropped when the current one is full (expectedPerGeneration
+ * ids) or older than the rotation interval.
+ * - "definitely new" (mightContain = false) means not seen within the last generations; ids seen earlier,
+ *   before a restart, or by another instance are not covered, so sinks keep their ON CONFLICT safety net
+ * - memory is fixed: generations x bitsPerGeneration (sized for expectedPerGeneration at targetFpp)
+ * - fpp() estimates the current false-positive probability from the fill ratio of each generation
+ * Thread-safe and lock-free except for the rare rotation.
+ */
+public final class RotatingBloomFilter {
+
+    private final int bitsPerGeneration;
+    private final int hashes;
+    private final long expectedPerGeneration;
+    private final long rotateMillis;
+    private final Clock clock;
+    private final Generation[] generations;
+    private volatile int current;
+
+    /**
+     * @param expectedPerGeneration ids per generation before it is rotated out of the current slot
+     * @param targetFpp             false-positive probability of one full generation
+     * @param generations           generations kept (>= 2: the previous one still answers after a rotation)
+     * @param rotateMillis          maximum age of the current generation
+     */
+    public RotatingBloomFilter(long expectedPerGeneration, double targetFpp, int generations, long rotateMillis,
+                               Clock clock) {
+        if (expectedPerGeneration < 1) throw new IllegalArgumentException("expectedPerGeneration must be >= 1");
+        if (targetFpp <= 0 || targetFpp >= 1) throw new IllegalArgumentException("targetFpp must be in (0, 1)");
+        if (generations < 2) throw new IllegalArgumentException("generations must be >= 2");
+        long bits = (long) Math.ceil(-expectedPerGeneration * Math.log(targetFpp) / (Math.log(2) * Math.log(2)));
+        bits = (bits + 63) / 64 * 64;
+        if (bits > Integer.MAX_VALUE - 63) throw new IllegalArgumentException("filter generation too large: " + bits + " bits");
+        this.bitsPerGeneration = (int) bits;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedPerGeneration * Math.log(2)));
+        this.expectedPerGeneration = expectedPerGeneration;
+        this.rotateMillis = rotateMillis;
+        this.clock = clock;
+        this.generations = new Generation[generations];
+        long now = clock.millis();
+        for (int i = 0; i < generations; i++) {
+            this.generations[i] = new Generation(bitsPerGeneration / 64, now);
+        }
+    }
+
+    /** False if {@code id} was definitely not put within the retained generations. */
+    public boolean mightContain(UUID id) {
+        long h1 = mix(id.getMostSignificantBits());
+        long h2 = mix(id.getLeastSignificantBits()) | 1;
+        for (Generation g : generations) {
+            if (g.contains(h1, h2)) return true;
+        }
+        return false;
+    }
+
+    public void put(UUID id) {
+        Generation g = generations[current];
+        if (g.insertions.sum() >= expectedPerGeneration || clock.millis() - g.startedAt >= rotateMillis) {
+            g = rotate(g);
+        }
+        g.add(mix(id.getMostSignificantBits()), mix(id.getLeastSignificantBits()) | 1);
+    }
+
+    /** Estimated probability that mightContain answers true for an id never put: 1 - prod(1 - fill^k). */
+    public double fpp() {
+        double none = 1.0;
+        for (Generation g : generations) {
+            none *= 1.0 - Math.pow((double) g.setBits.sum() / bitsPerGeneration, hashes);
+        }
+        return 1.0 - none;
+    }
+
+    /** Heap used by the bit sets. */
+    public long memoryBytes() {
+        return (long) generations.length * bitsPerGeneration / 8;
+    }
+
+    private synchronized Generation rotate(Generation seen) {
+        Generation g = generations[current];
+        if (g != seen) return g; // another thread rotated already
+        int next = (current + 1) % generations.length;
+        Generation fresh = new Generation(bitsPerGeneration / 64, clock.millis());
+        generations[next] = fresh;
+        current = next;
+        return fresh;
+    }
+
+    /** MurmurHash3 fmix64: UUIDv7 halves carry timestamps and counters, not uniform bits. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Generation {
+        final AtomicLongArray words;
+        final LongAdder setBits = new LongAdder();
+        final LongAdder insertions = new LongAdder();
+        final long startedAt;
+
+        Generation(int words, long startedAt) {
+            this.words = new AtomicLongArray(words);
+            this.startedAt = startedAt;
+        }
+
+        boolean contains(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitsPerGeneration);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitsPerGeneration);
+                long mask = 1L << bit;
+                if ((words.get(bit >>> 6) & mask) == 0 && (words.getAndUpdate(bit >>> 6, w -> w | mask) & mask) == 0) {
+                    setBits.increment();
+                }
+            }
+            insertions.increment();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.dimitryivaniuta.gateway.common.id;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUID (RFC 9562 version 7) generator for eventId, leadId and traceId.
+ * Layout: 48-bit unix millis | ver=7 | 12-bit sequence | var=10 | 62 random bits.
+ * - Ids are monotonic per JVM: within one millisecond the 12-bit sequence is incremented,
+ *   so consecutive ids sort in creation order and land on the right-most B-tree page at the sink.
+ * - Lock-free: a single CAS on the (millis, sequence) pair; randomness comes from ThreadLocalRandom
+ *   instead of the shared SecureRandom behind UUID.randomUUID().
+ * Ids are unique, not unguessable; do not use them as secrets.
+ */
+public final class UuidV7 {
+
+    private UuidV7() { /* no instances */ }
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_62_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** (unix millis << 12) | sequence of the last id handed out. */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    /** Next time-ordered id. */
+    public static UUID next() {
+        final long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = LAST.get();
+            // Same millisecond (or clock stepped back): bump the sequence; an overflow borrows the next millisecond
+            next = now > prev ? now : prev + 1;
+        } while (!LAST.compareAndSet(prev, next));
+
+        long msb = (next >>> SEQUENCE_BITS) << 16 | VERSION_7 | (next & SEQUENCE_MASK);
+        long lsb = ThreadLocalRandom.current().nextLong() & RANDOM_62_MASK | VARIANT_RFC;
+        return new UUID(msb, lsb);
+    }
+
+    /** Next id as its canonical 36-char string (e.g., for headers and generated leadIds). */
+    public static String nextString() {
+        return next().toString();
+    }
+
+    /** Creation time embedded in a version 7 id. */
+    public static Instant timestamp(UUID id) {
+        if (id.version() != 7) {
+            throw new IllegalArgumentException("not a version 7 UUID: " + id);
+        }
+        return Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongPredicate;
+
+/**
+ * Where every listener mode sends a record it gave up on: deadLetterRecoverer (each service's KafkaConsumerConfig)
+ * publishes it to the next retry tier (RetryTiers, consumed by a RetryTierListener) or, after the last tier and
+ * for non-retryable failures, to the DLT. Counted in ConsumerMetrics (outcome=retry|dead_letter) under the
+ * leads.events partition the record came from.
+ * Throws if publishing failed: the record must then not be acknowledged.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FailedRecordRecoverer implements ConsumerRecordRecoverer {
+
+    private final DeadLetterPublishingRecoverer publisher;
+    private final RetryTiers tiers;
+    private final ConsumerMetrics metrics;
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception ex) {
+        publisher.accept(record, ex);
+        ConsumerMetrics.Partition meters = metrics.partition(originPartition(tiers, record));
+        if (nextTier(tiers, record, ex) > 0) {
+            meters.retried();
+        } else {
+            meters.deadLettered();
+        }
+    }
+
+    /**
+     * As {@link #accept}, retried until published (transient backoff), as acknowledging an unsent record would lose
+     * it; for the listeners that acknowledge on their own threads.
+     * @param sleep waits the given milliseconds; false if interrupted (shutdown): the publish failure is thrown
+     */
+    public void acceptUntilSent(ConsumerRecord<?, ?> record, Exception cause, LongPredicate sleep) {
+        BackOffExecution backOffs = null;
+        while (true) {
+            try {
+                accept(record, cause);
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Cannot publish topic={} partition={} offset={} to a retry tier or the DLT, retrying",
+                        record.topic(), record.partition(), record.offset(), ex);
+                if (backOffs == null) backOffs = RetryBackOff.TRANSIENT.start();
+                if (!sleep.test(backOffs.nextBackOff())) throw ex;
+            }
+        }
+    }
+
+    /** Retry tier a failed record goes to; 0 for the DLT (last tier failed, or not worth retrying). */
+    public static int nextTier(RetryTiers tiers, ConsumerRecord<?, ?> record, Throwable ex) {
+        return isRetryable(ex) ? tiers.next(record.topic()) : 0;
+    }
+
+    /** Partition of leads.events a record came from: its own, or the first hop's for a retry tier record. */
+    public static int originPartition(RetryTiers tiers, ConsumerRecord<?, ?> record) {
+        if (tiers.tierOf(record.topic()) == 0) return record.partition();
+        Header header = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION);
+        return header != null && header.value() != null && header.value().length == Integer.BYTES
+                ? ByteBuffer.wrap(header.value()).getInt()
+                : record.partition();
+    }
+
+    /** The exceptions retrying cannot fix (bad payloads): straight to the DLT. */
+    public static boolean isRetryable(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof DeserializationException || t instanceof ConversionException
+                    || t instanceof IllegalArgumentException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Database unavailable (connection, lock timeouts): every record would fail alike, so nothing is moved aside. */
+    public static boolean isTransient(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -19,4 +19,16 @@ public final class Headers {
 
     /** Logical event type (e.g., CREATED/UPDATED/QUALIFIED/REJECTED). */
     public static final String TYPE = "x-event-type";
+
+    /**
+     * Wire format of the record value (see LeadEventFormat): "binary" for LeadEventBinaryCodec.
+     * Absent header means JSON, so producers and consumers can roll the binary format out independently.
+     */
+    public static final String FORMAT = "x-event-format";
+
+    /** Retry tier a republished record is in (decimal string, 1 = first tier); see RetryTiers. */
+    public static final String RETRY_ATTEMPT = "x-retry-attempt";
+
+    /** Epoch millis (decimal string) before which a record in a retry tier must not be processed. */
+    public static final String RETRY_DUE_AT = "x-retry-due-at";
 }
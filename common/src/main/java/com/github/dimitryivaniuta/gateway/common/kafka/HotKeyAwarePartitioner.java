@@ -0,0 +1,89 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Partitioner for leads.events that tracks key frequency (HotKeyTracker) and can spread hot leadIds.
+ * - Default: murmur2(key) % partitions, i.e. exactly the partition Kafka's built-in partitioner picks.
+ * - Tenants listed in {@link #SALTED_TENANTS_CONFIG}: murmur2(tenantId + NUL + key) % partitions.
+ *   A leadId that many CRM integrations reuse is then spread across partitions by tenant, while every
+ *   (tenant, lead) still maps to ONE partition, so per-lead ordering is kept.
+ * Salting is per tenant and unconditional on purpose: switching a key to a salted partition only once it
+ * turns hot would move it mid-stream and reorder its events. A key that is hot within a single tenant
+ * cannot be spread without breaking its ordering; the tracker still reports it.
+ *
+ * Configuration (producer config map):
+ * - {@link #TRACKER_CONFIG}: HotKeyTracker instance to record into (optional; a private one otherwise)
+ * - {@link #SALTED_TENANTS_CONFIG}: comma-separated tenant ids, or a Collection of them
+ */
+public class HotKeyAwarePartitioner implements Partitioner {
+
+    public static final String TRACKER_CONFIG = "leads.partitioner.hot-key.tracker";
+    public static final String SALTED_TENANTS_CONFIG = "leads.partitioner.salted.tenants";
+
+    private HotKeyTracker tracker = new HotKeyTracker(128, 100_000);
+    private Set<String> saltedTenants = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        if (configs.get(TRACKER_CONFIG) instanceof HotKeyTracker t) {
+            tracker = t;
+        }
+        Object tenants = configs.get(SALTED_TENANTS_CONFIG);
+        if (tenants instanceof String s) {
+            saltedTenants = Arrays.stream(s.split(",")).map(String::trim).filter(t -> !t.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        } else if (tenants instanceof Collection<?> c) {
+            saltedTenants = c.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        if (keyBytes == null) {
+            int p = ThreadLocalRandom.current().nextInt(numPartitions);
+            tracker.record(null, p, numPartitions);
+            return p;
+        }
+
+        String tenantId = value instanceof LeadEvent e ? e.tenantId() : null;
+        int p = tenantId != null && saltedTenants.contains(tenantId)
+                ? saltedPartition(tenantId, keyBytes, numPartitions)
+                : defaultPartition(keyBytes, numPartitions);
+        tracker.record(String.valueOf(key), p, numPartitions);
+        return p;
+    }
+
+    /** Same as Kafka's BuiltInPartitioner.partitionForKey. */
+    public static int defaultPartition(byte[] keyBytes, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+
+    /** Partition of the tenant-salted sub-key: deterministic per (tenant, key). */
+    public static int saltedPartition(String tenantId, byte[] keyBytes, int numPartitions) {
+        byte[] tenant = tenantId.getBytes(StandardCharsets.UTF_8);
+        byte[] salted = new byte[tenant.length + 1 + keyBytes.length];
+        System.arraycopy(tenant, 0, salted, 0, tenant.length);
+        System.arraycopy(keyBytes, 0, salted, tenant.length + 1, keyBytes.length);
+        return Utils.toPositive(Utils.murmur2(salted)) % numPartitions;
+    }
+
+    public HotKeyTracker tracker() {
+        return tracker;
+    }
+
+    @Override
+    public void close() { }
+}
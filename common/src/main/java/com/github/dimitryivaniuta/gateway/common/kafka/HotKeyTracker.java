@@ -0,0 +1,323 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Streaming key-frequency and partition-load statistics for HotKeyAwarePartitioner.
+ * - Heavy hitters: Space-Saving sketch (Metwally et al.) with a fixed number of counters; any key whose
+ *   share of traffic exceeds 1/capacity is guaranteed to be tracked, with count overestimated by at most
+ *   its recorded error. Counters sit in a stream-summary (buckets of equal count in ascending order), so an
+ *   increment or the replacement of the minimum is O(1).
+ * - Partition load: records per partition.
+ * - Both decay by half every decay-every records, so the numbers follow the current traffic mix.
+ * Thread-safe, and {@link #record} never waits: a caller that finds the sketch busy queues its record for the
+ * lock holder, who applies it before releasing (past MAX_PENDING queued records, samples are dropped and only
+ * counted). Readers (topKeys, partitionShares, skew) take the lock.
+ */
+public final class HotKeyTracker {
+
+    /** A tracked key with its estimated count (upper bound) and max overestimation. */
+    public record HotKey(String key, long count, long error, double share) { }
+
+    /** The numbers of one decay window, taken just before the halving. */
+    public record Snapshot(List<HotKey> topKeys, double skew) { }
+
+    private record Sample(String key, int partition, int numPartitions) { }
+
+    /** Records queued while the sketch is busy, at most; beyond that they are dropped (counted in dropped()). */
+    private static final int MAX_PENDING = 4096;
+
+    private final int capacity;
+    private final long decayEvery;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<Sample> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Consumer<Snapshot> onDecay = s -> { };
+
+    // Guarded by lock
+    private final Map<String, Counter> counters;
+    private Bucket min;
+    private Bucket max;
+    private long[] partitionCounts = new long[0];
+    private long total;
+    private long sinceDecay;
+
+    /**
+     * @param capacity   number of sketch counters (keys with share > 1/capacity are always found)
+     * @param decayEvery records between halvings of all counts
+     */
+    public HotKeyTracker(int capacity, long decayEvery) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        if (decayEvery < 1) throw new IllegalArgumentException("decayEvery must be >= 1");
+        this.capacity = capacity;
+        this.decayEvery = decayEvery;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /** Called (outside the lock, on the thread that decayed) after each decay, e.g. to log the hot keys. */
+    public void onDecay(Consumer<Snapshot> listener) {
+        this.onDecay = listener;
+    }
+
+    /** Records one message with the given key, routed to {@code partition} of {@code numPartitions}. */
+    public void record(String key, int partition, int numPartitions) {
+        if (!lock.tryLock()) {
+            if (pendingCount.incrementAndGet() <= MAX_PENDING) {
+                pending.add(new Sample(key, partition, numPartitions));
+            } else {
+                pendingCount.decrementAndGet();
+                dropped.increment();
+            }
+            return; // applied by the next caller that gets the lock
+        }
+        List<Snapshot> decays;
+        try {
+            decays = apply(key, partition, numPartitions, null);
+            decays = drain(decays);
+        } finally {
+            lock.unlock();
+        }
+        notifyDecays(decays);
+    }
+
+    /** Records dropped because too many were queued behind a busy sketch. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /** Up to {@code n} heaviest keys, heaviest first. */
+    public List<HotKey> topKeys(int n) {
+        List<Snapshot> decays;
+        List<HotKey> top;
+        lock.lock();
+        try {
+            decays = drain(null);
+            top = top(n);
+        } finally {
+            lock.unlock();
+        }
+        notifyDecays(decays);
+        return top;
+    }
+
+    /** Share of (decayed) traffic per partition. */
+    public double[] partitionShares() {
+        long[] counts;
+        lock.lock();
+        try {
+            counts = partitionCounts.clone();
+        } finally {
+            lock.unlock();
+        }
+        double[] shares = new double[counts.length];
+        long sum = Arrays.stream(counts).sum();
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = sum == 0 ? 0 : (double) counts[i] / sum;
+        }
+        return shares;
+    }
+
+    /** Busiest partition's load relative to an even spread: 1.0 = perfectly even, N = all on one of N partitions. */
+    public double skew() {
+        lock.lock();
+        try {
+            return skewLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double skewLocked() {
+        long sum = 0, most = 0;
+        for (long c : partitionCounts) {
+            sum += c;
+            most = Math.max(most, c);
+        }
+        return sum == 0 ? 1.0 : (double) most * partitionCounts.length / sum;
+    }
+
+    private void notifyDecays(List<Snapshot> decays) {
+        if (decays != null) decays.forEach(onDecay);
+    }
+
+    /**
+     * Applies the queued records, at most MAX_PENDING (callers keep queueing meanwhile: bounds one caller's work);
+     * returns {@code decays} plus the snapshots of the decays they caused.
+     */
+    private List<Snapshot> drain(List<Snapshot> decays) {
+        Sample s;
+        for (int i = 0; i < MAX_PENDING && (s = pending.poll()) != null; i++) {
+            pendingCount.decrementAndGet();
+            decays = apply(s.key(), s.partition(), s.numPartitions(), decays);
+        }
+        return decays;
+    }
+
+    private List<Snapshot> apply(String key, int partition, int numPartitions, List<Snapshot> decays) {
+        if (partitionCounts.length < numPartitions) {
+            partitionCounts = Arrays.copyOf(partitionCounts, numPartitions);
+        }
+        partitionCounts[partition]++;
+        total++;
+        if (key != null) {
+            offer(key);
+        }
+        if (++sinceDecay >= decayEvery) {
+            if (decays == null) decays = new ArrayList<>(1);
+            decays.add(new Snapshot(top(capacity), skewLocked()));
+            decay();
+        }
+        return decays;
+    }
+
+    private void offer(String key) {
+        Counter c = counters.get(key);
+        if (c == null && counters.size() < capacity) {
+            c = new Counter(key, 0);
+            counters.put(key, c);
+            attachToMin(c, 1);
+            return;
+        }
+        if (c == null) {
+            // Replace a minimum counter: the newcomer inherits its count as error bound
+            c = min.head;
+            counters.remove(c.key);
+            c.key = key;
+            c.error = min.count;
+            counters.put(key, c);
+        }
+        increment(c);
+    }
+
+    /** Puts a detached counter into the bucket of {@code count}, which is at most the minimum count. */
+    private void attachToMin(Counter c, long count) {
+        if (min == null || min.count != count) {
+            Bucket b = new Bucket(count);
+            b.next = min;
+            if (min != null) min.prev = b;
+            min = b;
+            if (max == null) max = b;
+        }
+        min.add(c);
+    }
+
+    /** Moves the counter to the bucket of its count + 1, creating it right after its bucket if needed. */
+    private void increment(Counter c) {
+        Bucket from = c.bucket;
+        long count = from.count + 1;
+        if (from.head == c && c.next == null && (from.next == null || from.next.count != count)) {
+            from.count = count; // alone in its bucket: the bucket moves up instead
+            return;
+        }
+        Bucket to = from.next;
+        if (to == null || to.count != count) {
+            to = new Bucket(count);
+            to.prev = from;
+            to.next = from.next;
+            if (from.next != null) from.next.prev = to; else max = to;
+            from.next = to;
+        }
+        from.remove(c);
+        if (from.head == null) unlink(from);
+        to.add(c);
+    }
+
+    private void unlink(Bucket b) {
+        if (b.prev != null) b.prev.next = b.next; else min = b.next;
+        if (b.next != null) b.next.prev = b.prev; else max = b.prev;
+    }
+
+    /** Halves every count; buckets that meet are merged (halving keeps their order), zero counts are dropped. */
+    private void decay() {
+        sinceDecay = 0;
+        total = (total + 1) / 2;
+        for (int i = 0; i < partitionCounts.length; i++) {
+            partitionCounts[i] = (partitionCounts[i] + 1) / 2;
+        }
+        Bucket b = min;
+        while (b != null) {
+            Bucket next = b.next;
+            b.count /= 2;
+            for (Counter c = b.head; c != null; c = c.next) {
+                c.error /= 2;
+            }
+            if (b.count == 0) {
+                for (Counter c = b.head; c != null; c = c.next) {
+                    counters.remove(c.key);
+                }
+                unlink(b);
+            } else if (b.prev != null && b.prev.count == b.count) {
+                Bucket into = b.prev;
+                for (Counter c = b.head; c != null; ) {
+                    Counter following = c.next;
+                    into.add(c);
+                    c = following;
+                }
+                unlink(b);
+            }
+            b = next;
+        }
+    }
+
+    /** Heaviest first: the buckets from the maximum down. */
+    private List<HotKey> top(int n) {
+        List<HotKey> top = new ArrayList<>(Math.min(n, counters.size()));
+        for (Bucket b = max; b != null && top.size() < n; b = b.prev) {
+            for (Counter c = b.head; c != null && top.size() < n; c = c.next) {
+                top.add(new HotKey(c.key, b.count, c.error, total == 0 ? 0 : (double) b.count / total));
+            }
+        }
+        return top;
+    }
+
+    /** Counters of one count, in a doubly-linked list of buckets ordered by count. */
+    private static final class Bucket {
+        long count;
+        Bucket prev;
+        Bucket next;
+        Counter head;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+
+        void add(Counter c) {
+            c.bucket = this;
+            c.prev = null;
+            c.next = head;
+            if (head != null) head.prev = c;
+            head = c;
+        }
+
+        void remove(Counter c) {
+            if (c.prev != null) c.prev.next = c.next; else head = c.next;
+            if (c.next != null) c.next.prev = c.prev;
+            c.prev = null;
+            c.next = null;
+        }
+    }
+
+    private static final class Counter {
+        String key;
+        long error;
+        Bucket bucket;
+        Counter prev;
+        Counter next;
+
+        Counter(String key, long error) {
+            this.key = key;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.BackOffExecution;
+
+/**
+ * Parallel consumption of leads.events (app.kafka.listener.mode=parallel): records of one partition are processed
+ * by many virtual threads (KeyOrderedExecutor), so throughput is no longer capped by partitions x concurrency
+ * while each thread waits on Postgres. Subclasses declare the @KafkaListener calling {@link #onRecord} and the
+ * sink call ({@link #write}).
+ * - per key (lead id) records run in offset order; different keys run in parallel
+ * - at most the executor's permits records are in the database at once; a record waiting for a retry gives its
+ *   permit back meanwhile
+ * - each record is acknowledged when done; with asyncAcks the container commits, per partition, only up to
+ *   the lowest offset below which everything is acknowledged, and pauses fetching until the poll's records
+ *   are all acknowledged (so at most max.poll.records are in flight)
+ * - failures are handled here (the container's error handler only sees the listener thread), in the key's
+ *   order, with the error handler's in-place retries (RetryBackOff); then the record goes to the next retry
+ *   tier or the DLT (FailedRecordRecoverer) and is acknowledged
+ */
+@Slf4j
+public abstract class KeyOrderedLeadListener {
+
+    private final KeyOrderedExecutor executor;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
+    private final FailedRecordRecoverer failed;
+    private final RetryBackOff retryBackOff;
+
+    protected KeyOrderedLeadListener(KeyOrderedExecutor executor, RecentEventFilter recent, ConsumerMetrics metrics,
+                                     FailedRecordRecoverer failed, RetryBackOff retryBackOff) {
+        this.executor = executor;
+        this.recent = recent;
+        this.metrics = metrics;
+        this.failed = failed;
+        this.retryBackOff = retryBackOff;
+    }
+
+    /** Writes the event to the service's sink; true if it was new there. Called from the executor's threads. */
+    protected abstract boolean write(LeadEvent event);
+
+    /** Body of the subclass's @KafkaListener method. */
+    protected void onRecord(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        if (rec.value() == null) {
+            log.warn("Received null LeadEvent at topic={} partition={} offset={}", rec.topic(), rec.partition(), rec.offset());
+            ack.acknowledge();
+            return;
+        }
+        executor.submit(rec.key(), () -> process(rec, ack));
+    }
+
+    private void process(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        LeadEvent event = rec.value();
+        RetryBackOff.Execution backOffs = retryBackOff.start();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                boolean inserted = false;
+                if (!recent.isStored(rec.partition(), event)) {
+                    long start = System.nanoTime();
+                    inserted = write(event);
+                    metrics.recordWrite(start, 1);
+                }
+                recent.markStored(rec.partition(), event);
+                metrics.partition(rec.partition()).processed(event, inserted);
+                if (log.isDebugEnabled() && metrics.sampleLog()) {
+                    log.debug("{} lead eventId={} key={} partition={} offset={}", inserted ? "Written" : "Duplicate",
+                            event.eventId(), rec.key(), rec.partition(), rec.offset());
+                }
+                break;
+            } catch (RuntimeException ex) {
+                long wait = backOffs.nextBackOff(ex);
+                if (wait == BackOffExecution.STOP) {
+                    failed.acceptUntilSent(rec, ex, executor::pause); // throws only when interrupted: left unacknowledged
+                    break;
+                }
+                log.warn("Write of eventId={} failed (attempt {}), retrying in {} ms: {}",
+                        event.eventId(), attempt, wait, ex.toString());
+                if (!executor.pause(wait)) return; // shutting down: left unacknowledged, redelivered later
+            }
+        }
+        ack.acknowledge();
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventBinaryCodec;
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventJsonCodec;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Value deserializer that picks the LeadEvent wire format from the {@code x-event-format} header.
+ * Records without the header are JSON, so consumers accept both formats during a rollout regardless of
+ * which producers have switched. Both formats are decoded by hand-written codecs (no ObjectMapper).
+ * Has a no-arg constructor, so it can also be configured by class name.
+ */
+public class LeadEventDeserializer implements Deserializer<LeadEvent> {
+
+    @Override
+    public LeadEvent deserialize(String topic, byte[] data) {
+        if (data == null) return null;
+        try {
+            return LeadEventJsonCodec.decode(data);
+        } catch (RuntimeException ex) {
+            throw new SerializationException("Cannot decode LeadEvent from topic " + topic, ex);
+        }
+    }
+
+    @Override
+    public LeadEvent deserialize(String topic, org.apache.kafka.common.header.Headers headers, byte[] data) {
+        if (data == null) return null;
+
+        Header format = headers.lastHeader(Headers.FORMAT);
+        try {
+            // Any failure is a bad record (e.g. NullPointerException: a required field is missing,
+            // DateTimeException: unparseable occurredAt), never a reason to stop the consumer
+            return switch (format == null ? LeadEventFormat.JSON : LeadEventFormat.fromHeader(format.value())) {
+                case JSON -> LeadEventJsonCodec.decode(data);
+                case BINARY -> LeadEventBinaryCodec.decode(data);
+            };
+        } catch (RuntimeException ex) {
+            throw new SerializationException("Cannot decode LeadEvent from topic " + topic, ex);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Wire formats for LeadEvent record values, announced in the {@link Headers#FORMAT} header.
+ * JSON is the default and is written without a header (legacy records have none either).
+ */
+public enum LeadEventFormat {
+
+    /** Jackson JSON (field names in every record). */
+    JSON("json"),
+
+    /** Schema-based binary encoding (LeadEventBinaryCodec); the schema version is the first value byte. */
+    BINARY("binary");
+
+    private final String headerValue;
+    private final byte[] headerBytes;
+
+    LeadEventFormat(String headerValue) {
+        this.headerValue = headerValue;
+        this.headerBytes = headerValue.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String headerValue() {
+        return headerValue;
+    }
+
+    /** Header value bytes; shared instance, do not modify. */
+    byte[] headerBytes() {
+        return headerBytes;
+    }
+
+    /** Resolves the format of a record from its header value; missing header means JSON. */
+    public static LeadEventFormat fromHeader(byte[] value) {
+        if (value == null) return JSON;
+        for (LeadEventFormat f : values()) {
+            if (Arrays.equals(f.headerBytes, value)) return f;
+        }
+        throw new IllegalArgumentException("Unknown " + Headers.FORMAT + ": " + new String(value, StandardCharsets.US_ASCII));
+    }
+
+    /** Parses a configuration value (case-insensitive name or header value); blank means JSON. */
+    public static LeadEventFormat fromConfig(String value) {
+        if (value == null || value.isBlank()) return JSON;
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        for (LeadEventFormat f : values()) {
+            if (f.headerValue.equals(v) || f.name().toLowerCase(Locale.ROOT).equals(v)) return f;
+        }
+        throw new IllegalArgumentException("Unknown lead event format: " + value);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventBinaryCodec;
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventJsonCodec;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Value serializer that writes LeadEvent in the configured {@link LeadEventFormat}.
+ * - BINARY: LeadEventBinaryCodec + {@code x-event-format: binary} header.
+ * - JSON: LeadEventJsonCodec (streaming, same bytes as Spring's JsonSerializer), without a format header.
+ * - Any non-LeadEvent value (e.g., raw bytes of an undecodable record sent to the DLT): the fallback serializer.
+ * A stale format header (e.g., copied from a source record when republishing to the DLT) is always
+ * replaced, so the header describes the bytes actually written.
+ */
+public class LeadEventSerializer implements Serializer<Object> {
+
+    private final LeadEventFormat format;
+    private final Serializer<Object> fallback;
+
+    /**
+     * @param format   format for LeadEvent values
+     * @param fallback serializer for non-LeadEvent values (e.g., Spring's JsonSerializer)
+     */
+    public LeadEventSerializer(LeadEventFormat format, Serializer<Object> fallback) {
+        this.format = Objects.requireNonNull(format, "format is required");
+        this.fallback = Objects.requireNonNull(fallback, "fallback serializer is required");
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        fallback.configure(configs, isKey);
+    }
+
+    /** No headers to mark the format with, so LeadEvent is always written as JSON here. */
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof LeadEvent event) {
+            return LeadEventJsonCodec.encode(event);
+        }
+        return fallback.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, org.apache.kafka.common.header.Headers headers, Object data) {
+        headers.remove(Headers.FORMAT);
+        if (data instanceof LeadEvent event) {
+            if (format == LeadEventFormat.BINARY) {
+                headers.add(Headers.FORMAT, LeadEventFormat.BINARY.headerBytes());
+                return LeadEventBinaryCodec.encode(event);
+            }
+            return LeadEventJsonCodec.encode(event);
+        }
+        return fallback.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
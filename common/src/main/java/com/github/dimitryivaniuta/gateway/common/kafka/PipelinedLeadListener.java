@@ -0,0 +1,256 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.AimdBatchSizer;
+import com.github.dimitryivaniuta.gateway.common.concurrent.BatchPipeline;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Pipelined consumption of leads.events (app.kafka.listener.mode=pipeline): the poll threads hand records to a
+ * bounded BatchPipeline and go back to fetching, while one writer thread writes them in AimdBatchSizer-sized
+ * batches ({@link #write}, the service's sink call) and then acknowledges the last record of each partition.
+ * Subclasses declare the @KafkaListener (id = the listener id given here) calling {@link #onRecord}.
+ * - the container is paused while the buffer is full, and the buffer is drained before revoked partitions commit
+ * - a failed batch is bisected down to the failing record, which is retried (RetryBackOff) and moved aside
+ *   (FailedRecordRecoverer) like in the other modes; transient failures retry the whole batch
+ * - a failed dedupe probe (RecentEventFilter) only costs the skip: the batch is written whole, writes are idempotent
+ * - if the writer fails anyway, BatchPipeline stops for good and so does the container, so that its partitions
+ *   are reassigned instead of staying paused behind a dead writer
+ */
+@Slf4j
+public abstract class PipelinedLeadListener implements ConsumerAwareRebalanceListener, DisposableBean {
+
+    private record Item(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) { }
+
+    /** Unwinds the writer when it is interrupted (shutdown): the rest of the batch stays unacknowledged. */
+    private static final class Stopped extends RuntimeException {
+        Stopped() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** Buffer settings (app.kafka.pipeline.*) and the poll size they are checked against. */
+    public record Settings(int capacity, int maxBatch, long drainTimeoutMs, int maxPollRecords, int concurrency) { }
+
+    private final String listenerId;
+    private final KafkaListenerEndpointRegistry registry;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
+    private final FailedRecordRecoverer failed;
+    private final RetryBackOff retryBackOff;
+    private final long drainTimeoutMs;
+    private final BatchPipeline<Item> pipeline;
+
+    /**
+     * @param adaptive batch sizer, or null for batches fixed at maxBatch
+     */
+    protected PipelinedLeadListener(String listenerId, KafkaListenerEndpointRegistry registry, RecentEventFilter recent,
+                                    ConsumerMetrics metrics, FailedRecordRecoverer failed, RetryBackOff retryBackOff,
+                                    AimdBatchSizer adaptive, Settings settings) {
+        int headroom = settings.maxPollRecords() * settings.concurrency();
+        if (settings.capacity() < 2 * headroom) {
+            throw new IllegalArgumentException("app.kafka.pipeline.capacity must be >= 2 x max.poll.records x concurrency ("
+                    + 2 * headroom + ")");
+        }
+        this.listenerId = listenerId;
+        this.registry = registry;
+        this.recent = recent;
+        this.metrics = metrics;
+        this.failed = failed;
+        this.retryBackOff = retryBackOff;
+        this.drainTimeoutMs = settings.drainTimeoutMs();
+        int capacity = settings.capacity();
+        int pauseAt = capacity - headroom;
+        BatchPipeline.Backpressure backpressure = new BatchPipeline.Backpressure() {
+                    @Override
+                    public void pause() {
+                        log.debug("Pipeline buffer reached {} records, pausing fetches", pauseAt);
+                        container().pause();
+                    }
+
+                    @Override
+                    public void resume() {
+                        log.debug("Pipeline buffer drained to {} records, resuming fetches", pauseAt / 2);
+                        container().resume();
+                    }
+                };
+        String writer = listenerId + "-writer";
+        this.pipeline = adaptive == null
+                ? new BatchPipeline<>(writer, capacity, settings.maxBatch(), pauseAt, pauseAt / 2, this::onBatch, backpressure)
+                : new BatchPipeline<>(writer, capacity, adaptive, pauseAt, pauseAt / 2, this::onBatch, backpressure);
+        log.info("Pipelined {}: buffer {} records, pausing at {}, batches of up to {}{}", listenerId,
+                capacity, pauseAt, settings.maxBatch(), adaptive == null ? "" : " (adaptive, starting at " + adaptive.batchSize() + ")");
+    }
+
+    /**
+     * Writes the events, in order, in ONE transaction; one result per event, true if it was new in the sink.
+     * @param lastOffsets highest offset per partition of {@code topic} among the events' records
+     */
+    protected abstract List<Boolean> write(String topic, List<LeadEvent> events, Map<Integer, Long> lastOffsets);
+
+    @Override
+    public void destroy() {
+        pipeline.close();
+    }
+
+    private MessageListenerContainer container() {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null) throw new IllegalStateException("No listener container " + listenerId);
+        return container;
+    }
+
+    /** Body of the subclass's @KafkaListener method. */
+    protected void onRecord(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        // Everything goes through the buffer, null values too: acknowledging here could commit past buffered records
+        try {
+            pipeline.put(new Item(rec, ack));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted handing offset " + rec.offset() + " to the pipeline", ex);
+        }
+    }
+
+    /** Waits for the writer before the container commits revoked partitions for the last time. */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        try {
+            if (!pipeline.awaitIdle(drainTimeoutMs)) {
+                log.warn("Pipeline not drained within {} ms on revocation of {}: unwritten records will be redelivered",
+                        drainTimeoutMs, partitions);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Writer thread: one batch from the buffer; stops the container when the batch fails past the retries. */
+    private void onBatch(List<Item> batch) {
+        try {
+            writeBatch(batch);
+        } catch (RuntimeException | Error ex) {
+            log.error("Pipeline writer of {} failed, stopping the container: the unacknowledged records will be "
+                    + "redelivered to the partitions' next owner", listenerId, ex);
+            container().stop(() -> log.warn("Listener {} stopped after a pipeline failure", listenerId));
+            throw ex;
+        }
+    }
+
+    private void writeBatch(List<Item> batch) {
+        List<Item> items = new ArrayList<>(batch.size());
+        Map<Integer, List<LeadEvent>> byPartition = new HashMap<>();
+        for (Item item : batch) {
+            ConsumerRecord<String, LeadEvent> rec = item.rec();
+            if (rec.value() == null) {
+                log.warn("Received null LeadEvent at topic={} partition={} offset={}", rec.topic(), rec.partition(), rec.offset());
+                continue;
+            }
+            items.add(item);
+            byPartition.computeIfAbsent(rec.partition(), p -> new ArrayList<>()).add(rec.value());
+        }
+        Set<UUID> stored = new HashSet<>();
+        try {
+            byPartition.forEach((partition, evs) -> stored.addAll(recent.storedAmong(partition, evs)));
+        } catch (RuntimeException ex) {
+            log.warn("Dedupe probe of {} events failed, writing them all: {}", items.size(), ex.toString());
+            stored.clear();
+        }
+        if (!stored.isEmpty()) {
+            items.removeIf(item -> {
+                boolean skip = stored.contains(item.rec().value().eventId());
+                if (skip) metrics.partition(item.rec().partition()).processed(item.rec().value(), false);
+                return skip;
+            });
+        }
+
+        int inserted;
+        try {
+            inserted = writeRange(items, 0, items.size());
+        } catch (Stopped ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        byPartition.forEach(recent::markStored);
+
+        // Per partition, acknowledging the last record commits everything before it
+        Map<Integer, Acknowledgment> last = new LinkedHashMap<>();
+        for (Item item : batch) {
+            last.put(item.rec().partition(), item.ack());
+        }
+        last.values().forEach(Acknowledgment::acknowledge);
+        log.debug("Pipeline wrote batch of {} lead events: {} new, {} skipped by the dedupe filter",
+                batch.size(), inserted, stored.size());
+    }
+
+    /** Writes items[from, to) in one transaction, bisecting on failure; returns the number of new rows. */
+    private int writeRange(List<Item> items, int from, int to) {
+        if (from == to) return 0;
+        RetryBackOff.Execution backOffs = retryBackOff.start();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<LeadEvent> events = new ArrayList<>(to - from);
+                Map<Integer, Long> lastOffsets = new HashMap<>();
+                for (Item item : items.subList(from, to)) {
+                    events.add(item.rec().value());
+                    lastOffsets.merge(item.rec().partition(), item.rec().offset(), Math::max);
+                }
+                long start = System.nanoTime();
+                List<Boolean> results = write(items.get(from).rec().topic(), events, lastOffsets);
+                metrics.recordWrite(start, events.size());
+                int inserted = 0;
+                for (int i = 0; i < results.size(); i++) {
+                    ConsumerRecord<String, LeadEvent> rec = items.get(from + i).rec();
+                    metrics.partition(rec.partition()).processed(rec.value(), results.get(i));
+                    if (results.get(i)) inserted++;
+                }
+                return inserted;
+            } catch (Stopped ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                boolean single = to - from == 1;
+                // A batch is retried as a whole only for transient failures; otherwise the failing record is isolated
+                long wait = single || FailedRecordRecoverer.isTransient(ex) ? backOffs.nextBackOff(ex) : BackOffExecution.STOP;
+                if (wait == BackOffExecution.STOP && !single) {
+                    int mid = (from + to) >>> 1;
+                    log.debug("Batch write of {} events failed, bisecting: {}", to - from, ex.toString());
+                    return writeRange(items, from, mid) + writeRange(items, mid, to);
+                }
+                if (wait == BackOffExecution.STOP) {
+                    failed.acceptUntilSent(items.get(from).rec(), ex, PipelinedLeadListener::sleep);
+                    return 0;
+                }
+                log.warn("Write of {} events failed (attempt {}), retrying in {} ms: {}", to - from, attempt, wait, ex.toString());
+                sleep(wait);
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            throw new Stopped();
+        }
+    }
+}
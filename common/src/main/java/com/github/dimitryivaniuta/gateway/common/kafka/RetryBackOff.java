@@ -0,0 +1,71 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * In-place retries of a failed record before FailedRecordRecoverer moves it aside, the same in every listener mode:
+ * - non-retryable failures (FailedRecordRecoverer#isRetryable): none, the record is moved aside at once
+ * - transient database failures (FailedRecordRecoverer#isTransient): exponential, 1 s doubling up to 10 s, until
+ *   the database is back; every record would fail alike, moving them aside would only drain the topic to the DLT
+ * - anything else: in-place-attempts retries, in-place-interval-ms apart
+ * The container's DefaultErrorHandler takes {@link #inPlace()} and {@link #forException}; listeners retrying on
+ * their own threads (parallel, pipeline) use {@link #start()}.
+ */
+public final class RetryBackOff {
+
+    /** Backoff of transient failures. */
+    static final BackOff TRANSIENT = transientBackOff();
+
+    private final BackOff inPlace;
+
+    public RetryBackOff(long inPlaceIntervalMs, long inPlaceAttempts) {
+        this.inPlace = new FixedBackOff(inPlaceIntervalMs, inPlaceAttempts);
+    }
+
+    /** Backoff of non-transient failures. */
+    public BackOff inPlace() {
+        return inPlace;
+    }
+
+    /** Backoff of a record failing with {@code ex} (retryable or not: the error handler checks that itself). */
+    public BackOff forException(Throwable ex) {
+        return FailedRecordRecoverer.isTransient(ex) ? TRANSIENT : inPlace;
+    }
+
+    private static BackOff transientBackOff() {
+        ExponentialBackOff backOff = new ExponentialBackOff(1_000L, 2.0);
+        backOff.setMaxInterval(10_000L);
+        return backOff;
+    }
+
+    /** Retries of one record (or batch), as the error handler does them. */
+    public Execution start() {
+        return new Execution();
+    }
+
+    /** Not thread-safe: one per record being retried. */
+    public final class Execution {
+
+        private BackOffExecution current;
+        private boolean currentTransient;
+
+        private Execution() { }
+
+        /**
+         * Wait before the next attempt after a failure with {@code ex}; BackOffExecution.STOP when the record is
+         * to be moved aside. The backoff restarts when the failure turns transient or stops being so.
+         */
+        public long nextBackOff(Throwable ex) {
+            if (!FailedRecordRecoverer.isRetryable(ex)) return BackOffExecution.STOP;
+            boolean isTransient = FailedRecordRecoverer.isTransient(ex);
+            if (current == null || isTransient != currentTransient) {
+                current = forException(ex).start();
+                currentTransient = isTransient;
+            }
+            return current.nextBackOff();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delayed consumer of a group's retry tiers (RetryTiers, app.kafka.retry.enabled): a record moved aside by
+ * FailedRecordRecoverer comes back here once its tier's delay passed and is written with {@link #write}, the
+ * service's own sink call. If it fails again, the error handler moves it on to the next tier or the DLT.
+ * - a record not due yet (x-retry-due-at): its partition is sought back to it and paused until it is due, so
+ *   waiting holds no thread and no other partition; the rest of that poll's records of the partition are
+ *   skipped (fetched again after the resume). One delay per tier topic, so the records behind it are due later.
+ * - subclasses declare the @KafkaListener (id = {@link #id()}, own group, MANUAL acks) calling {@link #onRecord}
+ * - metrics and RecentEventFilter see the record under the leads.events partition it came from
+ */
+@Slf4j
+public abstract class RetryTierListener implements ConsumerSeekAware, DisposableBean {
+
+    private final String id;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
+    private final RetryTiers tiers;
+    private final KafkaListenerEndpointRegistry registry;
+
+    /** Offset of the record each paused partition waits for (touched by the partition's consumer thread only). */
+    private final Map<TopicPartition, Long> waiting = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService resumer;
+
+    /**
+     * @param id listener id (also its group id) of the subclass's @KafkaListener, e.g. crm-fanout-retry
+     */
+    protected RetryTierListener(String id, RecentEventFilter recent, ConsumerMetrics metrics, RetryTiers tiers,
+                                KafkaListenerEndpointRegistry registry) {
+        this.id = id;
+        this.recent = recent;
+        this.metrics = metrics;
+        this.tiers = tiers;
+        this.registry = registry;
+        this.resumer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(id + "-resume").daemon().factory());
+    }
+
+    /** Writes the event to the service's sink; true if it was new there. Failures propagate to the error handler. */
+    protected abstract boolean write(LeadEvent event);
+
+    @Override
+    public void destroy() {
+        resumer.shutdownNow();
+    }
+
+    /** Listener id, for {@code @KafkaListener(id = ...)}. */
+    public String id() {
+        return id;
+    }
+
+    /** Topics of the listener. */
+    public List<String> topics() {
+        return tiers.topics();
+    }
+
+    /** Body of the subclass's @KafkaListener method. */
+    protected void onRecord(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack, Consumer<?, ?> consumer) {
+        TopicPartition tp = new TopicPartition(rec.topic(), rec.partition());
+        Long blocked = waiting.get(tp);
+        if (blocked != null) {
+            if (rec.offset() > blocked) return; // behind the record being waited for
+            waiting.remove(tp);
+        }
+
+        // Never longer than the tier's delay, whatever the header says (clock skew between instances)
+        long wait = Math.min(RetryTiers.dueAt(rec.headers()) - System.currentTimeMillis(),
+                tiers.delayMs(tiers.tierOf(rec.topic())));
+        if (wait > 0) {
+            waiting.put(tp, rec.offset());
+            consumer.seek(tp, rec.offset());
+            MessageListenerContainer container = registry.getListenerContainer(id);
+            container.pausePartition(tp);
+            resumer.schedule(() -> container.resumePartition(tp), wait, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        final LeadEvent event = rec.value();
+        if (event == null) {
+            log.warn("Received null LeadEvent at topic={} partition={} offset={}", rec.topic(), rec.partition(), rec.offset());
+            ack.acknowledge();
+            return;
+        }
+
+        // Failures propagate: the error handler retries in place, then moves the record to the next tier or the DLT
+        int partition = FailedRecordRecoverer.originPartition(tiers, rec);
+        boolean inserted = false;
+        if (!recent.isStored(partition, event)) {
+            long start = System.nanoTime();
+            inserted = write(event);
+            metrics.recordWrite(start, 1);
+        }
+        recent.markStored(partition, event);
+        metrics.partition(partition).processed(event, inserted);
+        ack.acknowledge();
+
+        if (log.isDebugEnabled() && metrics.sampleLog()) {
+            log.debug("{} lead eventId={} on retry attempt {} (partition={})", inserted ? "Written" : "Duplicate",
+                    event.eventId(), RetryTiers.attempt(rec.headers()), partition);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Fetching restarts from the committed offset
+        waiting.keySet().removeAll(assignments.keySet());
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        waiting.keySet().removeAll(partitions);
+    }
+}
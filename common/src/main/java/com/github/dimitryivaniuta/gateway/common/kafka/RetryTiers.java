@@ -0,0 +1,114 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking retry tiers of one consumer group: a record that failed on the main topic is republished to
+ * tier 1, one that failed in tier n to tier n + 1, and one that failed in the last tier goes to the DLT, so the
+ * main partition keeps flowing while the record waits.
+ * - one topic per tier: leads.events.retry.<group>.<delay>, e.g. leads.events.retry.crm-fanout.10s; per group,
+ *   as each group retries only its own failures, and per delay, so the records of a tier partition become due
+ *   in offset order and its consumer can pause the partition until the first one is due
+ * - headers added on republishing: x-retry-attempt (the tier) and x-retry-due-at (failure time + the tier's
+ *   delay); where the record came from travels in the publisher's own headers (Spring's kafka_dlt-original-*)
+ * - no tiers: failures go straight to the DLT
+ */
+public final class RetryTiers {
+
+    private final String group;
+    private final long[] delaysMs;
+    private final List<String> topics;
+
+    /**
+     * @param delaysMs delay of each tier, in tier order (e.g. 1000, 10000, 60000)
+     */
+    public RetryTiers(String group, List<Long> delaysMs) {
+        this.group = group;
+        this.delaysMs = new long[delaysMs.size()];
+        List<String> names = new ArrayList<>(delaysMs.size());
+        for (int i = 0; i < delaysMs.size(); i++) {
+            long delay = delaysMs.get(i);
+            if (delay <= 0) throw new IllegalArgumentException("retry tier delays must be > 0: " + delaysMs);
+            this.delaysMs[i] = delay;
+            String name = Topics.LEADS_RETRY + "." + group + "." + label(delay);
+            if (names.contains(name)) throw new IllegalArgumentException("duplicate retry tier delay: " + delaysMs);
+            names.add(name);
+        }
+        this.topics = List.copyOf(names);
+    }
+
+    public String group() {
+        return group;
+    }
+
+    /** Number of tiers. */
+    public int size() {
+        return delaysMs.length;
+    }
+
+    /** Tier topics, tier 1 first. */
+    public List<String> topics() {
+        return topics;
+    }
+
+    /** Topic of tier {@code tier} (1-based). */
+    public String topic(int tier) {
+        return topics.get(tier - 1);
+    }
+
+    /** Delay of tier {@code tier} (1-based). */
+    public long delayMs(int tier) {
+        return delaysMs[tier - 1];
+    }
+
+    /** Tier of a topic: 1.. for this group's tier topics, 0 for any other topic. */
+    public int tierOf(String topic) {
+        return topics.indexOf(topic) + 1;
+    }
+
+    /** Tier a record that failed on {@code topic} goes to; 0 once the last tier failed (DLT). */
+    public int next(String topic) {
+        int next = tierOf(topic) + 1;
+        return next <= delaysMs.length ? next : 0;
+    }
+
+    /** Headers of a record republished to {@code tier}, failed at {@code nowMs}. */
+    public org.apache.kafka.common.header.Headers headers(int tier, long nowMs) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(Headers.RETRY_ATTEMPT, Integer.toString(tier).getBytes(StandardCharsets.UTF_8));
+        headers.add(Headers.RETRY_DUE_AT, Long.toString(nowMs + delayMs(tier)).getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    /** The record's x-retry-attempt (last one if repeated); 0 if absent or unreadable. */
+    public static int attempt(org.apache.kafka.common.header.Headers headers) {
+        return (int) number(headers, Headers.RETRY_ATTEMPT);
+    }
+
+    /** The record's x-retry-due-at (last one if repeated); 0 (due) if absent or unreadable. */
+    public static long dueAt(org.apache.kafka.common.header.Headers headers) {
+        return number(headers, Headers.RETRY_DUE_AT);
+    }
+
+    private static long number(org.apache.kafka.common.header.Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        if (header == null || header.value() == null) return 0;
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /** 1000 -> 1s, 60000 -> 1m, 1500 -> 1500ms. */
+    private static String label(long delayMs) {
+        if (delayMs % 60_000 == 0) return delayMs / 60_000 + "m";
+        if (delayMs % 1_000 == 0) return delayMs / 1_000 + "s";
+        return delayMs + "ms";
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.dimitryivaniuta.gateway.common.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Reads offset ranges [from, to) of all partitions of a topic outside any consumer group (assign + seek, no
+ * offset commits), e.g. to rebuild a projection from the log while the group keeps consuming.
+ * - replay: the partitions are spread over up to parallelism consumers, one thread each; every poll's records
+ *   (those below the partition's end) go to the sink on the reading thread, so the sink must be thread-safe
+ *   and sees each partition's records in offset order
+ * - read: one consumer on the calling thread, records returned as a list (small ranges)
+ * - records that cannot be deserialized are skipped and counted
+ * - progress: offsets covered so far / offsets in the ranges of the current replay (gaps and transaction
+ *   markers included, so done reaches total), for rates and ETAs
+ * Consumers come from the supplier and are closed after each replay; they should be read_committed, so the
+ * end offsets are the last stable offsets and no aborted records are replayed. One replay at a time;
+ * cancel() stops it (and every later one) from any thread.
+ */
+public final class TopicReplayer<K, V> {
+
+    private final Supplier<Consumer<K, V>> consumers;
+    private final String topic;
+    private final int parallelism;
+    private final String threadName;
+    private final Duration pollTimeout;
+
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Set<Consumer<K, V>> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * @param consumers   creates an unassigned consumer (no group needed, auto-commit off)
+     * @param parallelism most consumers reading at once (capped at the partition count)
+     * @param threadName  prefix of the reader threads' names
+     */
+    public TopicReplayer(Supplier<Consumer<K, V>> consumers, String topic, int parallelism, String threadName,
+                         Duration pollTimeout) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        this.consumers = consumers;
+        this.topic = topic;
+        this.parallelism = parallelism;
+        this.threadName = threadName;
+        this.pollTimeout = pollTimeout;
+    }
+
+    /** First available offset of every partition. */
+    public Map<TopicPartition, Long> beginningOffsets() {
+        try (Consumer<K, V> consumer = consumers.get()) {
+            return consumer.beginningOffsets(partitions(consumer));
+        }
+    }
+
+    /** Current end (last stable offset if read_committed) of every partition. */
+    public Map<TopicPartition, Long> endOffsets() {
+        try (Consumer<K, V> consumer = consumers.get()) {
+            return consumer.endOffsets(partitions(consumer));
+        }
+    }
+
+    /** First offset of every partition whose record timestamp is >= time; the end offset if there is none. */
+    public Map<TopicPartition, Long> offsetsForTime(Instant time) {
+        try (Consumer<K, V> consumer = consumers.get()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> query = new HashMap<>();
+            partitions.forEach(tp -> query.put(tp, time.toEpochMilli()));
+            Map<TopicPartition, OffsetAndTimestamp> found = consumer.offsetsForTimes(query);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            for (TopicPartition tp : partitions) {
+                OffsetAndTimestamp at = found.get(tp);
+                offsets.put(tp, at != null ? at.offset() : end.get(tp));
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Reads [from, to) of every partition in {@code to} with up to parallelism threads, passing each poll's
+     * records to the sink. Returns once every partition reached its end; if a reader or the sink fails, the
+     * other readers are stopped and the failure is rethrown.
+     * @throws CancellationException if cancel() was called
+     */
+    public void replay(Map<TopicPartition, Long> from, Map<TopicPartition, Long> to,
+                       java.util.function.Consumer<List<ConsumerRecord<K, V>>> sink) throws InterruptedException {
+        List<TopicPartition> partitions = start(from, to);
+        int readers = Math.min(parallelism, partitions.size());
+        if (readers == 0) return;
+
+        List<List<TopicPartition>> assignments = new ArrayList<>();
+        for (int i = 0; i < readers; i++) assignments.add(new ArrayList<>());
+        for (int i = 0; i < partitions.size(); i++) assignments.get(i % readers).add(partitions.get(i));
+
+        ExecutorService pool = Executors.newFixedThreadPool(readers,
+                Thread.ofPlatform().name(threadName + "-", 0).daemon().factory());
+        try {
+            ExecutorCompletionService<Void> readersDone = new ExecutorCompletionService<>(pool);
+            for (List<TopicPartition> assigned : assignments) {
+                readersDone.submit(() -> {
+                    read(assigned, from, to, sink);
+                    return null;
+                });
+            }
+            for (int i = 0; i < readers; i++) {
+                try {
+                    readersDone.take().get();
+                } catch (ExecutionException ex) {
+                    // stop the others: their polls end with a WakeupException
+                    pool.shutdownNow();
+                    active.forEach(Consumer::wakeup);
+                    if (ex.getCause() instanceof RuntimeException re) throw re;
+                    if (ex.getCause() instanceof Error e) throw e;
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Reads [from, to) of every partition in {@code to} on the calling thread. */
+    public List<ConsumerRecord<K, V>> read(Map<TopicPartition, Long> from, Map<TopicPartition, Long> to) {
+        List<ConsumerRecord<K, V>> records = new ArrayList<>();
+        read(start(from, to), from, to, records::addAll);
+        return records;
+    }
+
+    /** Offsets covered by the current (or last) replay. */
+    public long done() {
+        return done.get();
+    }
+
+    /** Offsets in the ranges of the current (or last) replay. */
+    public long total() {
+        return total.get();
+    }
+
+    /** Records skipped because they could not be deserialized, over all replays. */
+    public long skipped() {
+        return skipped.get();
+    }
+
+    /** Stops the running replay (its readers end with a CancellationException) and fails later ones. */
+    public void cancel() {
+        cancelled = true;
+        active.forEach(Consumer::wakeup);
+    }
+
+    /** Resets the progress counters; returns the partitions with a non-empty range. */
+    private List<TopicPartition> start(Map<TopicPartition, Long> from, Map<TopicPartition, Long> to) {
+        if (cancelled) throw new CancellationException("replay of " + topic + " cancelled");
+        List<TopicPartition> partitions = new ArrayList<>();
+        long offsets = 0;
+        for (Map.Entry<TopicPartition, Long> end : to.entrySet()) {
+            long begin = from.getOrDefault(end.getKey(), end.getValue());
+            if (begin < end.getValue()) {
+                partitions.add(end.getKey());
+                offsets += end.getValue() - begin;
+            }
+        }
+        partitions.sort((a, b) -> Integer.compare(a.partition(), b.partition()));
+        done.set(0);
+        total.set(offsets);
+        return partitions;
+    }
+
+    private void read(List<TopicPartition> partitions, Map<TopicPartition, Long> from, Map<TopicPartition, Long> to,
+                      java.util.function.Consumer<List<ConsumerRecord<K, V>>> sink) {
+        if (partitions.isEmpty()) return;
+        try (Consumer<K, V> consumer = consumers.get()) {
+            active.add(consumer);
+            try {
+                Map<TopicPartition, Long> positions = new HashMap<>();
+                consumer.assign(partitions);
+                for (TopicPartition tp : partitions) {
+                    consumer.seek(tp, from.get(tp));
+                    positions.put(tp, from.get(tp));
+                }
+                List<TopicPartition> remaining = new ArrayList<>(partitions);
+                while (!remaining.isEmpty()) {
+                    if (cancelled || Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("replay of " + topic + " cancelled");
+                    }
+                    ConsumerRecords<K, V> polled;
+                    try {
+                        polled = consumer.poll(pollTimeout);
+                    } catch (RecordDeserializationException ex) {
+                        skipped.incrementAndGet();
+                        consumer.seek(ex.topicPartition(), ex.offset() + 1);
+                        continue;
+                    } catch (WakeupException ex) {
+                        throw new CancellationException("replay of " + topic + " stopped");
+                    }
+
+                    if (!polled.isEmpty()) {
+                        List<ConsumerRecord<K, V>> batch = new ArrayList<>(polled.count());
+                        for (TopicPartition tp : polled.partitions()) {
+                            long end = to.get(tp);
+                            for (ConsumerRecord<K, V> record : polled.records(tp)) {
+                                if (record.offset() < end) batch.add(record);
+                            }
+                        }
+                        if (!batch.isEmpty()) sink.accept(batch);
+                    }
+
+                    for (Iterator<TopicPartition> it = remaining.iterator(); it.hasNext(); ) {
+                        TopicPartition tp = it.next();
+                        long end = to.get(tp);
+                        long position = Math.min(consumer.position(tp), end);
+                        done.addAndGet(position - positions.put(tp, position));
+                        if (position >= end) {
+                            // fetched past the end already: stop fetching more of it
+                            consumer.pause(List.of(tp));
+                            it.remove();
+                        }
+                    }
+                }
+            } finally {
+                active.remove(consumer);
+            }
+        }
+    }
+
+    private List<TopicPartition> partitions(Consumer<K, V> consumer) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        if (infos == null || infos.isEmpty()) throw new IllegalStateException("Topic " + topic + " has no partitions");
+        return infos.stream().map(p -> new TopicPartition(topic, p.partition())).toList();
+    }
+}
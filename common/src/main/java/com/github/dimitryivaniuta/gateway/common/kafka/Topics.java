@@ -11,7 +11,10 @@ public final class Topics {
     /** Primary stream of Real-Estate lead domain events. */
     public static final String LEADS = "leads.events";
 
-    /** Optional retry topic (if you implement delayed retries). */
+    /**
+     * Prefix of the retry tier topics, one per consumer group and delay: leads.events.retry.<group>.<delay>,
+     * e.g. leads.events.retry.crm-fanout.10s (see RetryTiers).
+     */
     public static final String LEADS_RETRY = "leads.events.retry";
 
     /** Dead-letter topic for unrecoverable or exhausted failures. */
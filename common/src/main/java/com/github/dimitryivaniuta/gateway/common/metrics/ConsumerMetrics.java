@@ -0,0 +1,132 @@
+package com.github.dimitryivaniuta.gateway.common.metrics;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing meters of one consumer group (all listener modes), tagged group=<group>:
+ * - leads.consumer.records{partition, outcome=new|duplicate|retry|dead_letter}: records processed (rate = records/s);
+ *   retry = sent to a retry tier, counted again with its final outcome (retry tier records count under the
+ *   partition they first failed on)
+ * - leads.consumer.e2e.latency{partition}: LeadEvent.occurredAt until the record's write committed and it was
+ *   acknowledged (the offset commit follows with the container's next commit)
+ * - leads.consumer.write: duration of one write transaction (a record, a batch, a COPY + merge)
+ * - leads.consumer.batch.size: records per write transaction
+ * Timers publish percentile histograms (Prometheus buckets; percentiles from Micrometer's HdrHistogram-based
+ * recorders). Lag per partition comes from the Kafka client metrics
+ * (kafka.consumer.fetch.manager.records.lag, bound in each service's KafkaConsumerConfig).
+ *
+ * Cheap on the hot path: the meters of a partition are registered on its first record and then found with one
+ * map lookup. Also owns the sampling of the per-record debug log (log-sample-rate, 0 = off).
+ */
+public class ConsumerMetrics {
+
+    private final MeterRegistry registry;
+    private final String group;
+    private final Clock clock;
+    private final double logSampleRate;
+    private final Map<Integer, Partition> partitions = new ConcurrentHashMap<>();
+    private final Timer write;
+    private final DistributionSummary batchSize;
+
+    public ConsumerMetrics(MeterRegistry registry, String group, double logSampleRate) {
+        this.registry = registry;
+        this.group = group;
+        this.clock = Clock.systemUTC();
+        this.logSampleRate = logSampleRate;
+        this.write = Timer.builder("leads.consumer.write")
+                .description("Duration of one sink write transaction")
+                .tag("group", group)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("leads.consumer.batch.size")
+                .description("Records per sink write transaction")
+                .tag("group", group)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(10_000.0)
+                .register(registry);
+    }
+
+    /** Meters of one partition of the leads topic. */
+    public Partition partition(int partition) {
+        Partition meters = partitions.get(partition);
+        return meters != null ? meters : partitions.computeIfAbsent(partition, p -> new Partition(registry, group, clock, p));
+    }
+
+    /** Records one write transaction of {@code records} records started at {@code startNanos} (System.nanoTime()). */
+    public void recordWrite(long startNanos, int records) {
+        write.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        batchSize.record(records);
+    }
+
+    /** True for the fraction of records whose outcome should be logged at DEBUG. */
+    public boolean sampleLog() {
+        return logSampleRate > 0 && (logSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < logSampleRate);
+    }
+
+    /** Preregistered meters of one partition. */
+    public static final class Partition {
+        private final Clock clock;
+        private final Counter inserted;
+        private final Counter duplicates;
+        private final Counter retries;
+        private final Counter deadLetters;
+        private final Timer endToEnd;
+
+        private Partition(MeterRegistry registry, String group, Clock clock, int partition) {
+            String tag = Integer.toString(partition);
+            this.clock = clock;
+            this.inserted = records(registry, group, tag, "new");
+            this.duplicates = records(registry, group, tag, "duplicate");
+            this.retries = records(registry, group, tag, "retry");
+            this.deadLetters = records(registry, group, tag, "dead_letter");
+            this.endToEnd = Timer.builder("leads.consumer.e2e.latency")
+                    .description("LeadEvent.occurredAt until the record was written and acknowledged")
+                    .tags("group", group, "partition", tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(registry);
+        }
+
+        private static Counter records(MeterRegistry registry, String group, String partition, String outcome) {
+            return Counter.builder("leads.consumer.records")
+                    .description("Records processed")
+                    .tags("group", group, "partition", partition, "outcome", outcome)
+                    .register(registry);
+        }
+
+        /** One record done (written or found to be a duplicate) and about to be acknowledged. */
+        public void processed(LeadEvent event, boolean inserted) {
+            (inserted ? this.inserted : duplicates).increment();
+            if (event.occurredAt() != null) {
+                // clock skew between producer and consumer hosts: never negative
+                long millis = Math.max(0, clock.millis() - event.occurredAt().toEpochMilli());
+                endToEnd.record(millis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /** One failed record published to a retry tier. */
+        public void retried() {
+            retries.increment();
+        }
+
+        /** One record given up on and published to the DLT. */
+        public void deadLettered() {
+            deadLetters.increment();
+        }
+    }
+}
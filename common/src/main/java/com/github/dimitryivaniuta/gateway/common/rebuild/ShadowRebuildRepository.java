@@ -0,0 +1,51 @@
+package com.github.dimitryivaniuta.gateway.common.rebuild;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Shadow tables of a rebuild of one sink table (ShadowTableRebuild): prepare, load (any number of times,
+ * concurrently), finish, insertAllIfAbsent (any number of times), swap; abort at any point before the swap.
+ * @param <E> row entity of the rebuilt table
+ */
+public interface ShadowRebuildRepository<E> {
+
+    /** Creates the empty load table; fails if the tables of another rebuild exist. */
+    void prepare();
+
+    /** Bulk-loads rows into the load table (COPY, one autocommit transaction; duplicates are kept). */
+    void load(List<E> entities);
+
+    /**
+     * Moves the loaded rows, deduplicated, into the shadow table and builds its keys and indexes.
+     * @return rows in the shadow table
+     */
+    long finish();
+
+    /** Adds rows to the finished shadow table, skipping those it has already. */
+    int insertAllIfAbsent(List<E> entities);
+
+    /**
+     * One transaction: locks the live table against writers (readers go on) waiting at most lockTimeoutMs, adds
+     * {@code last} (read once the lock is held, so nothing can be written to the live table after it) to the
+     * shadow table and swaps it in.
+     * @return the name of the retired table (the live table before the swap)
+     */
+    String swap(String suffix, long lockTimeoutMs, Supplier<List<E>> last);
+
+    /** Drops the shadow tables (nothing happens if there are none). */
+    void abort();
+
+    /**
+     * Takes the rebuild lock: a session advisory lock on a pool connection of its own, held until the returned
+     * handle is closed. The running rebuild holds it, so no other instance can start one or drop its tables.
+     * @throws IllegalStateException if another session holds it
+     */
+    Ownership own();
+
+    /** The rebuild lock (see own); closing it releases the lock and its connection. */
+    interface Ownership extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,377 @@
+package com.github.dimitryivaniuta.gateway.common.rebuild;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.TopicReplayer;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds one sink table from leads.events into a shadow table (ShadowRebuildRepository) and swaps it in while
+ * the listeners keep writing the live table. Subclasses map events to rows ({@link #toEntity}).
+ * - phases: LOADING (COPY of the topic up to the end offsets at the start), INDEXING, CATCHING_UP (until at most
+ *   swap-lag behind), SWAPPING (rename under a lock-timeout-ms lock; the old table is kept as
+ *   <table>_retired_<time>)
+ * - one rebuild at a time per database: the running one holds the rebuild lock (own, a pool connection for the
+ *   whole rebuild), so other instances refuse to start or cancel meanwhile; cancelled or failed rebuilds drop
+ *   their shadow tables, and the lock goes with the session if the instance dies
+ * @param <E> row entity of the rebuilt table
+ */
+@Slf4j
+public abstract class ShadowTableRebuild<E> implements DisposableBean {
+
+    public enum Phase { IDLE, LOADING, INDEXING, CATCHING_UP, SWAPPING, DONE, FAILED, CANCELLED }
+
+    /**
+     * Snapshot of the current or last rebuild. offsets* refer to the replay of the current phase (LOADING or
+     * CATCHING_UP); rows are the rows written (loaded, duplicates included, then added).
+     */
+    public record Status(Phase phase, String from, Instant startedAt, Instant finishedAt,
+                         long offsetsDone, long offsetsTotal, long offsetsPerSecond, Long etaSeconds,
+                         long rows, long skipped, String retiredTable, String error) {
+
+        static final Status IDLE = new Status(Phase.IDLE, null, null, null, 0, 0, 0, null, 0, 0, null, null);
+    }
+
+    /** Replay and swap settings (app.rebuild.*). */
+    public record Settings(int parallelism, int maxPollRecords, int maxPartitionFetchBytes, long swapLag,
+                           int catchUpRounds, int swapAttempts, long lockTimeoutMs, long progressIntervalMs) { }
+
+    private static final DateTimeFormatter SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+    private final String table;
+    private final String name;
+    private final ConsumerFactory<String, LeadEvent> consumerFactory;
+    private final ShadowRebuildRepository<E> rebuild;
+    private final Settings settings;
+    private final ScheduledExecutorService progress;
+
+    private volatile Run current;
+
+    /**
+     * @param table schema-qualified name of the rebuilt table, for the logs
+     * @param name  name of the rebuild thread; also the prefix of the other threads' names and the client id
+     */
+    protected ShadowTableRebuild(String table, String name, ConsumerFactory<String, LeadEvent> consumerFactory,
+                                 ShadowRebuildRepository<E> rebuild, Settings settings) {
+        if (settings.parallelism() < 1) throw new IllegalArgumentException("app.rebuild.parallelism must be >= 1");
+        if (settings.swapLag() < 0) throw new IllegalArgumentException("app.rebuild.swap-lag must be >= 0");
+        if (settings.catchUpRounds() < 1) {
+            throw new IllegalArgumentException("app.rebuild.catch-up-rounds must be >= 1");
+        }
+        if (settings.swapAttempts() < 1) throw new IllegalArgumentException("app.rebuild.swap-attempts must be >= 1");
+
+        this.table = table;
+        this.name = name;
+        this.consumerFactory = consumerFactory;
+        this.rebuild = rebuild;
+        this.settings = settings;
+
+        this.progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = settings.progressIntervalMs();
+        progress.scheduleWithFixedDelay(this::logProgress, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** The row of one event. */
+    protected abstract E toEntity(LeadEvent event);
+
+    @Override
+    public void destroy() throws InterruptedException {
+        Run run = current;
+        if (run != null && run.running()) run.cancel();
+        progress.shutdownNow();
+        progress.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts a rebuild in the background.
+     * @param from "earliest", an offset (the same for every partition) or an ISO-8601 instant
+     *             (e.g. 2025-10-01T00:00:00Z: the first record of each partition at or after it)
+     * @throws IllegalStateException if a rebuild is running (here or on another instance)
+     */
+    public synchronized Status start(String from) {
+        if (current != null && current.running()) {
+            throw new IllegalStateException("A rebuild is running already (" + current.phase + ")");
+        }
+        String spec = from == null || from.isBlank() ? "earliest" : from.trim();
+        parseFrom(spec);
+        ShadowRebuildRepository.Ownership owner = rebuild.own();
+        Run run;
+        try {
+            run = new Run(spec, owner);
+        } catch (RuntimeException ex) {
+            owner.close();
+            throw ex;
+        }
+        current = run;
+        Thread.ofPlatform().name(name).daemon().start(run::run);
+        return run.status();
+    }
+
+    public Status status() {
+        Run run = current;
+        return run == null ? Status.IDLE : run.status();
+    }
+
+    /**
+     * Cancels the running rebuild; without one, drops the shadow tables a crashed rebuild may have left.
+     * @throws IllegalStateException if a rebuild is running on another instance
+     */
+    public synchronized Status cancel() {
+        Run run = current;
+        if (run != null && run.running()) {
+            run.cancel();
+        } else {
+            try (ShadowRebuildRepository.Ownership owner = rebuild.own()) {
+                rebuild.abort();
+            }
+            log.info("Rebuild of {}: shadow tables dropped", table);
+        }
+        return status();
+    }
+
+    private void logProgress() {
+        Run run = current;
+        if (run == null || !run.running()) return;
+        Status s = run.status();
+        if (s.phase() == Phase.LOADING || s.phase() == Phase.CATCHING_UP) {
+            log.info("Rebuild of {}: {} {}/{} offsets ({}%), {}/s, ETA {}, {} rows written",
+                    table, s.phase(), s.offsetsDone(), s.offsetsTotal(),
+                    s.offsetsTotal() == 0 ? 100 : s.offsetsDone() * 100 / s.offsetsTotal(),
+                    s.offsetsPerSecond(), s.etaSeconds() == null ? "-" : Duration.ofSeconds(s.etaSeconds()), s.rows());
+        } else {
+            log.info("Rebuild of {}: {} since {}", table, s.phase(), run.phaseStarted);
+        }
+    }
+
+    private TopicReplayer<String, LeadEvent> replayer() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        // the end offsets are the last stable offsets: nothing of an open or aborted transaction is replayed
+        overrides.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        // seeks are explicit; a position deleted by retention meanwhile fails the rebuild instead of skipping data
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "none");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(settings.maxPollRecords()));
+        overrides.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+                Integer.toString(settings.maxPartitionFetchBytes()));
+        return new TopicReplayer<>(() -> consumerFactory.createConsumer(null, name, null, overrides),
+                Topics.LEADS, settings.parallelism(), name + "-reader", Duration.ofSeconds(1));
+    }
+
+    /** Start offsets of {@code from} (see start). */
+    private static Map<TopicPartition, Long> startOffsets(TopicReplayer<String, LeadEvent> replayer, String from) {
+        Object parsed = parseFrom(from);
+        if (parsed instanceof Instant time) return replayer.offsetsForTime(time);
+        Map<TopicPartition, Long> offsets = new HashMap<>(replayer.beginningOffsets());
+        if (parsed instanceof Long offset) {
+            Map<TopicPartition, Long> end = replayer.endOffsets();
+            offsets.replaceAll((tp, begin) -> Math.min(Math.max(begin, offset), end.getOrDefault(tp, begin)));
+        }
+        return offsets;
+    }
+
+    /** "earliest" (returned as is), a Long offset or an Instant. */
+    private static Object parseFrom(String from) {
+        if ("earliest".equalsIgnoreCase(from)) return from;
+        if (from.chars().allMatch(Character::isDigit)) return Long.parseLong(from);
+        try {
+            return Instant.parse(from);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("from must be earliest, an offset or an ISO-8601 instant: " + from);
+        }
+    }
+
+    private List<E> entities(List<ConsumerRecord<String, LeadEvent>> records) {
+        List<E> entities = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, LeadEvent> record : records) {
+            if (record.value() != null) entities.add(toEntity(record.value()));
+        }
+        return entities;
+    }
+
+    private static long lag(Map<TopicPartition, Long> position, Map<TopicPartition, Long> end) {
+        long lag = 0;
+        for (Map.Entry<TopicPartition, Long> e : end.entrySet()) {
+            lag += Math.max(0, e.getValue() - position.getOrDefault(e.getKey(), 0L));
+        }
+        return lag;
+    }
+
+    /** Schema of the rebuilt table (the retired table is renamed within it). */
+    private String schema() {
+        int dot = table.indexOf('.');
+        return dot < 0 ? "public" : table.substring(0, dot);
+    }
+
+    /** One rebuild, run on its own thread. */
+    private final class Run {
+        private final String from;
+        private final ShadowRebuildRepository.Ownership owner;
+        private final Instant startedAt = Instant.now();
+        private final TopicReplayer<String, LeadEvent> replayer = replayer();
+        private final AtomicLong rows = new AtomicLong();
+        private volatile Phase phase = Phase.LOADING;
+        private volatile Instant phaseStarted = startedAt;
+        private volatile long phaseStartNanos = System.nanoTime();
+        private volatile Instant finishedAt;
+        private volatile String retired;
+        private volatile String error;
+        private volatile boolean cancelled;
+
+        Run(String from, ShadowRebuildRepository.Ownership owner) {
+            this.from = from;
+            this.owner = owner;
+        }
+
+        void run() {
+            try {
+                rebuild.prepare();
+                Map<TopicPartition, Long> start = startOffsets(replayer, from);
+                Map<TopicPartition, Long> end = replayer.endOffsets();
+                log.info("Rebuild of {} from {}: loading {} offsets of {} partitions ({} readers)",
+                        table, from, lag(start, end), end.size(), Math.min(settings.parallelism(), end.size()));
+                replayer.replay(start, end, records -> {
+                    List<E> entities = entities(records);
+                    rebuild.load(entities);
+                    rows.addAndGet(entities.size());
+                });
+
+                enter(Phase.INDEXING);
+                log.info("Rebuild of {}: {} rows loaded, deduplicating and indexing", table, rows.get());
+                long distinct = rebuild.finish();
+                log.info("Rebuild of {}: {} rows in {}_rebuild", table, distinct, table);
+
+                long lockTimeoutMs = settings.lockTimeoutMs();
+                Map<TopicPartition, Long> position = end;
+                for (int attempt = 1; ; attempt++) {
+                    position = catchUp(position);
+                    enter(Phase.SWAPPING);
+                    Map<TopicPartition, Long> last = position;
+                    try {
+                        retired = rebuild.swap(SUFFIX.format(startedAt), lockTimeoutMs,
+                                () -> entities(replayer.read(withNewPartitions(last), replayer.endOffsets())));
+                        break;
+                    } catch (PessimisticLockingFailureException ex) {
+                        if (attempt >= settings.swapAttempts()) throw ex;
+                        log.warn("Rebuild of {}: no lock within {} ms (attempt {}/{}), catching up again",
+                                table, lockTimeoutMs, attempt, settings.swapAttempts());
+                    }
+                }
+                finish(Phase.DONE);
+                log.info("Rebuild of {} done in {}: swapped in; the previous table is {}.{} (drop it once checked)",
+                        table, Duration.between(startedAt, finishedAt), schema(), retired);
+            } catch (CancellationException | InterruptedException ex) {
+                abort(Phase.CANCELLED);
+                log.info("Rebuild of {} cancelled", table);
+            } catch (RuntimeException ex) {
+                error = ex.toString();
+                abort(Phase.FAILED);
+                log.error("Rebuild of {} failed in phase {}", table, phase, ex);
+            }
+        }
+
+        /** Adds what was published since {@code position} until the lag is down to swap-lag. */
+        private Map<TopicPartition, Long> catchUp(Map<TopicPartition, Long> position) throws InterruptedException {
+            for (int round = 1; ; round++) {
+                checkCancelled();
+                Map<TopicPartition, Long> end = replayer.endOffsets();
+                long lag = lag(position, end);
+                if (lag <= settings.swapLag()) return position;
+                if (round > settings.catchUpRounds()) {
+                    throw new IllegalStateException("Still " + lag + " offsets behind after "
+                            + settings.catchUpRounds() + " catch-up rounds: the topic grows faster than the replay");
+                }
+                enter(Phase.CATCHING_UP);
+                log.info("Rebuild of {}: catch-up round {}, {} offsets behind", table, round, lag);
+                replayer.replay(withNewPartitions(position), end,
+                        records -> rows.addAndGet(rebuild.insertAllIfAbsent(entities(records))));
+                position = end;
+            }
+        }
+
+        /** Partitions added to the topic during the rebuild are read from their beginning. */
+        private Map<TopicPartition, Long> withNewPartitions(Map<TopicPartition, Long> position) {
+            Map<TopicPartition, Long> from = new HashMap<>(replayer.beginningOffsets());
+            from.putAll(position);
+            return from;
+        }
+
+        private void enter(Phase next) {
+            checkCancelled();
+            phase = next;
+            phaseStarted = Instant.now();
+            phaseStartNanos = System.nanoTime();
+        }
+
+        private void finish(Phase last) {
+            try {
+                owner.close();
+            } catch (RuntimeException ex) {
+                log.warn("Rebuild of {}: could not release the rebuild lock", table, ex);
+            }
+            phase = last;
+            finishedAt = Instant.now();
+        }
+
+        private void abort(Phase last) {
+            try {
+                rebuild.abort();
+            } catch (RuntimeException ex) {
+                log.warn("Rebuild of {}: could not drop the shadow tables", table, ex);
+            }
+            finish(last);
+        }
+
+        private void checkCancelled() {
+            if (cancelled) throw new CancellationException();
+        }
+
+        void cancel() {
+            cancelled = true;
+            replayer.cancel();
+        }
+
+        boolean running() {
+            return finishedAt == null;
+        }
+
+        Status status() {
+            Phase p = phase;
+            long done = replayer.done();
+            long total = replayer.total();
+            boolean replaying = running() && (p == Phase.LOADING || p == Phase.CATCHING_UP);
+            double seconds = (System.nanoTime() - phaseStartNanos) / 1e9;
+            long rate = replaying && seconds > 0 ? (long) (done / seconds) : 0;
+            Long eta = replaying && rate > 0 ? (total - done) / rate : null;
+            return new Status(p, from, startedAt, finishedAt, done, total, rate, eta, rows.get(), replayer.skipped(),
+                    retired, error);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.dimitryivaniuta.gateway.common.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VALUES list of a multi-row INSERT: one row template repeated, its binds numbered ?1, ?2, ... across the rows.
+ * Nullable columns are written as CAST(? AS type), as a NULL bind has no type of its own.
+ */
+public final class MultiRowValues {
+
+    /** Rows per statement; with a dozen binds per row, far below the driver's 65535 bind limit. */
+    public static final int MAX_ROWS = 1000;
+
+    private MultiRowValues() { /* no instances */ }
+
+    /**
+     * @param row column expressions of one row, each '?' a bind, e.g. "?", "CAST(? AS TEXT)", "now()"
+     * @return "  (?1, CAST(?2 AS TEXT), now()),\n  (?3, ..." for {@code rows} rows
+     */
+    public static String of(int rows, String... row) {
+        StringBuilder sql = new StringBuilder(rows * (row.length * 8 + 8));
+        int p = 0;
+        for (int r = 0; r < rows; r++) {
+            sql.append(r == 0 ? "  (" : ",\n  (");
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) sql.append(", ");
+                String column = row[c];
+                for (int i = 0; i < column.length(); i++) {
+                    char ch = column.charAt(i);
+                    sql.append(ch);
+                    if (ch == '?') sql.append(++p);
+                }
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /** {@code items} split into statements of at most MAX_ROWS rows (views, not copies). */
+    public static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>(items.size() / MAX_ROWS + 1);
+        for (int from = 0; from < items.size(); from += MAX_ROWS) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + MAX_ROWS)));
+        }
+        return chunks;
+    }
+}
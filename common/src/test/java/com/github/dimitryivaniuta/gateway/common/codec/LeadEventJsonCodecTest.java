@@ -0,0 +1,116 @@
+package com.github.dimitryivaniuta.gateway.common.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LeadEventJsonCodec is wire-compatible with Spring's JsonSerializer/JsonDeserializer (ObjectMapper binding),
+ * which older producers and consumers still use.
+ * - encode: same fields with identical values (numbers compared as BigDecimal, so "1.50" != "1.5"); field order
+ *   is not compared, as ObjectMapper orders the derived isX() flags by reflection order
+ * - decode: equal events, from ObjectMapper bytes and from the codec's own bytes
+ */
+class LeadEventJsonCodecTest {
+
+    private static final String TOPIC = "leads.events";
+    private static final ObjectMapper TREE_READER =
+            new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final JsonSerializer<Object> mapperSerializer = new JsonSerializer<>();
+    private final JsonDeserializer<LeadEvent> mapperDeserializer = new JsonDeserializer<>(LeadEvent.class);
+
+    LeadEventJsonCodecTest() {
+        mapperSerializer.setAddTypeInfo(false);
+        mapperDeserializer.ignoreTypeHeaders();
+    }
+
+    static List<LeadEvent> events() {
+        return List.of(
+                // every optional field set
+                new LeadEvent(UuidV7.next(), "acme-realty", LeadEventType.CREATED,
+                        new LeadPayload(UuidV7.nextString(), "Jane Doe", "jane.doe@example.com", "+1-555-1234",
+                                "Warsaw", "fb-ads", 250_000),
+                        Instant.ofEpochSecond(1_758_449_730L, 123_456_789)),
+                // only the required fields (null optionals)
+                new LeadEvent(UuidV7.next(), "t", LeadEventType.UPDATED,
+                        new LeadPayload("l-3", "X", null, null, null, null, null),
+                        Instant.ofEpochSecond(1_758_449_730L, 7)),
+                // escapes, control characters and non-ASCII text
+                new LeadEvent(UuidV7.next(), "t\"1\\ é\u2028", LeadEventType.QUALIFIED,
+                        new LeadPayload("l-1", "Zoë \"Q\" Ü\n\t\u0001", "a@b.c", null, "Kraków", null, 0),
+                        Instant.ofEpochSecond(0)),
+                // supplementary characters, max budget, millisecond timestamp
+                new LeadEvent(UuidV7.next(), "t", LeadEventType.REJECTED,
+                        new LeadPayload("l-2", "李雷 😀", null, "+1", null, "s", Integer.MAX_VALUE),
+                        Instant.ofEpochSecond(1_758_449_730L, 120_000_000)),
+                // before 1970: -0.5 s (no whole second to carry the sign), -1000000.75 s, whole seconds
+                new LeadEvent(UuidV7.next(), "t", LeadEventType.CREATED,
+                        new LeadPayload("l-4", "Y", null, null, null, null, null),
+                        Instant.ofEpochSecond(-1, 500_000_000)),
+                new LeadEvent(UuidV7.next(), "t", LeadEventType.CREATED,
+                        new LeadPayload("l-5", "Y", null, null, null, null, null),
+                        Instant.ofEpochSecond(-1_000_001L, 250_000_000)),
+                new LeadEvent(UuidV7.next(), "t", LeadEventType.CREATED,
+                        new LeadPayload("l-6", "Y", null, null, null, null, null),
+                        Instant.ofEpochSecond(-86_400L)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("events")
+    void encodesTheSameJsonAsObjectMapper(LeadEvent event) throws Exception {
+        byte[] mapper = mapperSerializer.serialize(TOPIC, event);
+        byte[] streaming = LeadEventJsonCodec.encode(event);
+
+        assertThat(TREE_READER.readTree(streaming))
+                .as(new String(streaming, StandardCharsets.UTF_8))
+                .isEqualTo(TREE_READER.readTree(mapper));
+    }
+
+    @ParameterizedTest
+    @MethodSource("events")
+    void decodesObjectMapperJsonAndItsOwn(LeadEvent event) {
+        assertThat(LeadEventJsonCodec.decode(mapperSerializer.serialize(TOPIC, event))).isEqualTo(event);
+        assertThat(mapperDeserializer.deserialize(TOPIC, LeadEventJsonCodec.encode(event))).isEqualTo(event);
+        assertThat(LeadEventJsonCodec.decode(LeadEventJsonCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void acceptsWhatObjectMapperAccepts() {
+        // ISO-8601 occurredAt, unknown fields (nested too), any field order
+        byte[] json = """
+                {"extra":{"nested":[1,2]},"occurredAt":"2025-09-21T10:15:30.5Z","type":"CREATED",
+                 "payload":{"budgetUsd":10,"fullName":" Jane ","leadId":"l-9","unknown":true},
+                 "tenantId":"acme","eventId":"0199693c-6f2b-7a4e-8b1c-2d3e4f506172"}"""
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertThat(LeadEventJsonCodec.decode(json)).isEqualTo(mapperDeserializer.deserialize(TOPIC, json));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-0.5", "-0.000000001", "-0.0", "-1.5", "-1000000.75", "-1.5e0", "-5e-1", "-0.25e1"})
+    void readsPre1970TimestampsLikeObjectMapper(String occurredAt) {
+        byte[] json = ("""
+                {"eventId":"0199693c-6f2b-7a4e-8b1c-2d3e4f506172","tenantId":"t","type":"CREATED",
+                 "payload":{"leadId":"l-7","fullName":"Z"},"occurredAt":%s}""".formatted(occurredAt))
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertThat(LeadEventJsonCodec.decode(json).occurredAt())
+                .isEqualTo(mapperDeserializer.deserialize(TOPIC, json).occurredAt());
+    }
+}
@@ -1,70 +1,215 @@
 package com.github.dimitryivaniuta.gateway.fanout.config;
 
+import com.github.dimitryivaniuta.gateway.common.concurrent.AimdBatchSizer;
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.FailedRecordRecoverer;
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventDeserializer;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryBackOff;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.messaging.DbOffsets;
+import com.github.dimitryivaniuta.gateway.fanout.messaging.LeadFanoutPipelineListener;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadOffsetRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadUpsertRepository;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTiers;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.listener.ContainerProperties;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.kafka.support.converter.ConversionException;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.util.backoff.ExponentialBackOff;
 
+import javax.sql.DataSource;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+@Slf4j
 @EnableKafka
 @Configuration
 public class KafkaConsumerConfig {
 
+    /** Consumer group of the leads.events listeners (also the group tag of ConsumerMetrics). */
+    public static final String GROUP = "crm-fanout";
+
     @Bean
-    public ConsumerFactory<String, LeadEvent> consumerFactory(KafkaProperties properties) {
+    public ConsumerFactory<String, LeadEvent> consumerFactory(KafkaProperties properties, MeterRegistry registry) {
         Map<String, Object> props = new HashMap<>(properties.buildConsumerProperties());
 
-        // We configure the JsonDeserializer programmatically; make sure no spring.json.* props sneak in.
+        // The value deserializer is supplied below; make sure no spring.json.* props sneak in.
         props.remove("spring.json.trusted.packages");
         props.remove("spring.json.value.default.type");
 
         // Ensure deserializers are explicit (we bypass type headers)
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, LeadEventDeserializer.class);
 
-        JsonDeserializer<LeadEvent> value = new JsonDeserializer<>(LeadEvent.class);
-        value.ignoreTypeHeaders();                  // we don’t use type headers from producer
-        value.addTrustedPackages("com.github.dimitryivaniuta.gateway.common");
+        // JSON or binary, chosen per record from the x-event-format header; both decoded without ObjectMapper
+        DefaultKafkaConsumerFactory<String, LeadEvent> factory =
+                new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new LeadEventDeserializer());
+        // Kafka client metrics per consumer, e.g. kafka.consumer.fetch.manager.records.lag{topic, partition}
+        factory.addListener(new MicrometerConsumerListener<>(registry));
+        return factory;
+    }
 
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), value);
+    @Bean
+    public ConsumerMetrics consumerMetrics(
+            MeterRegistry registry,
+            @Value("${app.metrics.consumer.log-sample-rate:0.01}") double logSampleRate) {
+        return new ConsumerMetrics(registry, GROUP, logSampleRate);
+    }
+
+    @Bean
+    public RecentEventFilter recentEventFilter(
+            LeadUpsertRepository upserts,
+            MeterRegistry registry,
+            @Value("${app.dedupe.filter.enabled:true}") boolean enabled,
+            @Value("${app.dedupe.filter.expected-per-generation:1000000}") long expectedPerGeneration,
+            @Value("${app.dedupe.filter.fpp:0.01}") double fpp,
+            @Value("${app.dedupe.filter.generations:2}") int generations,
+            @Value("${app.dedupe.filter.rotate-every-ms:1800000}") long rotateEveryMs) {
+        return new RecentEventFilter(upserts::findExisting, registry,
+                enabled, expectedPerGeneration, fpp, generations, rotateEveryMs);
     }
 
     /**
-     * Common error handler: retry with exponential backoff; publish to DLT on exhaustion or non-retryable exceptions.
+     * Non-blocking retry tiers of the crm-fanout group (app.kafka.retry.tiers-ms, default 1 s, 10 s, 1 min):
+     * topics leads.events.retry.crm-fanout.<delay>, consumed by LeadFanoutRetryListener.
+     * app.kafka.retry.enabled=false: no tiers, failures go straight to the DLT.
      */
     @Bean
-    public DefaultErrorHandler errorHandler(KafkaTemplate<String, Object> dltKafkaTemplate) {
-        // Backoff: start 1s, x2 multiplier, max 10s, with max retries = 3 (DefaultErrorHandler counts attempts internally)
-        ExponentialBackOff backOff = new ExponentialBackOff(1_000L, 2.0);
-        backOff.setMaxInterval(10_000L);
-        // DefaultErrorHandler treats ExponentialBackOff as infinite; we cap by setting max failures (3) via setRetryListeners if needed.
-        // Simpler: rely on classification + backoff; on repeated failures, recoverer sends to DLT.
+    public RetryTiers retryTiers(
+            @Value("${app.kafka.retry.enabled:true}") boolean enabled,
+            @Value("${app.kafka.retry.tiers-ms:1000,10000,60000}") List<Long> tiersMs) {
+        return new RetryTiers(GROUP, enabled ? tiersMs : List.of());
+    }
+
+    /** Creates the tier topics on startup (KafkaAdmin); records are partitioned by key, as on leads.events. */
+    @Bean
+    public KafkaAdmin.NewTopics retryTierTopics(
+            RetryTiers tiers,
+            @Value("${app.kafka.retry.partitions:3}") int partitions,
+            @Value("${app.kafka.retry.replication-factor:1}") int replicationFactor) {
+        return new KafkaAdmin.NewTopics(tiers.topics().stream()
+                .map(topic -> TopicBuilder.name(topic)
+                        .partitions(partitions)
+                        .replicas(replicationFactor)
+                        .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(7L * 24 * 60 * 60 * 1000)) // 7 days
+                        .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE)
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
 
+    /**
+     * Publishes failed records to the next retry tier, with x-retry-attempt / x-retry-due-at; after the last tier,
+     * or for non-retryable exceptions, to the DLT, same partition as the original record.
+     * The kafka_dlt-original-* headers (topic, partition, offset, ...) keep the first hop's values, i.e. where on
+     * leads.events the record failed first; the exception headers are the latest failure's.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> dltKafkaTemplate,
+                                                             RetryTiers tiers) {
         DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(
                 dltKafkaTemplate,
                 (record, ex) -> {
-                    // Route everything to the same partition in the DLT as the original record
-                    return new org.apache.kafka.common.TopicPartition(Topics.LEADS_DLT, record.partition());
+                    int tier = FailedRecordRecoverer.nextTier(tiers, record, ex);
+                    // A negative partition leaves the tier's partition to the producer (key hash)
+                    return tier > 0
+                            ? new TopicPartition(tiers.topic(tier), -1)
+                            : new TopicPartition(Topics.LEADS_DLT,
+                                    FailedRecordRecoverer.originPartition(tiers, record));
                 });
+        recoverer.setHeadersFunction((record, ex) -> {
+            int tier = FailedRecordRecoverer.nextTier(tiers, record, ex);
+            return tier > 0 ? tiers.headers(tier, System.currentTimeMillis()) : new RecordHeaders();
+        });
+        recoverer.setAppendOriginalHeaders(false);
+        return recoverer;
+    }
+
+    /** deadLetterRecoverer plus the retry / dead-letter counts, for the error handler and the listeners. */
+    @Bean
+    public FailedRecordRecoverer failedRecordRecoverer(DeadLetterPublishingRecoverer deadLetterRecoverer,
+                                                       RetryTiers tiers, ConsumerMetrics metrics) {
+        return new FailedRecordRecoverer(deadLetterRecoverer, tiers, metrics);
+    }
+
+    /** In-place retries of the error handler and of the parallel / pipeline listeners (RetryBackOff). */
+    @Bean
+    public RetryBackOff retryBackOff(
+            @Value("${app.kafka.retry.in-place-attempts:2}") long inPlaceAttempts,
+            @Value("${app.kafka.retry.in-place-interval-ms:500}") long inPlaceIntervalMs) {
+        return new RetryBackOff(inPlaceIntervalMs, inPlaceAttempts);
+    }
+
+    /**
+     * Virtual threads of the parallel listener mode, per key in order, with at most max-concurrency records in the
+     * database at once (default: the Hikari pool size).
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "parallel")
+    public KeyOrderedExecutor parallelExecutor(
+            DataSource dataSource,
+            @Value("${app.kafka.parallel.max-concurrency:0}") int maxConcurrency) {
+        int permits = maxConcurrency > 0 ? maxConcurrency
+                : dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+        log.info("Parallel fan-out processing with up to {} concurrent records", permits);
+        return new KeyOrderedExecutor(permits, "fanout-lead-");
+    }
+
+    /**
+     * Common error handler (leads.events and the retry tiers): a few quick in-place retries
+     * (app.kafka.retry.in-place-attempts, in-place-interval-ms), then FailedRecordRecoverer moves the record to the
+     * next retry tier or the DLT, so a poison record holds its partition for about a second, not indefinitely.
+     * Transient database failures (connection, lock timeouts) are retried in place with exponential backoff
+     * (1 s .. 10 s) until the database is back: every record would fail alike, moving them aside would only drain
+     * the topic through the tiers into the DLT.
+     * With offsets stored in the DB, a leads.events record moved aside also advances crm.lead_event_offset past it.
+     */
+    @Bean
+    public DefaultErrorHandler errorHandler(
+            FailedRecordRecoverer recoverer,
+            DbOffsets dbOffsets,
+            LeadOffsetRepository offsets,
+            RetryBackOff retryBackOff) {
+        DefaultErrorHandler handler = new DefaultErrorHandler((record, ex) -> {
+            recoverer.accept(record, ex);
+            if (dbOffsets.isEnabled() && Topics.LEADS.equals(record.topic())) {
+                offsets.upsertOffset(record.topic(), record.partition(), record.offset());
+            }
+        }, retryBackOff.inPlace());
 
-        DefaultErrorHandler handler = new DefaultErrorHandler(recoverer, backOff);
+        // Chosen on a record's first failure (and again when the exception changes)
+        handler.setBackOffFunction((record, ex) -> retryBackOff.forException(ex));
 
         // Don't retry deserialization/conversion problems – send straight to DLT
         handler.addNotRetryableExceptions(DeserializationException.class, ConversionException.class, IllegalArgumentException.class);
@@ -79,24 +224,119 @@ public class KafkaConsumerConfig {
      * Listener container factory for fan-out service:
      * - automatic ack (BATCH) after successful listener invocation
      * - missingTopicsFatal=false so the app doesn't die before topics exist (handy in dev)
+     * - app.kafka.listener.mode=batch: listeners receive the whole poll (LeadFanoutBatchListener)
+     * - app.kafka.listener.mode=parallel: records are acknowledged out of order from worker threads
+     *   (MANUAL + asyncAcks, LeadFanoutParallelListener)
+     * - app.kafka.listener.mode=pipeline: records are acknowledged in order by the pipeline's writer thread
+     *   (MANUAL), which is drained before revoked partitions are committed (LeadFanoutPipelineListener)
+     * - app.kafka.offsets.storage=db: no Kafka commits (MANUAL, never acknowledged); positions come from
+     *   crm.lead_event_offset on assignment (DbOffsets)
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, LeadEvent> kafkaListenerContainerFactory(
             ConsumerFactory<String, LeadEvent> consumerFactory,
-            DefaultErrorHandler errorHandler) {
+            DefaultErrorHandler errorHandler,
+            DbOffsets dbOffsets,
+            ObjectProvider<LeadFanoutPipelineListener> pipelineListener,
+            @Value("${app.kafka.listener.mode:record}") String listenerMode) {
 
         ConcurrentKafkaListenerContainerFactory<String, LeadEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(consumerFactory);
         factory.setCommonErrorHandler(errorHandler);
+        factory.setBatchListener("batch".equalsIgnoreCase(listenerMode));
 
-        // Auto-ack on successful record processing (BATCH groups poll results)
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        boolean parallel = "parallel".equalsIgnoreCase(listenerMode);
+        boolean pipeline = "pipeline".equalsIgnoreCase(listenerMode);
+        if ((parallel || pipeline) && dbOffsets.isEnabled()) {
+            throw new IllegalStateException("app.kafka.offsets.storage=db needs in-order processing; "
+                    + "use app.kafka.listener.mode=record or batch");
+        }
+        if (parallel) {
+            // Each record is acknowledged by its worker; commits advance per partition over acknowledged gaps only
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setAsyncAcks(true);
+        } else if (pipeline) {
+            // Acknowledged in order by the writer thread once written; drained before revoked partitions are committed
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setConsumerRebalanceListener(pipelineListener.getObject());
+        } else if (dbOffsets.isEnabled()) {
+            // Offsets are written with the lead rows; seek to them on assignment
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setConsumerRebalanceListener(dbOffsets);
+        } else {
+            // Auto-ack on successful record processing (BATCH groups poll results)
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        }
 
         // Don’t blow up if topic isn't there yet in local dev
         factory.setMissingTopicsFatal(false);
 
         return factory;
     }
+
+    /**
+     * Container factory of the retry tiers (LeadFanoutRetryListener), whatever the listener mode: one record at a
+     * time, acknowledged (MANUAL) once written or moved on; offsets always committed to Kafka.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LeadEvent> retryListenerContainerFactory(
+            ConsumerFactory<String, LeadEvent> consumerFactory,
+            DefaultErrorHandler errorHandler) {
+
+        ConcurrentKafkaListenerContainerFactory<String, LeadEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(errorHandler);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setMissingTopicsFatal(false);
+        return factory;
+    }
+
+    /**
+     * Batch size and linger of the pipeline writer (LeadFanoutPipelineListener), adapted to the write latency (AIMD):
+     * shrunk when the p99 of a window of batches exceeds target-p99-ms or the Hikari pool had threads waiting
+     * for a connection, grown while Postgres keeps up. app.kafka.pipeline.max-batch is the ceiling.
+     * Metrics: leads.pipeline.batch.size, leads.pipeline.linger, leads.pipeline.write.p99 (last window),
+     * leads.pipeline.sizer.decisions{decision=grow|shrink|hold}.
+     * Without it (app.kafka.pipeline.adaptive.enabled=false) batches are fixed at max-batch.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "pipeline")
+    @ConditionalOnBooleanProperty(name = "app.kafka.pipeline.adaptive.enabled", matchIfMissing = true)
+    public AimdBatchSizer pipelineBatchSizer(
+            DataSource dataSource,
+            MeterRegistry registry,
+            @Value("${app.kafka.pipeline.max-batch:2000}") int maxBatch,
+            @Value("${app.kafka.pipeline.adaptive.min-batch:50}") int minBatch,
+            @Value("${app.kafka.pipeline.adaptive.initial-batch:500}") int initialBatch,
+            @Value("${app.kafka.pipeline.adaptive.step:50}") int step,
+            @Value("${app.kafka.pipeline.adaptive.decrease-factor:0.5}") double decreaseFactor,
+            @Value("${app.kafka.pipeline.adaptive.target-p99-ms:250}") long targetP99Ms,
+            @Value("${app.kafka.pipeline.adaptive.max-linger-ms:20}") long maxLingerMs,
+            @Value("${app.kafka.pipeline.adaptive.window:20}") int window) {
+
+        AimdBatchSizer sizer = new AimdBatchSizer(minBatch, maxBatch, initialBatch, step, decreaseFactor,
+                targetP99Ms, maxLingerMs, window, () -> threadsAwaitingConnection(dataSource) > 0);
+
+        Gauge.builder("leads.pipeline.batch.size", sizer, AimdBatchSizer::batchSize)
+                .description("Current batch size limit of the pipeline writer").register(registry);
+        Gauge.builder("leads.pipeline.linger", sizer, s -> s.lingerNanos() / 1e6).baseUnit("milliseconds")
+                .description("Current wait of the pipeline writer for a batch to fill").register(registry);
+        Gauge.builder("leads.pipeline.write.p99", sizer, s -> s.lastP99Nanos() / 1e6).baseUnit("milliseconds")
+                .description("p99 batch write latency of the sizer's last window").register(registry);
+        for (AimdBatchSizer.Decision decision : AimdBatchSizer.Decision.values()) {
+            FunctionCounter.builder("leads.pipeline.sizer.decisions", sizer, s -> s.decisions(decision))
+                    .tag("decision", decision.name().toLowerCase(Locale.ROOT))
+                    .description("Batch sizer decisions").register(registry);
+        }
+        return sizer;
+    }
+
+    private static int threadsAwaitingConnection(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikari)) return 0;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean(); // null until the pool started
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
 }
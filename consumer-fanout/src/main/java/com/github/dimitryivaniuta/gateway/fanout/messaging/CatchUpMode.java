@@ -0,0 +1,61 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides per partition whether LeadFanoutBatchListener is catching up (COPY + merge) or near the head
+ * (multi-row INSERT): catch-up from enter-lag down to exit-lag, the gap keeping a partition from flapping.
+ * Lag is Consumer#currentLag (no broker round trip); unknown lag keeps the previous state.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "batch")
+public class CatchUpMode {
+
+    private final boolean enabled;
+    private final long enterLag;
+    private final long exitLag;
+    private final Map<TopicPartition, Boolean> catchingUp = new ConcurrentHashMap<>();
+
+    public CatchUpMode(
+            @Value("${app.fanout.catch-up.enabled:true}") boolean enabled,
+            @Value("${app.fanout.catch-up.enter-lag:50000}") long enterLag,
+            @Value("${app.fanout.catch-up.exit-lag:1000}") long exitLag) {
+        if (exitLag >= enterLag) {
+            throw new IllegalArgumentException("app.fanout.catch-up.exit-lag must be below enter-lag");
+        }
+        this.enabled = enabled;
+        this.enterLag = enterLag;
+        this.exitLag = exitLag;
+    }
+
+    /** Updates the state of {@code partitions} from the consumer's lag; true if any of them is catching up. */
+    public boolean isCatchingUp(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!enabled) return false;
+        boolean any = false;
+        for (TopicPartition tp : partitions) {
+            boolean was = catchingUp.getOrDefault(tp, false);
+            boolean now = was;
+            OptionalLong lag = consumer.currentLag(tp);
+            if (lag.isPresent()) {
+                now = was ? lag.getAsLong() > exitLag : lag.getAsLong() >= enterLag;
+                if (now != was) {
+                    catchingUp.put(tp, now);
+                    log.info("{} catch-up mode for {} (lag={})", now ? "Entering" : "Leaving", tp, lag.getAsLong());
+                }
+            }
+            any |= now;
+        }
+        return any;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadOffsetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Consumer positions kept in crm.lead_event_offset instead of Kafka (app.kafka.offsets.storage=db):
+ * - the listeners write the last processed offset per partition in the same transaction as the lead rows,
+ *   so a lead row and "its record was consumed" commit or roll back together (exactly-once into Postgres)
+ * - Kafka offset commits are off (AckMode.MANUAL, never acknowledged): no commit round trip per poll
+ * - on assignment, each partition is sought to stored offset + 1; records at or below the stored offset are
+ *   never fetched again, so they never reach the ON CONFLICT probe. Partitions without a row start from
+ *   Kafka's committed offset / auto.offset.reset (switching from storage=kafka continues where it was)
+ * Records sent to the DLT advance the stored offset too (KafkaConsumerConfig#errorHandler), and so do the
+ * records a listener handles without a lead write (null values, RecentEventFilter hits): {@link #advance}.
+ */
+@Slf4j
+@Component
+public class DbOffsets implements ConsumerAwareRebalanceListener {
+
+    private final LeadOffsetRepository offsets;
+    private final boolean enabled;
+
+    public DbOffsets(LeadOffsetRepository offsets,
+                     @Value("${app.kafka.offsets.storage:kafka}") String storage) {
+        this.offsets = offsets;
+        this.enabled = "db".equalsIgnoreCase(storage);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Stores {@code lastOffsets} (partition -> offset) of {@code topic} as processed; no-op with storage=kafka. */
+    public void advance(String topic, Map<Integer, Long> lastOffsets) {
+        if (!enabled) return;
+        lastOffsets.forEach((partition, offset) -> offsets.upsertOffset(topic, partition, offset));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!enabled || partitions.isEmpty()) return;
+        Set<String> topics = partitions.stream().map(TopicPartition::topic).collect(Collectors.toSet());
+        for (String topic : topics) {
+            Map<Integer, Long> stored = offsets.findOffsets(topic);
+            for (TopicPartition tp : partitions) {
+                Long last = tp.topic().equals(topic) ? stored.get(tp.partition()) : null;
+                if (last != null) {
+                    consumer.seek(tp, last + 1);
+                    log.info("Seeking {} to stored offset {}", tp, last + 1);
+                }
+            }
+        }
+    }
+}
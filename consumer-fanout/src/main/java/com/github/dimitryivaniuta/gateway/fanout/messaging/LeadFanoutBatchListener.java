@@ -0,0 +1,220 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Batch variant of LeadFanoutListener (app.kafka.listener.mode=batch): one poll is written in ONE
+ * transaction with multi-row INSERT ... ON CONFLICT DO NOTHING RETURNING event_id (LeadIngestService#ingestAll).
+ *
+ * Poison records: when the batch insert fails, the batch is bisected (each half in its own transaction,
+ * in order) down to the first record that fails on its own. Everything before it is committed, and
+ * BatchListenerFailedException(index) lets DefaultErrorHandler commit those offsets, retry from the failed
+ * record and send only that record to the DLT - not the whole poll.
+ * Transient database failures (connection, lock timeouts) are not bisected: the batch fails at its first
+ * record and is retried with backoff.
+ *
+ * Catch-up: while CatchUpMode reports a large lag on a partition of the poll, the batch goes through COPY into
+ * an unlogged staging table + one merge statement instead (LeadIngestService#ingestAllByCopy). If that fails for
+ * a non-transient reason, the batch is redone on the multi-row path, whose bisection isolates the bad record.
+ * Either way offsets are committed by the container (AckMode.BATCH) only after the listener returned, i.e.
+ * after the transaction of the merge committed.
+ *
+ * Events the RecentEventFilter finds already stored (one SELECT per partition for its "maybe seen" ids) are
+ * dropped from the batch before any of this.
+ *
+ * With app.kafka.offsets.storage=db (DbOffsets) every transaction above also stores the last offset per
+ * partition of the records it wrote, and Kafka commits are off. When the poll had records none of them wrote
+ * (null values, dropped events), the last offset per partition of the whole poll is stored once they succeeded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "batch")
+public class LeadFanoutBatchListener {
+
+    private final LeadIngestService ingest;
+    private final CatchUpMode catchUpMode;
+    private final DbOffsets dbOffsets;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
+
+    @KafkaListener(
+            topics = Topics.LEADS,
+            groupId = "crm-fanout",
+            concurrency = "${app.kafka.concurrency:3}"
+    )
+    public void onBatch(List<ConsumerRecord<String, LeadEvent>> records, Consumer<?, ?> consumer) {
+        List<LeadEvent> events = new ArrayList<>(records.size());
+        List<Integer> indexes = new ArrayList<>(records.size());
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, LeadEvent> rec = records.get(i);
+            partitions.add(new TopicPartition(rec.topic(), rec.partition()));
+            if (rec.value() == null) {
+                log.warn("Received null LeadEvent at topic={} partition={} offset={}", rec.topic(), rec.partition(), rec.offset());
+                continue;
+            }
+            events.add(rec.value());
+            indexes.add(i);
+        }
+        if (events.isEmpty()) {
+            dbOffsets.advance(records.get(0).topic(), lastOffsets(records));
+            return;
+        }
+
+        Map<Integer, List<LeadEvent>> byPartition = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            byPartition.computeIfAbsent(records.get(indexes.get(i)).partition(), p -> new ArrayList<>())
+                    .add(events.get(i));
+        }
+        int skipped = dropStored(records, events, indexes, byPartition);
+
+        boolean catchUp = catchUpMode.isCatchingUp(consumer, partitions);
+        int inserted = events.isEmpty() ? 0 : catchUp
+                ? ingestByCopy(records, events, indexes)
+                : ingestRange(records, events, indexes, 0, events.size());
+        byPartition.forEach(recent::markStored);
+        if (events.size() < records.size()) {
+            dbOffsets.advance(records.get(0).topic(), lastOffsets(records));
+        }
+        log.debug("Ingested batch of {} lead events ({}): {} new, {} duplicates ({} skipped by the dedupe filter)",
+                events.size() + skipped, catchUp ? "copy" : "insert", inserted, events.size() + skipped - inserted, skipped);
+    }
+
+    /** Removes the events RecentEventFilter reports as stored from events/indexes; returns how many. */
+    private int dropStored(List<ConsumerRecord<String, LeadEvent>> records, List<LeadEvent> events,
+                           List<Integer> indexes, Map<Integer, List<LeadEvent>> byPartition) {
+        Set<UUID> stored = new HashSet<>();
+        byPartition.forEach((partition, evs) -> stored.addAll(recent.storedAmong(partition, evs)));
+        if (stored.isEmpty()) return 0;
+        int before = events.size();
+        int kept = 0;
+        for (int i = 0; i < before; i++) {
+            if (!stored.contains(events.get(i).eventId())) {
+                events.set(kept, events.get(i));
+                indexes.set(kept, indexes.get(i));
+                kept++;
+                continue;
+            }
+            ConsumerRecord<String, LeadEvent> rec = records.get(indexes.get(i));
+            metrics.partition(rec.partition()).processed(rec.value(), false);
+            if (log.isDebugEnabled() && metrics.sampleLog()) {
+                log.debug("Duplicate lead (recently ingested) eventId={} partition={} offset={}",
+                        rec.value().eventId(), rec.partition(), rec.offset());
+            }
+        }
+        events.subList(kept, before).clear();
+        indexes.subList(kept, before).clear();
+        return before - kept;
+    }
+
+    /** Catch-up path: COPY + merge in one transaction; falls back to the bisecting multi-row path on bad data. */
+    private int ingestByCopy(List<ConsumerRecord<String, LeadEvent>> records, List<LeadEvent> events,
+                             List<Integer> indexes) {
+        try {
+            long start = System.nanoTime();
+            List<Boolean> results = dbOffsets.isEnabled()
+                    ? ingest.ingestAllByCopy(events, records.get(0).topic(), lastOffsets(records, indexes, 0, events.size()))
+                    : ingest.ingestAllByCopy(events);
+            metrics.recordWrite(start, events.size());
+            return processed(records, indexes, 0, results);
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                throw new BatchListenerFailedException("Failed to copy batch starting at eventId="
+                        + events.get(0).eventId(), ex, indexes.get(0));
+            }
+            log.warn("COPY of {} lead events failed, retrying them with INSERT: {}", events.size(), ex.toString());
+            return ingestRange(records, events, indexes, 0, events.size());
+        }
+    }
+
+    /** Ingests events[from, to) in one transaction, bisecting on failure; returns the number of new rows. */
+    private int ingestRange(List<ConsumerRecord<String, LeadEvent>> records, List<LeadEvent> events,
+                            List<Integer> indexes, int from, int to) {
+        try {
+            List<LeadEvent> range = events.subList(from, to);
+            long start = System.nanoTime();
+            List<Boolean> results = dbOffsets.isEnabled()
+                    ? ingest.ingestAll(range, records.get(0).topic(), lastOffsets(records, indexes, from, to))
+                    : ingest.ingestAll(range);
+            metrics.recordWrite(start, range.size());
+            return processed(records, indexes, from, results);
+        } catch (RuntimeException ex) {
+            if (to - from == 1 || isTransient(ex)) {
+                ConsumerRecord<String, LeadEvent> rec = records.get(indexes.get(from));
+                throw new BatchListenerFailedException("Failed to ingest lead eventId=" + rec.value().eventId(),
+                        ex, indexes.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            log.debug("Batch insert of {} events failed, bisecting: {}", to - from, ex.toString());
+            return ingestRange(records, events, indexes, from, mid) + ingestRange(records, events, indexes, mid, to);
+        }
+    }
+
+    /** Highest offset per partition among the records of events[from, to) (a poll is in offset order per partition). */
+    private static Map<Integer, Long> lastOffsets(List<ConsumerRecord<String, LeadEvent>> records,
+                                                  List<Integer> indexes, int from, int to) {
+        Map<Integer, Long> last = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            ConsumerRecord<String, LeadEvent> rec = records.get(indexes.get(i));
+            last.put(rec.partition(), rec.offset());
+        }
+        return last;
+    }
+
+    /** Highest offset per partition among all the records of the poll. */
+    private static Map<Integer, Long> lastOffsets(List<ConsumerRecord<String, LeadEvent>> records) {
+        Map<Integer, Long> last = new HashMap<>();
+        for (ConsumerRecord<String, LeadEvent> rec : records) {
+            last.put(rec.partition(), rec.offset());
+        }
+        return last;
+    }
+
+    /** Counts the outcomes of events[from, from + results.size()) in ConsumerMetrics; returns the number of new rows. */
+    private int processed(List<ConsumerRecord<String, LeadEvent>> records, List<Integer> indexes, int from,
+                          List<Boolean> results) {
+        int inserted = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ConsumerRecord<String, LeadEvent> rec = records.get(indexes.get(from + i));
+            boolean isNew = results.get(i);
+            metrics.partition(rec.partition()).processed(rec.value(), isNew);
+            if (isNew) inserted++;
+            if (log.isDebugEnabled() && metrics.sampleLog()) {
+                log.debug("{} lead eventId={} partition={} offset={}", isNew ? "Ingested" : "Duplicate",
+                        rec.value().eventId(), rec.partition(), rec.offset());
+            }
+        }
+        return inserted;
+    }
+
+    private static boolean isTransient(Throwable ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof CannotCreateTransactionException;
+    }
+}
@@ -1,24 +1,35 @@
 package com.github.dimitryivaniuta.gateway.fanout.messaging;
 
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
 import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 /**
  * Fan-out consumer: receives every record (own group) and persists idempotently.
- * Ack mode is configured in KafkaConsumerConfig (BATCH auto-ack).
+ * Ack mode is configured in KafkaConsumerConfig (BATCH auto-ack, or none when offsets are stored in the DB: DbOffsets).
+ * Record mode (app.kafka.listener.mode=record, default); see LeadFanoutBatchListener for batch mode.
+ * Outcomes are counted in ConsumerMetrics; only a sample of them is logged (DEBUG).
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "record", matchIfMissing = true)
 public class LeadFanoutListener {
 
     private final LeadIngestService ingest;
+    private final DbOffsets dbOffsets;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
 
     @KafkaListener(
             topics = Topics.LEADS,
@@ -30,18 +41,33 @@ public class LeadFanoutListener {
         if (event == null) {
             // deserialization issues are handled by DefaultErrorHandler; just log a guard here
             log.warn("Received null LeadEvent at topic={} partition={} offset={}", rec.topic(), rec.partition(), rec.offset());
+            dbOffsets.advance(rec.topic(), Map.of(rec.partition(), rec.offset()));
+            return;
+        }
+
+        // Replays/retries of recently stored events: no lead write (only the offset row with offsets.storage=db)
+        if (recent.isStored(rec.partition(), event)) {
+            dbOffsets.advance(rec.topic(), Map.of(rec.partition(), rec.offset()));
+            metrics.partition(rec.partition()).processed(event, false);
+            if (log.isDebugEnabled() && metrics.sampleLog()) {
+                log.debug("Duplicate lead (recently ingested) eventId={} partition={} offset={}",
+                        event.eventId(), rec.partition(), rec.offset());
+            }
             return;
         }
 
-        // Idempotent sink; single-statement upsert inside service
-        boolean inserted = ingest.ingest(event);
+        // Idempotent sink; single-statement upsert inside service (plus the offset row with offsets.storage=db)
+        long start = System.nanoTime();
+        boolean inserted = dbOffsets.isEnabled()
+                ? ingest.ingest(event, rec.topic(), rec.partition(), rec.offset())
+                : ingest.ingest(event);
+        metrics.recordWrite(start, 1);
+        recent.markStored(rec.partition(), event);
+        metrics.partition(rec.partition()).processed(event, inserted);
 
-        if (inserted && log.isInfoEnabled()) {
-            log.info("Ingested lead eventId={} key={} partition={} offset={}",
+        if (log.isDebugEnabled() && metrics.sampleLog()) {
+            log.debug("{} lead eventId={} key={} partition={} offset={}", inserted ? "Ingested" : "Duplicate",
                     event.eventId(), rec.key(), rec.partition(), rec.offset());
-        } else if (log.isDebugEnabled()) {
-            log.debug("Duplicate lead (already ingested) eventId={} partition={} offset={}",
-                    event.eventId(), rec.partition(), rec.offset());
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.FailedRecordRecoverer;
+import com.github.dimitryivaniuta.gateway.common.kafka.KeyOrderedLeadListener;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryBackOff;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parallel variant of LeadFanoutListener (app.kafka.listener.mode=parallel, KeyOrderedLeadListener), on the
+ * executor of KafkaConsumerConfig#parallelExecutor.
+ * Offsets in the DB (app.kafka.offsets.storage=db) need in-order processing and are rejected in this mode.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "parallel")
+public class LeadFanoutParallelListener extends KeyOrderedLeadListener {
+
+    private final LeadIngestService ingest;
+
+    public LeadFanoutParallelListener(
+            LeadIngestService ingest,
+            KeyOrderedExecutor parallelExecutor,
+            RecentEventFilter recent,
+            ConsumerMetrics metrics,
+            FailedRecordRecoverer failed,
+            RetryBackOff retryBackOff) {
+        super(parallelExecutor, recent, metrics, failed, retryBackOff);
+        this.ingest = ingest;
+    }
+
+    @KafkaListener(
+            topics = Topics.LEADS,
+            groupId = "crm-fanout",
+            concurrency = "${app.kafka.concurrency:3}"
+    )
+    public void onMessage(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        onRecord(rec, ack);
+    }
+
+    @Override
+    protected boolean write(LeadEvent event) {
+        return ingest.ingest(event);
+    }
+}
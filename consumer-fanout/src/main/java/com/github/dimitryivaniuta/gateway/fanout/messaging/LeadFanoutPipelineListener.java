@@ -0,0 +1,70 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.AimdBatchSizer;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.FailedRecordRecoverer;
+import com.github.dimitryivaniuta.gateway.common.kafka.PipelinedLeadListener;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryBackOff;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pipelined variant of LeadFanoutListener (app.kafka.listener.mode=pipeline, PipelinedLeadListener): batches are
+ * ingested with LeadIngestService#ingestAll.
+ * Offsets in the DB (app.kafka.offsets.storage=db) are not supported in this mode.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "pipeline")
+public class LeadFanoutPipelineListener extends PipelinedLeadListener {
+
+    static final String LISTENER_ID = "crm-fanout-pipeline";
+
+    private final LeadIngestService ingest;
+
+    public LeadFanoutPipelineListener(
+            LeadIngestService ingest,
+            RecentEventFilter recent,
+            ConsumerMetrics metrics,
+            FailedRecordRecoverer failed,
+            RetryBackOff retryBackOff,
+            KafkaListenerEndpointRegistry registry,
+            ObjectProvider<AimdBatchSizer> sizer,
+            @Value("${app.kafka.pipeline.capacity:10000}") int capacity,
+            @Value("${app.kafka.pipeline.max-batch:2000}") int maxBatch,
+            @Value("${app.kafka.pipeline.drain-timeout-ms:10000}") long drainTimeoutMs,
+            @Value("${spring.kafka.consumer.max-poll-records:500}") int maxPollRecords,
+            @Value("${app.kafka.concurrency:3}") int concurrency) {
+        super(LISTENER_ID, registry, recent, metrics, failed, retryBackOff, sizer.getIfAvailable(),
+                new Settings(capacity, maxBatch, drainTimeoutMs, maxPollRecords, concurrency));
+        this.ingest = ingest;
+    }
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = Topics.LEADS,
+            groupId = "crm-fanout",
+            concurrency = "${app.kafka.concurrency:3}"
+    )
+    public void onMessage(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        onRecord(rec, ack);
+    }
+
+    @Override
+    protected List<Boolean> write(String topic, List<LeadEvent> events, Map<Integer, Long> lastOffsets) {
+        return ingest.ingestAll(events);
+    }
+}
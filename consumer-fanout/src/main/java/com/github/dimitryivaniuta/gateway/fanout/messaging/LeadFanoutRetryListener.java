@@ -0,0 +1,53 @@
+package com.github.dimitryivaniuta.gateway.fanout.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTierListener;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTiers;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.fanout.service.LeadIngestService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retry tiers of the crm-fanout group (RetryTierListener): records moved aside come back here and are written
+ * as LeadFanoutListener does.
+ * - own group (crm-fanout-retry), MANUAL acks, offsets committed to Kafka in every listener mode
+ * Retried records can overtake later events of the same lead: crm.lead is keyed per event and crm.lead_current
+ * only takes a newer (occurred_at, event_id), so the outcome does not depend on the order.
+ */
+@Component
+@ConditionalOnBooleanProperty(name = "app.kafka.retry.enabled", matchIfMissing = true)
+public class LeadFanoutRetryListener extends RetryTierListener {
+
+    private static final String ID = "crm-fanout-retry";
+
+    private final LeadIngestService ingest;
+
+    public LeadFanoutRetryListener(LeadIngestService ingest, RecentEventFilter recent, ConsumerMetrics metrics,
+                                   RetryTiers tiers, KafkaListenerEndpointRegistry registry) {
+        super(ID, recent, metrics, tiers, registry);
+        this.ingest = ingest;
+    }
+
+    @KafkaListener(
+            id = ID,
+            topics = "#{__listener.topics()}",
+            groupId = ID,
+            concurrency = "${app.kafka.retry.concurrency:1}",
+            containerFactory = "retryListenerContainerFactory"
+    )
+    public void onMessage(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack, Consumer<?, ?> consumer) {
+        onRecord(rec, ack, consumer);
+    }
+
+    @Override
+    protected boolean write(LeadEvent event) {
+        return ingest.ingest(event);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Maps to table crm.lead_current: latest state per (tenant_id, lead_id)
+ * Flyway DDL:
+ *  - PRIMARY KEY (tenant_id, lead_id)
+ * Written only through LeadCurrentRepository#upsertLatest (guarded by occurred_at, event_id).
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "lead_current")
+public class LeadCurrentEntity {
+
+    @EmbeddedId
+    private LeadCurrentKey id;
+
+    /** Event the current state comes from. */
+    @Column(name = "event_id", nullable = false, columnDefinition = "uuid")
+    private UUID eventId;
+
+    /** LeadEventType of that event; null for rows backfilled from crm.lead. */
+    @Column(name = "last_event_type")
+    private String lastEventType;
+
+    @Column(name = "full_name", nullable = false)
+    private String fullName;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "phone")
+    private String phone;
+
+    @Column(name = "city")
+    private String city;
+
+    @Column(name = "source")
+    private String source;
+
+    @Column(name = "budget_usd")
+    private Integer budgetUsd;
+
+    @Column(name = "occurred_at", nullable = false, columnDefinition = "timestamptz")
+    private Instant occurredAt;
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "timestamptz")
+    private Instant updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class LeadCurrentKey {
+
+    @Column(name = "tenant_id", nullable = false) private String tenantId;
+
+    @Column(name = "lead_id", nullable = false)   private String leadId;
+}
@@ -10,8 +10,9 @@ import java.util.UUID;
 /**
  * Maps to table crm.lead
  * Flyway DDL:
- *  - UNIQUE (event_id)
- *  - indexes on (tenant_id), (lead_id), (occurred_at)
+ *  - range-partitioned by occurred_at, one partition per month (LeadPartitionMaintenance)
+ *  - PRIMARY KEY (event_id, occurred_at) (LeadKey), as the partition key must be part of it
+ *  - indexes on (tenant_id), (lead_id); (occurred_at) per partition, B-tree or BRIN by age
  */
 @Getter
 @Setter
@@ -19,12 +20,12 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@IdClass(LeadKey.class)
 @Table(
         name = "lead",
         indexes = {
                 @Index(name = "idx_lead_tenant", columnList = "tenant_id"),
-                @Index(name = "idx_lead_lead_id", columnList = "lead_id"),
-                @Index(name = "idx_lead_occurred_at", columnList = "occurred_at")
+                @Index(name = "idx_lead_lead_id", columnList = "lead_id")
         }
 )
 public class LeadEntity {
@@ -58,7 +59,8 @@ public class LeadEntity {
     @Column(name = "budget_usd")
     private Integer budgetUsd;
 
-    @Column(name = "occurred_at", nullable = false, columnDefinition = "timestamptz")
+    @Id
+    @Column(name = "occurred_at", nullable = false, updatable = false, columnDefinition = "timestamptz")
     private Instant occurredAt;
 
     @Column(name = "created_at", nullable = false, columnDefinition = "timestamptz")
@@ -72,7 +74,7 @@ public class LeadEntity {
     }
 
     /**
-     * Natural equality by unique business key (eventId).
+     * Natural equality by eventId: an event always carries the same occurredAt.
      * NOTE: eventId is always set from the Kafka event before persist.
      */
     @Override
@@ -0,0 +1,20 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.entity;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/** Primary key of crm.lead: (event_id, occurred_at), occurred_at being the partition key. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class LeadKey implements Serializable {
+
+    private UUID eventId;
+
+    private Instant occurredAt;
+}
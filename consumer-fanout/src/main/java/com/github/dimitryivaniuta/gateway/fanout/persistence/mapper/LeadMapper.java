@@ -2,6 +2,8 @@ package com.github.dimitryivaniuta.gateway.fanout.persistence.mapper;
 
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
 import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentKey;
 import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
 import org.springframework.stereotype.Component;
 
@@ -27,4 +29,21 @@ public class LeadMapper {
                 .occurredAt(e.occurredAt())
                 .build();
     }
+
+    /** Current-state row of the event's lead (crm.lead_current); updatedAt is set by the database. */
+    public LeadCurrentEntity toCurrent(LeadEvent e) {
+        LeadPayload p = e.payload();
+        return LeadCurrentEntity.builder()
+                .id(new LeadCurrentKey(e.tenantId(), p.leadId()))
+                .eventId(e.eventId())
+                .lastEventType(e.type().name())
+                .fullName(p.fullName())
+                .email(p.email())
+                .phone(p.phone())
+                .city(p.city())
+                .source(p.source())
+                .budgetUsd(p.budgetUsd())
+                .occurredAt(e.occurredAt())
+                .build();
+    }
 }
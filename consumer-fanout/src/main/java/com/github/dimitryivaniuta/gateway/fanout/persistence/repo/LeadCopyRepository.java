@@ -0,0 +1,16 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public interface LeadCopyRepository {
+    /**
+     * Bulk path for catch-up: streams the rows with COPY into a session temp table and merges them into
+     * crm.lead with ON CONFLICT (event_id, occurred_at) DO NOTHING, all in one transaction.
+     * @return event ids of the rows actually inserted (ids missing from it were duplicates)
+     */
+    Set<UUID> copyInsertAllIfAbsent(List<LeadEntity> entities);
+}
@@ -0,0 +1,135 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+class LeadCopyRepositoryImpl implements LeadCopyRepository {
+
+    /** Rows are sent to the server in chunks of about this size while the batch is encoded. */
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    /** Per connection, emptied at every commit; a rollback discards the staged rows (or the new table) too. */
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS lead_copy_staging (
+                event_id     UUID        NOT NULL,
+                tenant_id    TEXT        NOT NULL,
+                lead_id      TEXT        NOT NULL,
+                full_name    TEXT        NOT NULL,
+                email        TEXT,
+                phone        TEXT,
+                city         TEXT,
+                source       TEXT,
+                budget_usd   INTEGER,
+                occurred_at  TIMESTAMPTZ NOT NULL
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_SQL = """
+            COPY pg_temp.lead_copy_staging
+              (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at)
+            FROM STDIN
+            """;
+
+    private final EntityManager em;
+
+    /** COPY into the session's temp staging table, then INSERT ... SELECT it into crm.lead, on one connection. */
+    @Transactional
+    @Override
+    public Set<UUID> copyInsertAllIfAbsent(List<LeadEntity> entities) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var st = connection.createStatement()) {
+                st.execute(CREATE_STAGING_SQL);
+            }
+            copy(connection.unwrap(PGConnection.class), COPY_SQL, entities);
+        });
+
+        var merge = """
+            INSERT INTO crm.lead
+              (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, created_at)
+            SELECT event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, now()
+              FROM pg_temp.lead_copy_staging
+            ON CONFLICT (event_id, occurred_at) DO NOTHING
+            RETURNING event_id
+            """;
+        Set<UUID> inserted = new HashSet<>(entities.size() * 2);
+        for (Object id : em.createNativeQuery(merge).getResultList()) {
+            inserted.add((UUID) id);
+        }
+        return inserted;
+    }
+
+    /**
+     * COPY ... FROM STDIN (text format) of the lead columns, event_id ... occurred_at.
+     * Also used by LeadRebuildRepositoryImpl.
+     */
+    static void copy(PGConnection connection, String copySql, List<LeadEntity> entities)
+            throws SQLException {
+        CopyIn copy = connection.getCopyAPI().copyIn(copySql);
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 1024);
+            StringBuilder row = new StringBuilder(256);
+            for (LeadEntity e : entities) {
+                row.setLength(0);
+                row.append(e.getEventId());
+                field(row, e.getTenantId());
+                field(row, e.getLeadId());
+                field(row, e.getFullName());
+                field(row, e.getEmail());
+                field(row, e.getPhone());
+                field(row, e.getCity());
+                field(row, e.getSource());
+                field(row, e.getBudgetUsd() == null ? null : e.getBudgetUsd().toString());
+                field(row, e.getOccurredAt() == null ? null : e.getOccurredAt().toString()); // ISO-8601, UTC
+                row.append('\n');
+                buf.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+                if (buf.size() >= COPY_CHUNK_BYTES) {
+                    copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+                    buf.reset();
+                }
+            }
+            if (buf.size() > 0) {
+                copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+            }
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    /** Appends a tab and the value in COPY text format: \N for NULL, backslash escapes for the delimiters. */
+    private static void field(StringBuilder row, String value) {
+        row.append('\t');
+        if (value == null) {
+            row.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentEntity;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface LeadCurrentRepository {
+    /**
+     * Upserts the current state of each lead, with multi-row INSERT ... ON CONFLICT (tenant_id, lead_id) DO UPDATE
+     * statements. A stored row is replaced only by a later event: (occurred_at, event_id) must be greater, so
+     * replays and out-of-order events leave it unchanged.
+     * The (tenant_id, lead_id) keys must be distinct (conflate first): one statement cannot update a row twice.
+     * @return number of rows inserted or replaced
+     */
+    int upsertLatest(Collection<LeadCurrentEntity> rows);
+
+    /** Current state of a lead (primary key lookup). */
+    Optional<LeadCurrentEntity> find(String tenantId, String leadId);
+}
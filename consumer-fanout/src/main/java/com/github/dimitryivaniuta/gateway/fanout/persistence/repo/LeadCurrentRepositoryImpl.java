@@ -0,0 +1,76 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.common.sql.MultiRowValues;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentKey;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+class LeadCurrentRepositoryImpl implements LeadCurrentRepository {
+
+    private final EntityManager em;
+
+    /** The row comparison takes event_id (UUIDv7) as tie-break for events with the same occurred_at. */
+    @Transactional
+    @Override
+    public int upsertLatest(Collection<LeadCurrentEntity> rows) {
+        int written = 0;
+        for (List<LeadCurrentEntity> chunk : MultiRowValues.chunks(new ArrayList<>(rows))) {
+            var q = em.createNativeQuery(multiRowUpsert(chunk.size()));
+            int p = 1;
+            for (LeadCurrentEntity c : chunk) {
+                q.setParameter(p++, c.getId().getTenantId())
+                 .setParameter(p++, c.getId().getLeadId())
+                 .setParameter(p++, c.getEventId())
+                 .setParameter(p++, c.getLastEventType())
+                 .setParameter(p++, c.getFullName())
+                 .setParameter(p++, c.getEmail())
+                 .setParameter(p++, c.getPhone())
+                 .setParameter(p++, c.getCity())
+                 .setParameter(p++, c.getSource())
+                 .setParameter(p++, c.getBudgetUsd())
+                 .setParameter(p++, c.getOccurredAt());
+            }
+            written += q.executeUpdate();
+        }
+        return written;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<LeadCurrentEntity> find(String tenantId, String leadId) {
+        return Optional.ofNullable(em.find(LeadCurrentEntity.class, new LeadCurrentKey(tenantId, leadId)));
+    }
+
+    private static String multiRowUpsert(int rows) {
+        return """
+            INSERT INTO crm.lead_current
+              (tenant_id, lead_id, event_id, last_event_type, full_name, email, phone, city, source, budget_usd,
+               occurred_at, updated_at)
+            VALUES
+            """ + MultiRowValues.of(rows, "?", "?", "?", "CAST(? AS TEXT)", "?", "CAST(? AS TEXT)", "CAST(? AS TEXT)",
+                "CAST(? AS TEXT)", "CAST(? AS TEXT)", "CAST(? AS INTEGER)", "?", "now()") + """
+
+            ON CONFLICT (tenant_id, lead_id) DO UPDATE SET
+              event_id        = EXCLUDED.event_id,
+              last_event_type = EXCLUDED.last_event_type,
+              full_name       = EXCLUDED.full_name,
+              email           = EXCLUDED.email,
+              phone           = EXCLUDED.phone,
+              city            = EXCLUDED.city,
+              source          = EXCLUDED.source,
+              budget_usd      = EXCLUDED.budget_usd,
+              occurred_at     = EXCLUDED.occurred_at,
+              updated_at      = now()
+            WHERE (lead_current.occurred_at, lead_current.event_id) < (EXCLUDED.occurred_at, EXCLUDED.event_id)""";
+    }
+}
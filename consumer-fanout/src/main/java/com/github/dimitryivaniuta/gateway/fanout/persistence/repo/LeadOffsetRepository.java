@@ -1,5 +1,10 @@
 package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
 
+import java.util.Map;
+
 public interface LeadOffsetRepository {
     void upsertOffset(String topic, int partitionId, long offset);
-}
\ No newline at end of file
+
+    /** Last processed offset per partition of {@code topic}. */
+    Map<Integer, Long> findOffsets(String topic);
+}
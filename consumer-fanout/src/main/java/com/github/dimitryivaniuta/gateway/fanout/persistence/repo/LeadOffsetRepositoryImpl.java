@@ -5,6 +5,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Repository
 @RequiredArgsConstructor
 class LeadOffsetRepositoryImpl implements LeadOffsetRepository {
@@ -27,4 +31,23 @@ class LeadOffsetRepositoryImpl implements LeadOffsetRepository {
                 .setParameter("off", offset)
                 .executeUpdate();
     }
-}
\ No newline at end of file
+
+    @Transactional(readOnly = true)
+    @Override
+    public Map<Integer, Long> findOffsets(String topic) {
+        var sql = """
+            SELECT partition_id, last_offset
+              FROM crm.lead_event_offset
+             WHERE topic = :topic
+            """;
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(sql)
+                .setParameter("topic", topic)
+                .getResultList();
+        Map<Integer, Long> offsets = new HashMap<>();
+        for (Object[] row : rows) {
+            offsets.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return offsets;
+    }
+}
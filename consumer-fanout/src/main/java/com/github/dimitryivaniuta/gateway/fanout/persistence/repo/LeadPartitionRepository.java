@@ -0,0 +1,36 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * DDL on the monthly partitions of crm.lead (crm.lead_yYYYYmMM), see V20251017.000003__lead_partitioned.sql.
+ * All operations are idempotent; several instances may run them.
+ */
+public interface LeadPartitionRepository {
+
+    /** A monthly partition attached to crm.lead; {@code brin}: its occurred_at index is BRIN already. */
+    record Partition(String name, YearMonth month, boolean brin) { }
+
+    /** Attached monthly partitions, oldest first (lead_default is not listed). */
+    List<Partition> partitions();
+
+    /**
+     * Creates the partition of {@code month} if missing (crm.lead_create_partition), moving rows lead_default
+     * holds for that month into it.
+     * @return true if it was created
+     */
+    boolean createPartition(YearMonth month);
+
+    /** Replaces the B-tree index on occurred_at of the partition with a BRIN index (both CONCURRENTLY). */
+    void switchToBrin(Partition partition);
+
+    /** Detaches the partition from crm.lead; it stays as a plain table (to archive or drop by hand). */
+    void detach(Partition partition, long lockTimeoutMs);
+
+    /** Drops the partition and its rows. */
+    void drop(Partition partition, long lockTimeoutMs);
+
+    /** True if lead_default holds rows (events outside every created month). */
+    boolean hasDefaultRows();
+}
@@ -0,0 +1,94 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plain JDBC: the CONCURRENTLY index builds cannot run inside a transaction. Partition names come from
+ * pg_inherits and are checked against NAME before they are put into a statement.
+ */
+@Repository
+@RequiredArgsConstructor
+class LeadPartitionRepositoryImpl implements LeadPartitionRepository {
+
+    private static final Pattern NAME = Pattern.compile("lead_y(\\d{4})m(\\d{2})");
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public List<Partition> partitions() {
+        var sql = """
+            SELECT c.relname,
+                   EXISTS (SELECT 1
+                             FROM pg_index i
+                             JOIN pg_class ic ON ic.oid = i.indexrelid
+                             JOIN pg_am am    ON am.oid = ic.relam
+                            WHERE i.indrelid = c.oid AND i.indisvalid AND am.amname = 'brin') AS brin
+              FROM pg_inherits h
+              JOIN pg_class c ON c.oid = h.inhrelid
+             WHERE h.inhparent = 'crm.lead'::regclass
+             ORDER BY c.relname
+            """;
+        return jdbc.query(sql, (rs, n) -> {
+                    Matcher m = NAME.matcher(rs.getString(1));
+                    return m.matches()
+                            ? new Partition(rs.getString(1),
+                                    YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))),
+                                    rs.getBoolean(2))
+                            : null;
+                }).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public boolean createPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT crm.lead_create_partition(?)", Boolean.class,
+                month.atDay(1)));
+    }
+
+    /** BRIN first, so the partition is never without an occurred_at index; a leftover invalid build is dropped. */
+    @Override
+    public void switchToBrin(Partition partition) {
+        String table = checked(partition);
+        jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS crm." + table + "_occurred_at_brin");
+        jdbc.execute("CREATE INDEX CONCURRENTLY " + table + "_occurred_at_brin ON crm." + table
+                + " USING brin (occurred_at) WITH (pages_per_range = 32)");
+        jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS crm." + table + "_occurred_at");
+    }
+
+    /** Takes an ACCESS EXCLUSIVE lock on crm.lead: gives up after lockTimeoutMs rather than queue the writers. */
+    @Transactional
+    @Override
+    public void detach(Partition partition, long lockTimeoutMs) {
+        jdbc.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbc.execute("ALTER TABLE crm.lead DETACH PARTITION crm." + checked(partition));
+    }
+
+    @Transactional
+    @Override
+    public void drop(Partition partition, long lockTimeoutMs) {
+        jdbc.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbc.execute("DROP TABLE crm." + checked(partition));
+    }
+
+    @Override
+    public boolean hasDefaultRows() {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM crm.lead_default)", Boolean.class));
+    }
+
+    private static String checked(Partition partition) {
+        if (!NAME.matcher(partition.name()).matches()) {
+            throw new IllegalArgumentException("Not a crm.lead partition: " + partition.name());
+        }
+        return partition.name();
+    }
+}
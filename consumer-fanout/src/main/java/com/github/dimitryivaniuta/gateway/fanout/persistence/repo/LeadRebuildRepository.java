@@ -0,0 +1,11 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.common.rebuild.ShadowRebuildRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+
+/**
+ * Shadow tables of a rebuild of crm.lead (LeadRebuildService), see V20251017.000004__lead_rebuild.sql. The shadow
+ * table is partitioned like crm.lead; finish builds its key and indexes.
+ */
+public interface LeadRebuildRepository extends ShadowRebuildRepository<LeadEntity> {
+}
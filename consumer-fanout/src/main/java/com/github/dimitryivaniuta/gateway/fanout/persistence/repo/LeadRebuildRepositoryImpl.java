@@ -0,0 +1,105 @@
+package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * DDL and bulk load in plain JDBC (autocommit, long statements, several loader threads at once); the rows
+ * added after the load and the swap go through the transaction, like the live writes.
+ */
+@Repository
+@RequiredArgsConstructor
+class LeadRebuildRepositoryImpl implements LeadRebuildRepository {
+
+    private static final String COPY_SQL = """
+            COPY crm.lead_rebuild_load
+              (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at)
+            FROM STDIN
+            """;
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbc;
+    private final DataSource dataSource;
+
+    @Override
+    public void prepare() {
+        jdbc.execute("SELECT crm.lead_rebuild_prepare()");
+    }
+
+    @Override
+    public void load(List<LeadEntity> entities) {
+        if (entities.isEmpty()) return;
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            LeadCopyRepositoryImpl.copy(connection.unwrap(PGConnection.class), COPY_SQL, entities);
+            return null;
+        });
+    }
+
+    @Override
+    public long finish() {
+        return Objects.requireNonNull(jdbc.queryForObject("SELECT crm.lead_rebuild_finish()", Long.class));
+    }
+
+    @Transactional
+    @Override
+    public int insertAllIfAbsent(List<LeadEntity> entities) {
+        return LeadUpsertRepositoryImpl.insertAllIfAbsent(em, "crm.lead_rebuild", entities).size();
+    }
+
+    /**
+     * Lock order as lead_create_partition (partition lock, then crm.lead), so the swap cannot deadlock with
+     * the partition maintenance. EXCLUSIVE waits for the writes in flight to commit and blocks new ones; the
+     * swap itself upgrades to ACCESS EXCLUSIVE for the renames. The writers blocked meanwhile resolve the
+     * name crm.lead again once they get the lock, and write into the new table.
+     */
+    @Transactional
+    @Override
+    public String swap(String suffix, long lockTimeoutMs, Supplier<List<LeadEntity>> last) {
+        jdbc.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbc.execute("SELECT pg_advisory_xact_lock(hashtext('crm.lead_create_partition'))");
+        jdbc.execute("LOCK TABLE crm.lead IN EXCLUSIVE MODE");
+        LeadUpsertRepositoryImpl.insertAllIfAbsent(em, "crm.lead_rebuild", last.get());
+        return jdbc.queryForObject("SELECT crm.lead_rebuild_swap(?)", String.class, suffix);
+    }
+
+    @Override
+    public void abort() {
+        jdbc.execute("SELECT crm.lead_rebuild_abort()");
+    }
+
+    @Override
+    public Ownership own() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        boolean locked = false;
+        try {
+            locked = Boolean.TRUE.equals(session.queryForObject(
+                    "SELECT pg_try_advisory_lock(hashtext('crm.lead_rebuild'))", Boolean.class));
+        } finally {
+            if (!locked) DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        if (!locked) throw new IllegalStateException("A rebuild of crm.lead is running on another instance");
+        // A pooled connection outlives close(): the lock is released explicitly
+        return () -> {
+            try {
+                session.execute("SELECT pg_advisory_unlock(hashtext('crm.lead_rebuild'))");
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        };
+    }
+}
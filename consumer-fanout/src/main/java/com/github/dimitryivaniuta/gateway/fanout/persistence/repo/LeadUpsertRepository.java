@@ -2,9 +2,29 @@ package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
 
 import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 public interface LeadUpsertRepository {
     /**
      * @return true if inserted (new), false if duplicate (already existed)
      */
     boolean insertIfAbsent(LeadEntity e);
-}
\ No newline at end of file
+
+    /**
+     * Inserts all rows in one transaction, with multi-row INSERT ... ON CONFLICT DO NOTHING statements.
+     * @return event ids of the rows actually inserted (ids missing from it were duplicates)
+     */
+    Set<UUID> insertAllIfAbsent(List<LeadEntity> entities);
+
+    /**
+     * One SELECT joining the (event_id, occurred_at) pairs to crm.lead: each pair probes the primary key of
+     * its month's partition only (run-time partition pruning).
+     * @param occurredAtByEventId occurred_at of each event id to look up
+     * @return the ids among them already stored
+     */
+    Set<UUID> findExisting(Map<UUID, Instant> occurredAtByEventId);
+}
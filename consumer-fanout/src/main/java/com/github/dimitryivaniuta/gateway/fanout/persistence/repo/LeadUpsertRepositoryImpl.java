@@ -1,17 +1,26 @@
 package com.github.dimitryivaniuta.gateway.fanout.persistence.repo;
 
-
+import com.github.dimitryivaniuta.gateway.common.sql.MultiRowValues;
 import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 @Repository
 @RequiredArgsConstructor
 class LeadUpsertRepositoryImpl implements LeadUpsertRepository {
 
     private final EntityManager em;
+    private final JdbcTemplate jdbc;
 
     @Transactional
     @Override
@@ -21,7 +30,7 @@ class LeadUpsertRepositoryImpl implements LeadUpsertRepository {
               (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, created_at)
             VALUES
               (:eventId, :tenantId, :leadId, :fullName, :email, :phone, :city, :source, :budgetUsd, :occurredAt, now())
-            ON CONFLICT (event_id) DO NOTHING
+            ON CONFLICT (event_id, occurred_at) DO NOTHING
             """;
         var q = em.createNativeQuery(sql)
                 .setParameter("eventId",   e.getEventId())
@@ -37,4 +46,74 @@ class LeadUpsertRepositoryImpl implements LeadUpsertRepository {
         int updated = q.executeUpdate();   // 1 = inserted, 0 = duplicate
         return updated == 1;
     }
-}
\ No newline at end of file
+
+    /** RETURNING lists only the rows inserted, which tells new events from duplicates without extra reads. */
+    @Transactional
+    @Override
+    public Set<UUID> insertAllIfAbsent(List<LeadEntity> entities) {
+        return insertAllIfAbsent(em, "crm.lead", entities);
+    }
+
+    /** The multi-row insert into {@code table} (crm.lead or its layout); also used by LeadRebuildRepositoryImpl. */
+    static Set<UUID> insertAllIfAbsent(EntityManager em, String table, List<LeadEntity> entities) {
+        Set<UUID> inserted = new HashSet<>(entities.size() * 2);
+        for (List<LeadEntity> chunk : MultiRowValues.chunks(entities)) {
+            var q = em.createNativeQuery(multiRowInsert(table, chunk.size()));
+            int p = 1;
+            for (LeadEntity e : chunk) {
+                q.setParameter(p++, e.getEventId())
+                 .setParameter(p++, e.getTenantId())
+                 .setParameter(p++, e.getLeadId())
+                 .setParameter(p++, e.getFullName())
+                 .setParameter(p++, e.getEmail())
+                 .setParameter(p++, e.getPhone())
+                 .setParameter(p++, e.getCity())
+                 .setParameter(p++, e.getSource())
+                 .setParameter(p++, e.getBudgetUsd())
+                 .setParameter(p++, e.getOccurredAt());
+            }
+            for (Object id : q.getResultList()) {
+                inserted.add((UUID) id);
+            }
+        }
+        return inserted;
+    }
+
+    /** Plain JDBC: a read outside a transaction needs no EntityManager. */
+    @Override
+    public Set<UUID> findExisting(Map<UUID, Instant> occurredAtByEventId) {
+        Set<UUID> found = new HashSet<>();
+        if (occurredAtByEventId.isEmpty()) return found;
+        UUID[] ids = new UUID[occurredAtByEventId.size()];
+        String[] occurredAts = new String[ids.length];
+        int i = 0;
+        for (Map.Entry<UUID, Instant> e : occurredAtByEventId.entrySet()) {
+            ids[i] = e.getKey();
+            occurredAts[i++] = e.getValue().toString(); // ISO-8601, UTC
+        }
+        var sql = """
+            SELECT l.event_id
+              FROM unnest(?, ?::timestamptz[]) AS k(event_id, occurred_at)
+              JOIN crm.lead l ON l.event_id = k.event_id AND l.occurred_at = k.occurred_at
+            """;
+        jdbc.query(sql,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", occurredAts));
+                },
+                rs -> { found.add(rs.getObject(1, UUID.class)); });
+        return found;
+    }
+
+    private static String multiRowInsert(String table, int rows) {
+        return "INSERT INTO " + table + """
+
+              (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, created_at)
+            VALUES
+            """ + MultiRowValues.of(rows, "?", "?", "?", "?", "CAST(? AS TEXT)", "CAST(? AS TEXT)", "CAST(? AS TEXT)",
+                "CAST(? AS TEXT)", "CAST(? AS INTEGER)", "?", "now()") + """
+
+            ON CONFLICT (event_id, occurred_at) DO NOTHING
+            RETURNING event_id""";
+    }
+}
@@ -1,23 +1,48 @@
 package com.github.dimitryivaniuta.gateway.fanout.service;
 
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadCurrentEntity;
 import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
 import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadCopyRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadCurrentRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadOffsetRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadUpsertRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 /**
  * Performs idempotent persistence of LeadEvent using a single UPSERT statement.
  * Returns true if a new row was inserted, false if it already existed.
+ * Batch variant: one transaction and multi-row statements for a whole poll (LeadUpsertRepository#insertAllIfAbsent).
+ * Catch-up variant: one transaction with COPY into a staging table and a merge (LeadCopyRepository).
+ * Overloads taking offsets also store the consumer position in crm.lead_event_offset, in the same
+ * transaction as the rows (app.kafka.offsets.storage=db, see DbOffsets).
+ *
+ * Every path also maintains crm.lead_current (latest state per tenant + lead) in the same transaction, from the
+ * events that were new. Batches are conflated first: of several events of one lead only the latest
+ * (occurred_at, then event_id - the order the upsert guard uses) is written, so a burst of UPDATEDs to a lead
+ * costs one row write per poll instead of one per event.
  */
 @Service
 @RequiredArgsConstructor
 public class LeadIngestService {
 
     private final LeadMapper mapper;
+    private final LeadUpsertRepository upserts;
+    private final LeadCopyRepository copies;
+    private final LeadOffsetRepository offsets;
+    private final LeadCurrentRepository current;
 
     @PersistenceContext
     private EntityManager em;
@@ -32,7 +57,7 @@ public class LeadIngestService {
               (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, created_at)
             VALUES
               (:eventId, :tenantId, :leadId, :fullName, :email, :phone, :city, :source, :budgetUsd, :occurredAt, now())
-            ON CONFLICT (event_id) DO NOTHING
+            ON CONFLICT (event_id, occurred_at) DO NOTHING
             """;
 
         int updated = em.createNativeQuery(sql)
@@ -48,6 +73,97 @@ public class LeadIngestService {
                 .setParameter("occurredAt",le.getOccurredAt())
                 .executeUpdate();
 
-        return updated == 1; // 1 = inserted, 0 = duplicate
+        if (updated == 0) return false; // duplicate: its state was applied with the first delivery
+        current.upsertLatest(List.of(mapper.toCurrent(e)));
+        return true;
+    }
+
+    /** {@link #ingest(LeadEvent)} and the record's offset in one transaction. */
+    @Transactional
+    public boolean ingest(LeadEvent e, String topic, int partition, long offset) {
+        boolean inserted = ingest(e);
+        offsets.upsertOffset(topic, partition, offset);
+        return inserted;
+    }
+
+    /**
+     * Persists all events in one transaction.
+     * @return per event, in order: true if inserted, false if a duplicate (already stored, or repeated in the list)
+     */
+    @Transactional
+    public List<Boolean> ingestAll(List<LeadEvent> events) {
+        List<Boolean> results = flags(events, upserts.insertAllIfAbsent(toEntities(events)));
+        current.upsertLatest(conflate(events, results));
+        return results;
+    }
+
+    /**
+     * Same contract as {@link #ingestAll}, through COPY + merge: cheaper per row for large batches (catch-up),
+     * but a bad row fails the whole COPY.
+     */
+    @Transactional
+    public List<Boolean> ingestAllByCopy(List<LeadEvent> events) {
+        List<Boolean> results = flags(events, copies.copyInsertAllIfAbsent(toEntities(events)));
+        current.upsertLatest(conflate(events, results));
+        return results;
+    }
+
+    /** {@link #ingestAll(List)} and the last offset per partition of the events' records in one transaction. */
+    @Transactional
+    public List<Boolean> ingestAll(List<LeadEvent> events, String topic, Map<Integer, Long> lastOffsets) {
+        List<Boolean> results = ingestAll(events);
+        storeOffsets(topic, lastOffsets);
+        return results;
+    }
+
+    /** {@link #ingestAllByCopy(List)} and the last offset per partition of the events' records in one transaction. */
+    @Transactional
+    public List<Boolean> ingestAllByCopy(List<LeadEvent> events, String topic, Map<Integer, Long> lastOffsets) {
+        List<Boolean> results = ingestAllByCopy(events);
+        storeOffsets(topic, lastOffsets);
+        return results;
+    }
+
+    private void storeOffsets(String topic, Map<Integer, Long> lastOffsets) {
+        lastOffsets.forEach((partition, offset) -> offsets.upsertOffset(topic, partition, offset));
+    }
+
+    private List<LeadEntity> toEntities(List<LeadEvent> events) {
+        List<LeadEntity> entities = new ArrayList<>(events.size());
+        for (LeadEvent e : events) {
+            entities.add(mapper.toEntity(e));
+        }
+        return entities;
+    }
+
+    /** Current-state rows of the new events: one per (tenant, lead), from its latest event. */
+    private List<LeadCurrentEntity> conflate(List<LeadEvent> events, List<Boolean> inserted) {
+        Map<List<String>, LeadEvent> latest = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (!inserted.get(i)) continue;
+            LeadEvent e = events.get(i);
+            latest.merge(List.of(e.tenantId(), e.key()), e, (a, b) -> isLater(b, a) ? b : a);
+        }
+        List<LeadCurrentEntity> rows = new ArrayList<>(latest.size());
+        for (LeadEvent e : latest.values()) {
+            rows.add(mapper.toCurrent(e));
+        }
+        return rows;
+    }
+
+    /** (occurredAt, eventId) order, eventId compared like PostgreSQL compares uuid (unsigned bytes). */
+    private static boolean isLater(LeadEvent a, LeadEvent b) {
+        int c = a.occurredAt().compareTo(b.occurredAt());
+        if (c == 0) c = Long.compareUnsigned(a.eventId().getMostSignificantBits(), b.eventId().getMostSignificantBits());
+        if (c == 0) c = Long.compareUnsigned(a.eventId().getLeastSignificantBits(), b.eventId().getLeastSignificantBits());
+        return c > 0;
+    }
+
+    private static List<Boolean> flags(List<LeadEvent> events, Set<UUID> inserted) {
+        List<Boolean> results = new ArrayList<>(events.size());
+        for (LeadEvent e : events) {
+            results.add(inserted.remove(e.eventId())); // a repeated eventId counts as inserted once
+        }
+        return results;
     }
 }
@@ -0,0 +1,119 @@
+package com.github.dimitryivaniuta.gateway.fanout.service;
+
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadPartitionRepository;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadPartitionRepository.Partition;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the monthly partitions of crm.lead in shape, at start-up and every interval-ms:
+ * - creates the partitions of the current month and premake-months ahead, so inserts never fall into
+ *   lead_default (if they do - events far in the past or future - a warning is logged)
+ * - partitions older than brin-after-months get a BRIN index on occurred_at instead of the B-tree: they are
+ *   no longer written to, their rows are in occurred_at order, and BRIN costs a few pages per partition
+ * - with retention-months > 0, partitions entirely older than that are detached (retention-action=detach,
+ *   they stay as plain tables to archive) or dropped (drop): no bulk DELETE, no vacuum debt
+ * Months are UTC, like the partition bounds. Each step is idempotent and failures are retried on the next run,
+ * so several instances can run this at the same time. Disabled with app.fanout.partitions.enabled=false.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.fanout.partitions", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class LeadPartitionMaintenance {
+
+    private final LeadPartitionRepository partitions;
+    private final int premakeMonths;
+    private final int brinAfterMonths;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+    private final long lockTimeoutMs;
+    private final ScheduledExecutorService scheduler;
+
+    public LeadPartitionMaintenance(
+            LeadPartitionRepository partitions,
+            @Value("${app.fanout.partitions.premake-months:3}") int premakeMonths,
+            @Value("${app.fanout.partitions.brin-after-months:2}") int brinAfterMonths,
+            @Value("${app.fanout.partitions.retention-months:0}") int retentionMonths,
+            @Value("${app.fanout.partitions.retention-action:detach}") String retentionAction,
+            @Value("${app.fanout.partitions.lock-timeout-ms:5000}") long lockTimeoutMs,
+            @Value("${app.fanout.partitions.interval-ms:3600000}") long intervalMs) {
+
+        if (premakeMonths < 1) throw new IllegalArgumentException("app.fanout.partitions.premake-months must be >= 1");
+        if (brinAfterMonths < 1) throw new IllegalArgumentException("app.fanout.partitions.brin-after-months must be >= 1");
+        if (retentionMonths < 0) throw new IllegalArgumentException("app.fanout.partitions.retention-months must be >= 0");
+        if (!"detach".equals(retentionAction) && !"drop".equals(retentionAction)) {
+            throw new IllegalArgumentException("app.fanout.partitions.retention-action must be detach or drop: " + retentionAction);
+        }
+
+        this.partitions = partitions;
+        this.premakeMonths = premakeMonths;
+        this.brinAfterMonths = brinAfterMonths;
+        this.retentionMonths = retentionMonths;
+        this.dropExpired = "drop".equals(retentionAction);
+        this.lockTimeoutMs = lockTimeoutMs;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lead-partition-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** One maintenance run; each step logs and skips on failure. */
+    public synchronized void maintain() {
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = now.plusMonths(i);
+            try {
+                if (partitions.createPartition(month)) log.info("Created crm.lead partition for {}", month);
+            } catch (RuntimeException ex) {
+                log.warn("Cannot create crm.lead partition for {}: {}", month, ex.toString());
+            }
+        }
+
+        YearMonth expiredBefore = retentionMonths > 0 ? now.minusMonths(retentionMonths) : null;
+        YearMonth brinBefore = now.minusMonths(brinAfterMonths);
+        for (Partition p : partitions.partitions()) {
+            try {
+                if (expiredBefore != null && p.month().isBefore(expiredBefore)) {
+                    if (dropExpired) {
+                        partitions.drop(p, lockTimeoutMs);
+                        log.info("Dropped expired crm.lead partition {}", p.name());
+                    } else {
+                        partitions.detach(p, lockTimeoutMs);
+                        log.info("Detached expired crm.lead partition {} (now the plain table crm.{})", p.name(), p.name());
+                    }
+                } else if (!p.brin() && p.month().isBefore(brinBefore)) {
+                    partitions.switchToBrin(p);
+                    log.info("Switched occurred_at index of crm.lead partition {} to BRIN", p.name());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Maintenance of crm.lead partition {} failed, retrying next run: {}", p.name(), ex.toString());
+            }
+        }
+
+        try {
+            if (partitions.hasDefaultRows()) {
+                log.warn("crm.lead_default holds rows outside the monthly partitions (occurred_at far in the past or future)");
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Cannot check crm.lead_default: {}", ex.toString());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.dimitryivaniuta.gateway.fanout.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/rebuild, see LeadRebuildService. Not exposed over HTTP by default: it has no authentication of its
+ * own, so add it to management.endpoints.web.exposure.include only with management.server.port/address set to
+ * a port reachable from localhost (or the operators' network) alone.
+ * - GET: status and progress of the current or last rebuild
+ * - POST {"from": "earliest" | "&lt;offset&gt;" | "&lt;ISO-8601 instant&gt;"}: starts a rebuild (from defaults to earliest)
+ * - DELETE: cancels the running rebuild, or drops the shadow tables of an interrupted one (refused while another
+ *   instance is rebuilding)
+ */
+@Component
+@Endpoint(id = "rebuild")
+@RequiredArgsConstructor
+public class LeadRebuildEndpoint {
+
+    private final LeadRebuildService rebuild;
+
+    @ReadOperation
+    public LeadRebuildService.Status status() {
+        return rebuild.status();
+    }
+
+    @WriteOperation
+    public LeadRebuildService.Status start(@Nullable String from) {
+        return rebuild.start(from);
+    }
+
+    @DeleteOperation
+    public LeadRebuildService.Status cancel() {
+        return rebuild.cancel();
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.gateway.fanout.service;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.rebuild.ShadowTableRebuild;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.entity.LeadEntity;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.mapper.LeadMapper;
+import com.github.dimitryivaniuta.gateway.fanout.persistence.repo.LeadRebuildRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds crm.lead from leads.events into a shadow table and swaps it in while the listeners keep writing
+ * the live table (ShadowTableRebuild; started from /actuator/rebuild, LeadRebuildEndpoint).
+ * - the old table is kept as crm.lead_retired_<time>
+ * - scope: crm.lead only; crm.lead_current is maintained by the listeners as before
+ */
+@Service
+public class LeadRebuildService extends ShadowTableRebuild<LeadEntity> {
+
+    private final LeadMapper mapper;
+
+    public LeadRebuildService(
+            ConsumerFactory<String, LeadEvent> consumerFactory,
+            LeadRebuildRepository rebuild,
+            LeadMapper mapper,
+            @Value("${app.rebuild.parallelism:4}") int parallelism,
+            @Value("${app.rebuild.max-poll-records:5000}") int maxPollRecords,
+            @Value("${app.rebuild.max-partition-fetch-bytes:8388608}") int maxPartitionFetchBytes,
+            @Value("${app.rebuild.swap-lag:20000}") long swapLag,
+            @Value("${app.rebuild.catch-up-rounds:10}") int catchUpRounds,
+            @Value("${app.rebuild.swap-attempts:3}") int swapAttempts,
+            @Value("${app.rebuild.lock-timeout-ms:5000}") long lockTimeoutMs,
+            @Value("${app.rebuild.progress-interval-ms:10000}") long progressIntervalMs) {
+        super("crm.lead", "lead-rebuild", consumerFactory, rebuild, new Settings(parallelism, maxPollRecords,
+                maxPartitionFetchBytes, swapLag, catchUpRounds, swapAttempts, lockTimeoutMs, progressIntervalMs));
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected LeadEntity toEntity(LeadEvent event) {
+        return mapper.toEntity(event);
+    }
+}
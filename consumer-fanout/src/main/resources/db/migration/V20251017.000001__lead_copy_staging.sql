@@ -0,0 +1,21 @@
+-- Staging table for catch-up mode (LeadCopyRepository): batches are streamed in with COPY, merged into lead
+-- with ON CONFLICT (event_id) DO NOTHING and deleted again in the same transaction.
+-- UNLOGGED: no WAL for rows that live for one transaction; the table is emptied by a crash, which loses nothing.
+
+SET search_path TO crm;
+
+CREATE UNLOGGED TABLE IF NOT EXISTS lead_copy_staging (
+    batch_id     UUID        NOT NULL,  -- one per COPY; listener threads stage concurrently
+    event_id     UUID        NOT NULL,
+    tenant_id    TEXT        NOT NULL,
+    lead_id      TEXT        NOT NULL,
+    full_name    TEXT        NOT NULL,
+    email        TEXT,
+    phone        TEXT,
+    city         TEXT,
+    source       TEXT,
+    budget_usd   INTEGER,
+    occurred_at  TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_lead_copy_staging_batch ON lead_copy_staging (batch_id);
@@ -0,0 +1,29 @@
+-- Current state per lead (LeadCurrentRepository): one row per (tenant_id, lead_id), replaced only by a later
+-- event (occurred_at, then event_id - UUIDv7 - as tie-break), so out-of-order and replayed events are no-ops.
+
+SET search_path TO crm;
+
+CREATE TABLE IF NOT EXISTS lead_current (
+    tenant_id        TEXT        NOT NULL,
+    lead_id          TEXT        NOT NULL,
+    event_id         UUID        NOT NULL,  -- event the state comes from
+    last_event_type  TEXT,                  -- CREATED / UPDATED / QUALIFIED / REJECTED (NULL: backfilled)
+    full_name        TEXT        NOT NULL,
+    email            TEXT,
+    phone            TEXT,
+    city             TEXT,
+    source           TEXT,
+    budget_usd       INTEGER,
+    occurred_at      TIMESTAMPTZ NOT NULL,
+    updated_at       TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (tenant_id, lead_id)
+);
+
+-- Backfill from the event log (event types were not stored there)
+INSERT INTO lead_current
+    (tenant_id, lead_id, event_id, full_name, email, phone, city, source, budget_usd, occurred_at)
+SELECT DISTINCT ON (tenant_id, lead_id)
+       tenant_id, lead_id, event_id, full_name, email, phone, city, source, budget_usd, occurred_at
+  FROM lead
+ ORDER BY tenant_id, lead_id, occurred_at DESC, event_id DESC
+ON CONFLICT (tenant_id, lead_id) DO NOTHING;
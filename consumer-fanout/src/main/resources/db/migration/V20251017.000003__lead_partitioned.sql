@@ -0,0 +1,92 @@
+-- crm.lead becomes range-partitioned by occurred_at, one partition per UTC month (crm.lead_yYYYYmMM).
+-- - PRIMARY KEY (event_id, occurred_at): a unique key must contain the partition key. It still deduplicates
+--   events, because occurred_at is part of the immutable event: every delivery of an event carries the same
+--   (event_id, occurred_at) and lands in the same partition, where the key conflicts.
+-- - tenant_id / lead_id indexes are defined on the parent (every partition has them).
+-- - occurred_at is indexed per partition: B-tree while the month is written to, BRIN once it is old
+--   (LeadPartitionMaintenance), which is a few pages instead of a tree growing with every row.
+-- - lead_default takes rows outside the created months; lead_create_partition moves them into a month
+--   when it is created.
+-- Partitions ahead of time, BRIN switching and retention (detach/drop): LeadPartitionMaintenance.
+-- Existing rows are copied over (one transaction); the conversion is skipped when lead is partitioned already.
+
+SET search_path TO crm;
+
+-- Creates the partition of the month containing p_month (if missing), moving the rows lead_default holds for
+-- that month into it. Returns true if it was created. Bounds are UTC month starts.
+CREATE OR REPLACE FUNCTION lead_create_partition(p_month DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS $$
+DECLARE
+    v_month DATE        := date_trunc('month', p_month)::date;
+    v_name  TEXT        := 'lead_y' || to_char(v_month, 'YYYY') || 'm' || to_char(v_month, 'MM');
+    v_from  TIMESTAMPTZ := v_month::timestamp AT TIME ZONE 'UTC';
+    v_to    TIMESTAMPTZ := (v_month + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC';
+BEGIN
+    -- Serializes concurrent callers (several fan-out instances run the maintenance)
+    PERFORM pg_advisory_xact_lock(hashtext('crm.lead_create_partition'));
+    IF to_regclass('crm.' || v_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    -- Built detached and attached afterwards: CREATE ... PARTITION OF fails if lead_default has rows of the month
+    EXECUTE format('CREATE TABLE crm.%I (LIKE crm.lead INCLUDING DEFAULTS)', v_name);
+    EXECUTE format('WITH moved AS (DELETE FROM crm.lead_default WHERE occurred_at >= %L AND occurred_at < %L RETURNING *)'
+                       || ' INSERT INTO crm.%I SELECT * FROM moved', v_from, v_to, v_name);
+    EXECUTE format('ALTER TABLE crm.lead ATTACH PARTITION crm.%I FOR VALUES FROM (%L) TO (%L)', v_name, v_from, v_to);
+    EXECUTE format('CREATE INDEX IF NOT EXISTS %I ON crm.%I (occurred_at)', v_name || '_occurred_at', v_name);
+    RETURN true;
+END;
+$$;
+
+DO $$
+DECLARE
+    v_month DATE;
+BEGIN
+    IF (SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+         WHERE n.nspname = 'crm' AND c.relname = 'lead') = 'p' THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE crm.lead RENAME TO lead_unpartitioned;
+    ALTER TABLE crm.lead_unpartitioned RENAME CONSTRAINT lead_pkey TO lead_unpartitioned_pkey;
+    DROP INDEX IF EXISTS crm.idx_lead_tenant, crm.idx_lead_lead_id, crm.idx_lead_occurred_at;
+
+    CREATE TABLE crm.lead (
+        event_id     UUID        NOT NULL,
+        tenant_id    TEXT        NOT NULL,
+        lead_id      TEXT        NOT NULL,
+        full_name    TEXT        NOT NULL,
+        email        TEXT,
+        phone        TEXT,
+        city         TEXT,
+        source       TEXT,
+        budget_usd   INTEGER,
+        occurred_at  TIMESTAMPTZ NOT NULL,
+        created_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+        PRIMARY KEY (event_id, occurred_at)
+    ) PARTITION BY RANGE (occurred_at);
+
+    CREATE INDEX idx_lead_tenant  ON crm.lead (tenant_id);
+    CREATE INDEX idx_lead_lead_id ON crm.lead (lead_id);
+
+    CREATE TABLE crm.lead_default PARTITION OF crm.lead DEFAULT;
+    CREATE INDEX lead_default_occurred_at ON crm.lead_default (occurred_at);
+
+    -- Months of the existing rows, up to 3 months ahead (LeadPartitionMaintenance keeps that horizon)
+    FOR v_month IN
+        SELECT generate_series(
+                   date_trunc('month', LEAST(COALESCE(min(occurred_at), now()), now()) AT TIME ZONE 'UTC'),
+                   date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+                   INTERVAL '1 month')::date
+          FROM crm.lead_unpartitioned
+    LOOP
+        PERFORM crm.lead_create_partition(v_month);
+    END LOOP;
+
+    INSERT INTO crm.lead (event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd,
+                          occurred_at, created_at)
+    SELECT event_id, tenant_id, lead_id, full_name, email, phone, city, source, budget_usd, occurred_at, created_at
+      FROM crm.lead_unpartitioned;
+
+    DROP TABLE crm.lead_unpartitioned;
+END;
+$$;
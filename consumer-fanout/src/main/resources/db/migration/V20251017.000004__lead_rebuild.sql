@@ -0,0 +1,132 @@
+-- Shadow rebuild of crm.lead from leads.events (LeadRebuildService), while the live consumer keeps writing:
+-- 1. lead_rebuild_prepare: an UNLOGGED heap without keys or indexes, crm.lead_rebuild_load, takes the replay
+--    (COPY, duplicates included) at bulk-load speed
+-- 2. lead_rebuild_finish: the rows go, deduplicated, into crm.lead_rebuild (same layout as crm.lead,
+--    V20251017.000003); the primary key and indexes are built once, over all rows, at the end
+-- 3. the service tops crm.lead_rebuild up with what was published meanwhile (INSERT ... ON CONFLICT DO NOTHING)
+-- 4. lead_rebuild_swap, in the transaction that locked crm.lead and wrote the last records: crm.lead, its
+--    partitions and indexes are renamed to lead_retired_<suffix>..., crm.lead_rebuild's take the live names
+--    (lead_yYYYYmMM, lead_yYYYYmMM_occurred_at, ... as LeadPartitionMaintenance expects them)
+-- The retired tree is kept (rollback = swap the names back by hand); drop it once the rebuild is checked.
+-- lead_rebuild_abort drops the tables of an unfinished rebuild.
+
+SET search_path TO crm;
+
+CREATE OR REPLACE FUNCTION lead_rebuild_prepare() RETURNS void
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF to_regclass('crm.lead_rebuild_load') IS NOT NULL OR to_regclass('crm.lead_rebuild') IS NOT NULL THEN
+        RAISE EXCEPTION 'a rebuild of crm.lead is running or was interrupted (crm.lead_rebuild*): cancel it first';
+    END IF;
+    CREATE UNLOGGED TABLE crm.lead_rebuild_load (LIKE crm.lead INCLUDING DEFAULTS);
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION lead_rebuild_finish() RETURNS BIGINT
+    LANGUAGE plpgsql AS $$
+DECLARE
+    v_month DATE;
+    v_name  TEXT;
+    v_rows  BIGINT;
+BEGIN
+    CREATE TABLE crm.lead_rebuild (LIKE crm.lead INCLUDING DEFAULTS) PARTITION BY RANGE (occurred_at);
+    CREATE TABLE crm.lead_rebuild_default PARTITION OF crm.lead_rebuild DEFAULT;
+
+    -- Months of the replayed rows, up to 3 months ahead (as the partitioning migration)
+    FOR v_month IN
+        SELECT generate_series(
+                   date_trunc('month', LEAST(COALESCE(min(occurred_at), now()), now()) AT TIME ZONE 'UTC'),
+                   date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+                   INTERVAL '1 month')::date
+          FROM crm.lead_rebuild_load
+    LOOP
+        v_name := 'lead_rebuild_y' || to_char(v_month, 'YYYY') || 'm' || to_char(v_month, 'MM');
+        EXECUTE format('CREATE TABLE crm.%I PARTITION OF crm.lead_rebuild FOR VALUES FROM (%L) TO (%L)', v_name,
+                       v_month::timestamp AT TIME ZONE 'UTC',
+                       (v_month + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC');
+    END LOOP;
+
+    -- Redeliveries of an event carry the same (event_id, occurred_at): keep one
+    INSERT INTO crm.lead_rebuild
+    SELECT DISTINCT ON (event_id, occurred_at) *
+      FROM crm.lead_rebuild_load
+     ORDER BY event_id, occurred_at, created_at;
+    GET DIAGNOSTICS v_rows = ROW_COUNT;
+    DROP TABLE crm.lead_rebuild_load;
+
+    ALTER TABLE crm.lead_rebuild ADD CONSTRAINT lead_rebuild_pkey PRIMARY KEY (event_id, occurred_at);
+    CREATE INDEX idx_lead_rebuild_tenant  ON crm.lead_rebuild (tenant_id);
+    CREATE INDEX idx_lead_rebuild_lead_id ON crm.lead_rebuild (lead_id);
+    FOR v_name IN
+        SELECT c.relname FROM pg_inherits h JOIN pg_class c ON c.oid = h.inhrelid
+         WHERE h.inhparent = 'crm.lead_rebuild'::regclass
+    LOOP
+        EXECUTE format('CREATE INDEX %I ON crm.%I (occurred_at)', v_name || '_occurred_at', v_name);
+    END LOOP;
+    ANALYZE crm.lead_rebuild;
+    RETURN v_rows;
+END;
+$$;
+
+-- Renames the live tree to lead_retired_<p_suffix>... and crm.lead_rebuild's to the live names.
+-- The caller holds the partition lock (hashtext('crm.lead_create_partition')) and then an EXCLUSIVE lock on
+-- crm.lead, in that order, so this cannot deadlock with lead_create_partition. Returns the retired table.
+CREATE OR REPLACE FUNCTION lead_rebuild_swap(p_suffix TEXT) RETURNS TEXT
+    LANGUAGE plpgsql AS $$
+DECLARE
+    v_retired TEXT := 'lead_retired_' || p_suffix;
+    v_names   TEXT[];
+    v_name    TEXT;
+BEGIN
+    IF p_suffix !~ '^[a-z0-9_]{1,20}$' THEN
+        RAISE EXCEPTION 'invalid suffix: %', p_suffix;
+    END IF;
+    IF to_regclass('crm.lead_rebuild') IS NULL OR to_regclass('crm.lead_rebuild_load') IS NOT NULL THEN
+        RAISE EXCEPTION 'crm.lead_rebuild is not ready to be swapped in';
+    END IF;
+    PERFORM pg_advisory_xact_lock(hashtext('crm.lead_create_partition'));
+    LOCK TABLE crm.lead, crm.lead_rebuild IN ACCESS EXCLUSIVE MODE;
+
+    -- Indexes first (renaming a key's index renames the constraint), then partitions, then the parent.
+    -- Names are collected before renaming; only the first 'lead' / 'lead_rebuild' is replaced:
+    -- idx_lead_tenant -> idx_lead_retired_<suffix>_tenant, lead_rebuild_y2025m10 -> lead_y2025m10
+    SELECT array_agg(i.relname) INTO v_names
+      FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+     WHERE x.indrelid = 'crm.lead'::regclass
+        OR x.indrelid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'crm.lead'::regclass);
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER INDEX crm.%I RENAME TO %I', v_name, regexp_replace(v_name, 'lead', v_retired));
+    END LOOP;
+    SELECT array_agg(c.relname) INTO v_names
+      FROM pg_inherits h JOIN pg_class c ON c.oid = h.inhrelid
+     WHERE h.inhparent = 'crm.lead'::regclass;
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER TABLE crm.%I RENAME TO %I', v_name, regexp_replace(v_name, 'lead', v_retired));
+    END LOOP;
+    EXECUTE format('ALTER TABLE crm.lead RENAME TO %I', v_retired);
+
+    SELECT array_agg(i.relname) INTO v_names
+      FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+     WHERE x.indrelid = 'crm.lead_rebuild'::regclass
+        OR x.indrelid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'crm.lead_rebuild'::regclass);
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER INDEX crm.%I RENAME TO %I', v_name, regexp_replace(v_name, 'lead_rebuild', 'lead'));
+    END LOOP;
+    SELECT array_agg(c.relname) INTO v_names
+      FROM pg_inherits h JOIN pg_class c ON c.oid = h.inhrelid
+     WHERE h.inhparent = 'crm.lead_rebuild'::regclass;
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER TABLE crm.%I RENAME TO %I', v_name, regexp_replace(v_name, 'lead_rebuild', 'lead'));
+    END LOOP;
+    ALTER TABLE crm.lead_rebuild RENAME TO lead;
+    RETURN v_retired;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION lead_rebuild_abort() RETURNS void
+    LANGUAGE plpgsql AS $$
+BEGIN
+    DROP TABLE IF EXISTS crm.lead_rebuild_load;
+    DROP TABLE IF EXISTS crm.lead_rebuild;
+END;
+$$;
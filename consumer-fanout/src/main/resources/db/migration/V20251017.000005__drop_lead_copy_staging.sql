@@ -0,0 +1,4 @@
+-- Catch-up mode (LeadCopyRepository) now stages each batch in a temporary table of its own session
+-- (pg_temp.lead_copy_staging, ON COMMIT DELETE ROWS): no shared table, no batch_id index, no DELETE.
+
+DROP TABLE IF EXISTS crm.lead_copy_staging;
@@ -1,9 +1,31 @@
 package com.github.dimitryivaniuta.gateway.workers.config;
 
+import com.github.dimitryivaniuta.gateway.common.concurrent.AimdBatchSizer;
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.FailedRecordRecoverer;
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventDeserializer;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryBackOff;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTiers;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.workers.messaging.LeadWorkerPipelineListener;
+import com.github.dimitryivaniuta.gateway.workers.persistence.repo.LeadAggregateUpsertRepository;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,54 +33,159 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.MicrometerConsumerListener;
 import org.springframework.kafka.listener.CommonErrorHandler;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.support.converter.ConversionException;
 import org.springframework.kafka.support.serializer.DeserializationException;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.util.backoff.ExponentialBackOff;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.common.config.TopicConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.kafka.config.TopicBuilder;
+import javax.sql.DataSource;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+@Slf4j
 @EnableKafka
 @Configuration
 public class KafkaConsumerConfig {
 
+    /** Consumer group of the leads.events listeners (also the group tag of ConsumerMetrics). */
+    public static final String GROUP = "lead-workers";
+
     @Bean
-    public ConsumerFactory<String, LeadEvent> consumerFactory(KafkaProperties properties) {
+    public ConsumerFactory<String, LeadEvent> consumerFactory(KafkaProperties properties, MeterRegistry registry) {
         Map<String, Object> props = new HashMap<>(properties.buildConsumerProperties());
-        // We configure the JsonDeserializer programmatically; make sure no spring.json.* props sneak in.
+        // The value deserializer is supplied below; make sure no spring.json.* props sneak in.
         props.remove("spring.json.trusted.packages");
         props.remove("spring.json.value.default.type");
 
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, LeadEventDeserializer.class);
 
-        JsonDeserializer<LeadEvent> valueDeserializer = new JsonDeserializer<>(LeadEvent.class, false);
-        valueDeserializer.ignoreTypeHeaders();
-        valueDeserializer.addTrustedPackages("com.github.dimitryivaniuta.gateway.common");
+        // JSON or binary, chosen per record from the x-event-format header; both decoded without ObjectMapper
+        DefaultKafkaConsumerFactory<String, LeadEvent> factory =
+                new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new LeadEventDeserializer());
+        // Kafka client metrics per consumer, e.g. kafka.consumer.fetch.manager.records.lag{topic, partition}
+        factory.addListener(new MicrometerConsumerListener<>(registry));
+        return factory;
+    }
 
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), valueDeserializer);
+    @Bean
+    public ConsumerMetrics consumerMetrics(
+            MeterRegistry registry,
+            @Value("${app.metrics.consumer.log-sample-rate:0.01}") double logSampleRate) {
+        return new ConsumerMetrics(registry, GROUP, logSampleRate);
     }
 
     @Bean
-    public DefaultErrorHandler errorHandler(KafkaTemplate<String, Object> dltKafkaTemplate) {
-        ExponentialBackOff backOff = new ExponentialBackOff(1_000L, 2.0);
-        backOff.setMaxInterval(10_000L);
+    public RecentEventFilter recentEventFilter(
+            LeadAggregateUpsertRepository upserts,
+            MeterRegistry registry,
+            @Value("${app.dedupe.filter.enabled:true}") boolean enabled,
+            @Value("${app.dedupe.filter.expected-per-generation:1000000}") long expectedPerGeneration,
+            @Value("${app.dedupe.filter.fpp:0.01}") double fpp,
+            @Value("${app.dedupe.filter.generations:2}") int generations,
+            @Value("${app.dedupe.filter.rotate-every-ms:1800000}") long rotateEveryMs) {
+        return new RecentEventFilter(occurredAt -> upserts.findExisting(occurredAt.keySet()), registry,
+                enabled, expectedPerGeneration, fpp, generations, rotateEveryMs);
+    }
 
+    /** Retry tiers of the lead-workers group: leads.events.retry.lead-workers.<delay> (LeadWorkerRetryListener). */
+    @Bean
+    public RetryTiers retryTiers(
+            @Value("${app.kafka.retry.enabled:true}") boolean enabled,
+            @Value("${app.kafka.retry.tiers-ms:1000,10000,60000}") List<Long> tiersMs) {
+        return new RetryTiers(GROUP, enabled ? tiersMs : List.of());
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTierTopics(
+            RetryTiers tiers,
+            @Value("${app.kafka.retry.partitions:3}") int partitions,
+            @Value("${app.kafka.retry.replication-factor:1}") int replicationFactor) {
+        return new KafkaAdmin.NewTopics(tiers.topics().stream()
+                .map(topic -> TopicBuilder.name(topic)
+                        .partitions(partitions)
+                        .replicas(replicationFactor)
+                        .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(7L * 24 * 60 * 60 * 1000)) // 7 days
+                        .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE)
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
+
+    /**
+     * Next retry tier (key-partitioned, x-retry-attempt / x-retry-due-at), or the DLT after the last tier and for
+     * non-retryable exceptions; kafka_dlt-original-* keep the first hop's values.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> dltKafkaTemplate,
+                                                             RetryTiers tiers) {
         DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(
                 dltKafkaTemplate,
-                (record, ex) -> new org.apache.kafka.common.TopicPartition(Topics.LEADS_DLT, record.partition())
+                (record, ex) -> {
+                    int tier = FailedRecordRecoverer.nextTier(tiers, record, ex);
+                    return tier > 0
+                            ? new TopicPartition(tiers.topic(tier), -1)
+                            : new TopicPartition(Topics.LEADS_DLT,
+                                    FailedRecordRecoverer.originPartition(tiers, record));
+                }
         );
+        recoverer.setHeadersFunction((record, ex) -> {
+            int tier = FailedRecordRecoverer.nextTier(tiers, record, ex);
+            return tier > 0 ? tiers.headers(tier, System.currentTimeMillis()) : new RecordHeaders();
+        });
+        recoverer.setAppendOriginalHeaders(false);
+        return recoverer;
+    }
+
+    /** deadLetterRecoverer plus the retry / dead-letter counts, for the error handler and the listeners. */
+    @Bean
+    public FailedRecordRecoverer failedRecordRecoverer(DeadLetterPublishingRecoverer deadLetterRecoverer,
+                                                       RetryTiers tiers, ConsumerMetrics metrics) {
+        return new FailedRecordRecoverer(deadLetterRecoverer, tiers, metrics);
+    }
+
+    /** In-place retries of the error handler and of the parallel / pipeline listeners (RetryBackOff). */
+    @Bean
+    public RetryBackOff retryBackOff(
+            @Value("${app.kafka.retry.in-place-attempts:2}") long inPlaceAttempts,
+            @Value("${app.kafka.retry.in-place-interval-ms:500}") long inPlaceIntervalMs) {
+        return new RetryBackOff(inPlaceIntervalMs, inPlaceAttempts);
+    }
+
+    /**
+     * Virtual threads of the parallel listener mode, per key in order, with at most max-concurrency records in the
+     * database at once (default: the Hikari pool size).
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "parallel")
+    public KeyOrderedExecutor parallelExecutor(
+            DataSource dataSource,
+            @Value("${app.kafka.parallel.max-concurrency:0}") int maxConcurrency) {
+        int permits = maxConcurrency > 0 ? maxConcurrency
+                : dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+        log.info("Parallel worker processing with up to {} concurrent records", permits);
+        return new KeyOrderedExecutor(permits, "worker-lead-");
+    }
 
-        DefaultErrorHandler handler = new DefaultErrorHandler(recoverer, backOff);
+    /**
+     * In-place retries (in-place-attempts x in-place-interval-ms), then the next retry tier or the DLT
+     * (FailedRecordRecoverer); transient database failures are retried in place (1 s .. 10 s) until it is back.
+     */
+    @Bean
+    public DefaultErrorHandler errorHandler(
+            FailedRecordRecoverer recoverer,
+            RetryBackOff retryBackOff) {
+        DefaultErrorHandler handler = new DefaultErrorHandler(recoverer, retryBackOff.inPlace());
+        handler.setBackOffFunction((record, ex) -> retryBackOff.forException(ex));
         handler.addNotRetryableExceptions(DeserializationException.class, ConversionException.class, IllegalArgumentException.class);
         handler.setCommitRecovered(true);
         return handler;
@@ -66,11 +193,17 @@ public class KafkaConsumerConfig {
 
     /**
      * Worker factory uses MANUAL ack so your listener explicitly acks after a successful DB write.
+     * app.kafka.listener.mode=parallel adds asyncAcks: workers acknowledge out of order and commits advance per
+     * partition only over acknowledged offsets (LeadWorkerParallelListener).
+     * app.kafka.listener.mode=pipeline: records are acknowledged in order by the pipeline's writer thread, which is
+     * drained before revoked partitions are committed (LeadWorkerPipelineListener).
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, LeadEvent> kafkaListenerContainerFactory(
             ConsumerFactory<String, LeadEvent> consumerFactory,
-            DefaultErrorHandler errorHandler) {
+            DefaultErrorHandler errorHandler,
+            ObjectProvider<LeadWorkerPipelineListener> pipelineListener,
+            @Value("${app.kafka.listener.mode:record}") String listenerMode) {
 
         ConcurrentKafkaListenerContainerFactory<String, LeadEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
@@ -79,6 +212,10 @@ public class KafkaConsumerConfig {
         factory.setCommonErrorHandler(errorHandler);
 
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks("parallel".equalsIgnoreCase(listenerMode));
+        if ("pipeline".equalsIgnoreCase(listenerMode)) {
+            factory.getContainerProperties().setConsumerRebalanceListener(pipelineListener.getObject());
+        }
         factory.setMissingTopicsFatal(false);
 
         // Optional: control concurrency from code; otherwise set via @KafkaListener(concurrency="N")
@@ -87,4 +224,64 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    /** Retry tiers (LeadWorkerRetryListener), whatever the listener mode: MANUAL acks, one record at a time. */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LeadEvent> retryListenerContainerFactory(
+            ConsumerFactory<String, LeadEvent> consumerFactory,
+            DefaultErrorHandler errorHandler) {
+
+        ConcurrentKafkaListenerContainerFactory<String, LeadEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(errorHandler);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setMissingTopicsFatal(false);
+        return factory;
+    }
+
+    /**
+     * Batch size and linger of the pipeline writer (LeadWorkerPipelineListener), adapted to the write latency (AIMD):
+     * shrunk when the p99 of a window of batches exceeds target-p99-ms or the Hikari pool had threads waiting
+     * for a connection, grown while Postgres keeps up. app.kafka.pipeline.max-batch is the ceiling.
+     * Metrics: leads.pipeline.batch.size, leads.pipeline.linger, leads.pipeline.write.p99 (last window),
+     * leads.pipeline.sizer.decisions{decision=grow|shrink|hold}.
+     * Without it (app.kafka.pipeline.adaptive.enabled=false) batches are fixed at max-batch.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "pipeline")
+    @ConditionalOnBooleanProperty(name = "app.kafka.pipeline.adaptive.enabled", matchIfMissing = true)
+    public AimdBatchSizer pipelineBatchSizer(
+            DataSource dataSource,
+            MeterRegistry registry,
+            @Value("${app.kafka.pipeline.max-batch:2000}") int maxBatch,
+            @Value("${app.kafka.pipeline.adaptive.min-batch:50}") int minBatch,
+            @Value("${app.kafka.pipeline.adaptive.initial-batch:500}") int initialBatch,
+            @Value("${app.kafka.pipeline.adaptive.step:50}") int step,
+            @Value("${app.kafka.pipeline.adaptive.decrease-factor:0.5}") double decreaseFactor,
+            @Value("${app.kafka.pipeline.adaptive.target-p99-ms:250}") long targetP99Ms,
+            @Value("${app.kafka.pipeline.adaptive.max-linger-ms:20}") long maxLingerMs,
+            @Value("${app.kafka.pipeline.adaptive.window:20}") int window) {
+
+        AimdBatchSizer sizer = new AimdBatchSizer(minBatch, maxBatch, initialBatch, step, decreaseFactor,
+                targetP99Ms, maxLingerMs, window, () -> threadsAwaitingConnection(dataSource) > 0);
+
+        Gauge.builder("leads.pipeline.batch.size", sizer, AimdBatchSizer::batchSize)
+                .description("Current batch size limit of the pipeline writer").register(registry);
+        Gauge.builder("leads.pipeline.linger", sizer, s -> s.lingerNanos() / 1e6).baseUnit("milliseconds")
+                .description("Current wait of the pipeline writer for a batch to fill").register(registry);
+        Gauge.builder("leads.pipeline.write.p99", sizer, s -> s.lastP99Nanos() / 1e6).baseUnit("milliseconds")
+                .description("p99 batch write latency of the sizer's last window").register(registry);
+        for (AimdBatchSizer.Decision decision : AimdBatchSizer.Decision.values()) {
+            FunctionCounter.builder("leads.pipeline.sizer.decisions", sizer, s -> s.decisions(decision))
+                    .tag("decision", decision.name().toLowerCase(Locale.ROOT))
+                    .description("Batch sizer decisions").register(registry);
+        }
+        return sizer;
+    }
+
+    private static int threadsAwaitingConnection(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikari)) return 0;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean(); // null until the pool started
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
 }
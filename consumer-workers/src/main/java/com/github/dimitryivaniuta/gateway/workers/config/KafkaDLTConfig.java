@@ -1,5 +1,7 @@
 package com.github.dimitryivaniuta.gateway.workers.config;
 
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventFormat;
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventSerializer;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
@@ -22,7 +24,9 @@ public class KafkaDLTConfig {
         Map<String, Object> props = new HashMap<>(properties.buildProducerProperties());
         props.putIfAbsent(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.putIfAbsent(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(props);
+        // DLT values are re-serialized as JSON; LeadEventSerializer also drops a copied x-event-format header
+        return new DefaultKafkaProducerFactory<>(props, new StringSerializer(),
+                new LeadEventSerializer(LeadEventFormat.JSON, new JsonSerializer<>()));
     }
 
     @Bean
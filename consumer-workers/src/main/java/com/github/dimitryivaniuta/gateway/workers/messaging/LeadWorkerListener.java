@@ -1,11 +1,14 @@
 package com.github.dimitryivaniuta.gateway.workers.messaging;
 
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
 import com.github.dimitryivaniuta.gateway.workers.service.LeadAnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
@@ -13,13 +16,18 @@ import org.springframework.stereotype.Component;
 /**
  * Worker listener (work-sharing): consumers in the same group share partitions.
  * Ack mode is MANUAL (configured in KafkaConsumerConfig) — we ack after the DB work succeeds.
+ * Record mode (app.kafka.listener.mode=record, default); see LeadWorkerParallelListener for parallel mode.
+ * Outcomes are counted in ConsumerMetrics; only a sample of them is logged (DEBUG).
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "record", matchIfMissing = true)
 public class LeadWorkerListener {
 
     private final LeadAnalyticsService service;
+    private final RecentEventFilter recent;
+    private final ConsumerMetrics metrics;
 
     @KafkaListener(
             topics = Topics.LEADS,
@@ -36,18 +44,30 @@ public class LeadWorkerListener {
             return;
         }
 
+        // Replays/retries of recently aggregated events: skipped without a write transaction
+        if (recent.isStored(rec.partition(), event)) {
+            metrics.partition(rec.partition()).processed(event, false);
+            ack.acknowledge();
+            if (log.isDebugEnabled() && metrics.sampleLog()) {
+                log.debug("Duplicate (recently aggregated) eventId={} part={} off={}",
+                        event.eventId(), rec.partition(), rec.offset());
+            }
+            return;
+        }
+
         // Perform business projection + idempotent sink write.
+        long start = System.nanoTime();
         boolean inserted = service.process(rec.topic(), rec.partition(), rec.offset(), event);
+        metrics.recordWrite(start, 1);
+        recent.markStored(rec.partition(), event);
+        metrics.partition(rec.partition()).processed(event, inserted);
 
         // Commit the Kafka offset after **successful** DB transaction
         ack.acknowledge();
 
-        if (inserted && log.isInfoEnabled()) {
-            log.info("Aggregated lead eventId={} key={} part={} off={}",
+        if (log.isDebugEnabled() && metrics.sampleLog()) {
+            log.debug("{} lead eventId={} key={} part={} off={}", inserted ? "Aggregated" : "Duplicate",
                     event.eventId(), rec.key(), rec.partition(), rec.offset());
-        } else if (log.isDebugEnabled()) {
-            log.debug("Duplicate (already aggregated) eventId={} part={} off={}",
-                    event.eventId(), rec.partition(), rec.offset());
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.github.dimitryivaniuta.gateway.workers.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.concurrent.KeyOrderedExecutor;
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.FailedRecordRecoverer;
+import com.github.dimitryivaniuta.gateway.common.kafka.KeyOrderedLeadListener;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryBackOff;
+import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.workers.service.LeadAnalyticsService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parallel variant of LeadWorkerListener (app.kafka.listener.mode=parallel, KeyOrderedLeadListener), on the
+ * executor of KafkaConsumerConfig#parallelExecutor.
+ * The audit row analytics.lead_event_offset is not written in this mode (LeadAnalyticsService#aggregate).
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.kafka.listener", name = "mode", havingValue = "parallel")
+public class LeadWorkerParallelListener extends KeyOrderedLeadListener {
+
+    private final LeadAnalyticsService service;
+
+    public LeadWorkerParallelListener(
+            LeadAnalyticsService service,
+            KeyOrderedExecutor parallelExecutor,
+            RecentEventFilter recent,
+            ConsumerMetrics metrics,
+            FailedRecordRecoverer failed,
+            RetryBackOff retryBackOff) {
+        super(parallelExecutor, recent, metrics, failed, retryBackOff);
+        this.service = service;
+    }
+
+    @KafkaListener(
+            topics = Topics.LEADS,
+            groupId = "lead-workers",
+            concurrency = "${app.kafka.concurrency:3}"
+    )
+    public void onMessage(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack) {
+        onRecord(rec, ack);
+    }
+
+    @Override
+    protected boolean write(LeadEvent event) {
+        return service.aggregate(event);
+    }
+}
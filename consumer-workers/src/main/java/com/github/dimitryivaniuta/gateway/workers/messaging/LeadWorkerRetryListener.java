@@ -0,0 +1,54 @@
+package com.github.dimitryivaniuta.gateway.workers.messaging;
+
+import com.github.dimitryivaniuta.gateway.common.dedupe.RecentEventFilter;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTierListener;
+import com.github.dimitryivaniuta.gateway.common.kafka.RetryTiers;
+import com.github.dimitryivaniuta.gateway.common.metrics.ConsumerMetrics;
+import com.github.dimitryivaniuta.gateway.workers.service.LeadAnalyticsService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retry tiers of the lead-workers group (RetryTierListener): records moved aside come back here and are aggregated
+ * as LeadWorkerListener does.
+ * - own group (lead-workers-retry), MANUAL acks, offsets committed to Kafka in every listener mode
+ * Retried records can overtake later events of the same lead: analytics.lead_aggregate is keyed per event, so
+ * the outcome does not depend on the order. The offset row (lead_event_offset) is not written: it tracks
+ * leads.events, and this record's offset there is behind the partition's.
+ */
+@Component
+@ConditionalOnBooleanProperty(name = "app.kafka.retry.enabled", matchIfMissing = true)
+public class LeadWorkerRetryListener extends RetryTierListener {
+
+    private static final String ID = "lead-workers-retry";
+
+    private final LeadAnalyticsService service;
+
+    public LeadWorkerRetryListener(LeadAnalyticsService service, RecentEventFilter recent, ConsumerMetrics metrics,
+                                   RetryTiers tiers, KafkaListenerEndpointRegistry registry) {
+        super(ID, recent, metrics, tiers, registry);
+        this.service = service;
+    }
+
+    @KafkaListener(
+            id = ID,
+            topics = "#{__listener.topics()}",
+            groupId = ID,
+            concurrency = "${app.kafka.retry.concurrency:1}",
+            containerFactory = "retryListenerContainerFactory"
+    )
+    public void onMessage(ConsumerRecord<String, LeadEvent> rec, Acknowledgment ack, Consumer<?, ?> consumer) {
+        onRecord(rec, ack, consumer);
+    }
+
+    @Override
+    protected boolean write(LeadEvent event) {
+        return service.aggregate(event);
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.dimitryivaniuta.gateway.workers.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.common.rebuild.ShadowRebuildRepository;
+import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
+
+/**
+ * Shadow tables of a rebuild of analytics.lead_aggregate (LeadRebuildService), see
+ * V20251017.000001__lead_aggregate_rebuild.sql. The swap also moves the id sequence to the new table.
+ */
+public interface LeadAggregateRebuildRepository extends ShadowRebuildRepository<LeadAggregateEntity> {
+}
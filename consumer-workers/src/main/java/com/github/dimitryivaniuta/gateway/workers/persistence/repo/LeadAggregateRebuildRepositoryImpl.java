@@ -0,0 +1,161 @@
+package com.github.dimitryivaniuta.gateway.workers.persistence.repo;
+
+import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * DDL and bulk load in plain JDBC (autocommit, long statements, several loader threads at once); the rows
+ * added after the load and the swap go through the transaction, like the live writes.
+ */
+@Repository
+@RequiredArgsConstructor
+class LeadAggregateRebuildRepositoryImpl implements LeadAggregateRebuildRepository {
+
+    /** Rows are sent to the server in chunks of about this size while the batch is encoded. */
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    private static final String COPY_SQL = """
+            COPY analytics.lead_aggregate_rebuild_load (event_id, tenant_id, city, budget_usd, occurred_at)
+            FROM STDIN
+            """;
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbc;
+    private final DataSource dataSource;
+
+    @Override
+    public void prepare() {
+        jdbc.execute("SELECT analytics.lead_aggregate_rebuild_prepare()");
+    }
+
+    @Override
+    public void load(List<LeadAggregateEntity> entities) {
+        if (entities.isEmpty()) return;
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            copy(connection.unwrap(PGConnection.class), entities);
+            return null;
+        });
+    }
+
+    @Override
+    public long finish() {
+        return Objects.requireNonNull(
+                jdbc.queryForObject("SELECT analytics.lead_aggregate_rebuild_finish()", Long.class));
+    }
+
+    @Transactional
+    @Override
+    public int insertAllIfAbsent(List<LeadAggregateEntity> entities) {
+        return LeadAggregateUpsertRepositoryImpl
+                .insertAllIfAbsent(em, "analytics.lead_aggregate_rebuild", entities).size();
+    }
+
+    /**
+     * EXCLUSIVE waits for the writes in flight to commit and blocks new ones; the swap itself upgrades to
+     * ACCESS EXCLUSIVE for the renames. The writers blocked meanwhile resolve the name lead_aggregate again
+     * once they get the lock, and write into the new table.
+     */
+    @Transactional
+    @Override
+    public String swap(String suffix, long lockTimeoutMs, Supplier<List<LeadAggregateEntity>> last) {
+        jdbc.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbc.execute("LOCK TABLE analytics.lead_aggregate IN EXCLUSIVE MODE");
+        LeadAggregateUpsertRepositoryImpl.insertAllIfAbsent(em, "analytics.lead_aggregate_rebuild", last.get());
+        return jdbc.queryForObject("SELECT analytics.lead_aggregate_rebuild_swap(?)", String.class, suffix);
+    }
+
+    @Override
+    public void abort() {
+        jdbc.execute("SELECT analytics.lead_aggregate_rebuild_abort()");
+    }
+
+    /** COPY ... FROM STDIN in text format. */
+    private static void copy(PGConnection connection, List<LeadAggregateEntity> entities) throws SQLException {
+        CopyIn copy = connection.getCopyAPI().copyIn(COPY_SQL);
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 1024);
+            StringBuilder row = new StringBuilder(128);
+            for (LeadAggregateEntity e : entities) {
+                row.setLength(0);
+                row.append(e.getEventId());
+                field(row, e.getTenantId());
+                field(row, e.getCity());
+                field(row, e.getBudgetUsd() == null ? null : e.getBudgetUsd().toString());
+                field(row, e.getOccurredAt() == null ? null : e.getOccurredAt().toString()); // ISO-8601, UTC
+                row.append('\n');
+                buf.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+                if (buf.size() >= COPY_CHUNK_BYTES) {
+                    copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+                    buf.reset();
+                }
+            }
+            if (buf.size() > 0) {
+                copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+            }
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    /** Appends a tab and the value in COPY text format: \N for NULL, backslash escapes for the delimiters. */
+    private static void field(StringBuilder row, String value) {
+        row.append('\t');
+        if (value == null) {
+            row.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+    }
+
+    @Override
+    public Ownership own() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        boolean locked = false;
+        try {
+            locked = Boolean.TRUE.equals(session.queryForObject(
+                    "SELECT pg_try_advisory_lock(hashtext('analytics.lead_aggregate_rebuild'))", Boolean.class));
+        } finally {
+            if (!locked) DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        if (!locked) throw new IllegalStateException("A rebuild of analytics.lead_aggregate is running on another instance");
+        // A pooled connection outlives close(): the lock is released explicitly
+        return () -> {
+            try {
+                session.execute("SELECT pg_advisory_unlock(hashtext('analytics.lead_aggregate_rebuild'))");
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        };
+    }
+}
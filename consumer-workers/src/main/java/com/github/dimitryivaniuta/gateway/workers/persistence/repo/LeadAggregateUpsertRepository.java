@@ -2,9 +2,26 @@ package com.github.dimitryivaniuta.gateway.workers.persistence.repo;
 
 import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 public interface LeadAggregateUpsertRepository {
     /**
      * @return true if inserted (new), false if duplicate (event already seen)
      */
     boolean insertIfAbsent(LeadAggregateEntity entity);
-}
\ No newline at end of file
+
+    /**
+     * Inserts all rows in one transaction, with multi-row INSERT ... ON CONFLICT DO NOTHING statements.
+     * @return event ids of the rows actually inserted (ids missing from it were duplicates)
+     */
+    Set<UUID> insertAllIfAbsent(List<LeadAggregateEntity> entities);
+
+    /**
+     * One SELECT ... WHERE event_id = ANY(?) (a single array parameter, so one plan whatever the size).
+     * @return the ids among {@code eventIds} already aggregated
+     */
+    Set<UUID> findExisting(Collection<UUID> eventIds);
+}
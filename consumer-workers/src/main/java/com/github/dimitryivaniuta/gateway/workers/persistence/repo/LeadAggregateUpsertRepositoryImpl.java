@@ -1,18 +1,27 @@
 package com.github.dimitryivaniuta.gateway.workers.persistence.repo;
 
+import com.github.dimitryivaniuta.gateway.common.sql.MultiRowValues;
 import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 @Repository
 @RequiredArgsConstructor
 class LeadAggregateUpsertRepositoryImpl implements LeadAggregateUpsertRepository {
 
     @PersistenceContext
     private final EntityManager em;
+    private final JdbcTemplate jdbc;
 
     @Transactional
     @Override
@@ -33,4 +42,55 @@ class LeadAggregateUpsertRepositoryImpl implements LeadAggregateUpsertRepository
                 .executeUpdate();
         return updated == 1;
     }
+
+    /** One INSERT ... VALUES (...), (...) ... RETURNING event_id per MultiRowValues.MAX_ROWS rows. */
+    @Transactional
+    @Override
+    public Set<UUID> insertAllIfAbsent(List<LeadAggregateEntity> entities) {
+        return insertAllIfAbsent(em, "analytics.lead_aggregate", entities);
+    }
+
+    /**
+     * The multi-row insert into {@code table} (lead_aggregate or its layout); also used by
+     * LeadAggregateRebuildRepositoryImpl.
+     */
+    static Set<UUID> insertAllIfAbsent(EntityManager em, String table, List<LeadAggregateEntity> entities) {
+        Set<UUID> inserted = new HashSet<>(entities.size() * 2);
+        for (List<LeadAggregateEntity> chunk : MultiRowValues.chunks(entities)) {
+            var q = em.createNativeQuery(multiRowInsert(table, chunk.size()));
+            int p = 1;
+            for (LeadAggregateEntity e : chunk) {
+                q.setParameter(p++, e.getEventId())
+                 .setParameter(p++, e.getTenantId())
+                 .setParameter(p++, e.getCity())
+                 .setParameter(p++, e.getBudgetUsd())
+                 .setParameter(p++, e.getOccurredAt());
+            }
+            for (Object id : q.getResultList()) {
+                inserted.add((UUID) id);
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public Set<UUID> findExisting(Collection<UUID> eventIds) {
+        Set<UUID> found = new HashSet<>();
+        if (eventIds.isEmpty()) return found;
+        jdbc.query("SELECT event_id FROM analytics.lead_aggregate WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", eventIds.toArray())),
+                rs -> { found.add(rs.getObject(1, UUID.class)); });
+        return found;
+    }
+
+    private static String multiRowInsert(String table, int rows) {
+        return "INSERT INTO " + table + """
+
+              (event_id, tenant_id, city, budget_usd, occurred_at, created_at)
+            VALUES
+            """ + MultiRowValues.of(rows, "?", "?", "CAST(? AS TEXT)", "CAST(? AS INTEGER)", "?", "now()") + """
+
+            ON CONFLICT (event_id) DO NOTHING
+            RETURNING event_id""";
+    }
 }
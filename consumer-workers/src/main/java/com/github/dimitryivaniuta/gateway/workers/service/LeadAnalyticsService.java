@@ -9,6 +9,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 /**
  * Aggregates lead events into the analytics projection.
  * Uses single-statement UPSERT for idempotency; updates a monotonic offset row per (topic, partition).
@@ -30,11 +36,8 @@ public class LeadAnalyticsService {
      */
     @Transactional
     public boolean process(String topic, int partition, long offset, LeadEvent event) {
-        // 1) Map domain event -> analytics projection
-        LeadAggregateEntity agg = mapper.toEntity(event);
-
-        // 2) Idempotent write (INSERT ... ON CONFLICT DO NOTHING)
-        boolean inserted = upsertRepo.insertIfAbsent(agg);
+        // 1) + 2) projection + idempotent write
+        boolean inserted = aggregate(event);
 
         // 3) Optional: track last committed Kafka offset per (topic, partition)
         //    Uses INSERT ... ON CONFLICT DO UPDATE with GREATEST(last_offset, excluded.last_offset)
@@ -42,4 +45,39 @@ public class LeadAnalyticsService {
 
         return inserted;
     }
+
+    /**
+     * Projection + idempotent write only, without the offset row: for parallel processing, where records of a
+     * partition finish out of order and every transaction would queue on that one row's lock.
+     * @return true if a new aggregate row was inserted; false if the event was already processed.
+     */
+    @Transactional
+    public boolean aggregate(LeadEvent event) {
+        // 1) Map domain event -> analytics projection
+        LeadAggregateEntity agg = mapper.toEntity(event);
+
+        // 2) Idempotent write (INSERT ... ON CONFLICT DO NOTHING)
+        return upsertRepo.insertIfAbsent(agg);
+    }
+
+    /**
+     * Batch variant of {@link #process}: all events in one transaction (multi-row INSERT ... RETURNING), plus one
+     * offset row update per partition with the last offset of the batch's records in it.
+     * @return per event, in order: true if inserted, false if a duplicate (already aggregated, or repeated in the list)
+     */
+    @Transactional
+    public List<Boolean> processAll(String topic, List<LeadEvent> events, Map<Integer, Long> lastOffsets) {
+        List<LeadAggregateEntity> entities = new ArrayList<>(events.size());
+        for (LeadEvent e : events) {
+            entities.add(mapper.toEntity(e));
+        }
+        Set<UUID> inserted = upsertRepo.insertAllIfAbsent(entities);
+        lastOffsets.forEach((partition, offset) -> offsetRepo.upsertOffset(topic, partition, offset));
+
+        List<Boolean> results = new ArrayList<>(events.size());
+        for (LeadEvent e : events) {
+            results.add(inserted.remove(e.eventId())); // a repeated eventId counts as inserted once
+        }
+        return results;
+    }
 }
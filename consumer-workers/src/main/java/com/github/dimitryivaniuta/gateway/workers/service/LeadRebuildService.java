@@ -0,0 +1,43 @@
+package com.github.dimitryivaniuta.gateway.workers.service;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.rebuild.ShadowTableRebuild;
+import com.github.dimitryivaniuta.gateway.workers.persistence.entity.LeadAggregateEntity;
+import com.github.dimitryivaniuta.gateway.workers.persistence.mapper.LeadAggregateMapper;
+import com.github.dimitryivaniuta.gateway.workers.persistence.repo.LeadAggregateRebuildRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds analytics.lead_aggregate from leads.events into a shadow table and swaps it in while the listeners
+ * keep writing the live table (ShadowTableRebuild; started from /actuator/rebuild, LeadRebuildEndpoint).
+ * - the old table is kept as analytics.lead_aggregate_retired_<time>, the id sequence moves to the new table
+ */
+@Service
+public class LeadRebuildService extends ShadowTableRebuild<LeadAggregateEntity> {
+
+    private final LeadAggregateMapper mapper;
+
+    public LeadRebuildService(
+            ConsumerFactory<String, LeadEvent> consumerFactory,
+            LeadAggregateRebuildRepository rebuild,
+            LeadAggregateMapper mapper,
+            @Value("${app.rebuild.parallelism:4}") int parallelism,
+            @Value("${app.rebuild.max-poll-records:5000}") int maxPollRecords,
+            @Value("${app.rebuild.max-partition-fetch-bytes:8388608}") int maxPartitionFetchBytes,
+            @Value("${app.rebuild.swap-lag:20000}") long swapLag,
+            @Value("${app.rebuild.catch-up-rounds:10}") int catchUpRounds,
+            @Value("${app.rebuild.swap-attempts:3}") int swapAttempts,
+            @Value("${app.rebuild.lock-timeout-ms:5000}") long lockTimeoutMs,
+            @Value("${app.rebuild.progress-interval-ms:10000}") long progressIntervalMs) {
+        super("analytics.lead_aggregate", "lead-aggregate-rebuild", consumerFactory, rebuild, new Settings(parallelism, maxPollRecords,
+                maxPartitionFetchBytes, swapLag, catchUpRounds, swapAttempts, lockTimeoutMs, progressIntervalMs));
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected LeadAggregateEntity toEntity(LeadEvent event) {
+        return mapper.toEntity(event);
+    }
+}
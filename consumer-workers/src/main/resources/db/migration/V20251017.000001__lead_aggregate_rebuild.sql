@@ -0,0 +1,110 @@
+-- Shadow rebuild of analytics.lead_aggregate from leads.events (LeadRebuildService), while the live consumer
+-- keeps writing:
+-- 1. lead_aggregate_rebuild_prepare: an UNLOGGED heap without keys or indexes,
+--    analytics.lead_aggregate_rebuild_load, takes the replay (COPY, duplicates included) at bulk-load speed
+-- 2. lead_aggregate_rebuild_finish: the rows go, deduplicated, into analytics.lead_aggregate_rebuild (same
+--    layout; ids from the same sequence); the keys and indexes are built once, over all rows, at the end
+-- 3. the service tops it up with what was published meanwhile (INSERT ... ON CONFLICT DO NOTHING)
+-- 4. lead_aggregate_rebuild_swap, in the transaction that locked lead_aggregate and wrote the last records:
+--    lead_aggregate and its indexes are renamed to lead_aggregate_retired_<suffix>..., the shadow's take the
+--    live names, and the id sequence moves to the new table
+-- The retired table is kept (rollback = swap the names back by hand); drop it once the rebuild is checked.
+-- lead_aggregate_rebuild_abort drops the tables of an unfinished rebuild.
+
+SET search_path TO analytics;
+
+CREATE OR REPLACE FUNCTION lead_aggregate_rebuild_prepare() RETURNS void
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF to_regclass('analytics.lead_aggregate_rebuild_load') IS NOT NULL
+        OR to_regclass('analytics.lead_aggregate_rebuild') IS NOT NULL THEN
+        RAISE EXCEPTION 'a rebuild of analytics.lead_aggregate is running or was interrupted (lead_aggregate_rebuild*): cancel it first';
+    END IF;
+    CREATE UNLOGGED TABLE analytics.lead_aggregate_rebuild_load (
+        event_id     UUID        NOT NULL,
+        tenant_id    TEXT        NOT NULL,
+        city         TEXT,
+        budget_usd   INTEGER,
+        occurred_at  TIMESTAMPTZ NOT NULL,
+        created_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+    );
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION lead_aggregate_rebuild_finish() RETURNS BIGINT
+    LANGUAGE plpgsql AS $$
+DECLARE
+    v_rows BIGINT;
+BEGIN
+    -- id keeps its default: nextval of lead_aggregate_id_seq, shared with the live table
+    CREATE TABLE analytics.lead_aggregate_rebuild (LIKE analytics.lead_aggregate INCLUDING DEFAULTS);
+
+    -- Redeliveries of an event: keep the first; ids follow event_id (UUIDv7, i.e. time) order
+    INSERT INTO analytics.lead_aggregate_rebuild (event_id, tenant_id, city, budget_usd, occurred_at, created_at)
+    SELECT DISTINCT ON (event_id) event_id, tenant_id, city, budget_usd, occurred_at, created_at
+      FROM analytics.lead_aggregate_rebuild_load
+     ORDER BY event_id, created_at;
+    GET DIAGNOSTICS v_rows = ROW_COUNT;
+    DROP TABLE analytics.lead_aggregate_rebuild_load;
+
+    ALTER TABLE analytics.lead_aggregate_rebuild
+        ADD CONSTRAINT lead_aggregate_rebuild_pkey PRIMARY KEY (id),
+        ADD CONSTRAINT lead_aggregate_rebuild_event_id_key UNIQUE (event_id);
+    CREATE INDEX idx_leadagg_rebuild_tenant ON analytics.lead_aggregate_rebuild (tenant_id);
+    CREATE INDEX idx_leadagg_rebuild_city   ON analytics.lead_aggregate_rebuild (city);
+    CREATE INDEX idx_leadagg_rebuild_time   ON analytics.lead_aggregate_rebuild (occurred_at);
+    ANALYZE analytics.lead_aggregate_rebuild;
+    RETURN v_rows;
+END;
+$$;
+
+-- Renames lead_aggregate to lead_aggregate_retired_<p_suffix> (indexes: lead_aggregate_retired_<p_suffix>_...,
+-- idx_leadagg_retired_<p_suffix>_...) and the shadow to the live names. The caller holds an EXCLUSIVE lock
+-- on lead_aggregate. Returns the retired table.
+CREATE OR REPLACE FUNCTION lead_aggregate_rebuild_swap(p_suffix TEXT) RETURNS TEXT
+    LANGUAGE plpgsql AS $$
+DECLARE
+    v_retired TEXT := 'lead_aggregate_retired_' || p_suffix;
+    v_names   TEXT[];
+    v_name    TEXT;
+BEGIN
+    IF p_suffix !~ '^[a-z0-9_]{1,20}$' THEN
+        RAISE EXCEPTION 'invalid suffix: %', p_suffix;
+    END IF;
+    IF to_regclass('analytics.lead_aggregate_rebuild') IS NULL
+        OR to_regclass('analytics.lead_aggregate_rebuild_load') IS NOT NULL THEN
+        RAISE EXCEPTION 'analytics.lead_aggregate_rebuild is not ready to be swapped in';
+    END IF;
+    LOCK TABLE analytics.lead_aggregate, analytics.lead_aggregate_rebuild IN ACCESS EXCLUSIVE MODE;
+
+    -- Indexes first (renaming a key's index renames the constraint); names collected before renaming
+    SELECT array_agg(i.relname) INTO v_names
+      FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+     WHERE x.indrelid = 'analytics.lead_aggregate'::regclass;
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER INDEX analytics.%I RENAME TO %I', v_name,
+                       regexp_replace(v_name, '(lead_aggregate|leadagg)', '\1_retired_' || p_suffix));
+    END LOOP;
+    EXECUTE format('ALTER TABLE analytics.lead_aggregate RENAME TO %I', v_retired);
+
+    SELECT array_agg(i.relname) INTO v_names
+      FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+     WHERE x.indrelid = 'analytics.lead_aggregate_rebuild'::regclass;
+    FOREACH v_name IN ARRAY COALESCE(v_names, '{}') LOOP
+        EXECUTE format('ALTER INDEX analytics.%I RENAME TO %I', v_name, regexp_replace(v_name, '_rebuild', ''));
+    END LOOP;
+    ALTER TABLE analytics.lead_aggregate_rebuild RENAME TO lead_aggregate;
+
+    -- Dropping the retired table must not drop the sequence the live ids come from
+    ALTER SEQUENCE analytics.lead_aggregate_id_seq OWNED BY analytics.lead_aggregate.id;
+    RETURN v_retired;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION lead_aggregate_rebuild_abort() RETURNS void
+    LANGUAGE plpgsql AS $$
+BEGIN
+    DROP TABLE IF EXISTS analytics.lead_aggregate_rebuild_load;
+    DROP TABLE IF EXISTS analytics.lead_aggregate_rebuild;
+END;
+$$;
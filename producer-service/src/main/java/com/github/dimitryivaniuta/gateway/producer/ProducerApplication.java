@@ -2,8 +2,10 @@ package com.github.dimitryivaniuta.gateway.producer;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class ProducerApplication {
     public static void main(String[] args) {
         SpringApplication.run(ProducerApplication.class, args);
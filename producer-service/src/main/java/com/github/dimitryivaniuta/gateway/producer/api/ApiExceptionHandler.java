@@ -0,0 +1,42 @@
+package com.github.dimitryivaniuta.gateway.producer.api;
+
+import com.github.dimitryivaniuta.gateway.producer.service.IdempotencyKeyReusedException;
+import com.github.dimitryivaniuta.gateway.producer.service.InvalidIdempotencyKeyException;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps service exceptions to HTTP responses (RFC 9457 problem details).
+ * - PublishRejectedException -> 429 Too Many Requests + Retry-After (seconds)
+ * - IdempotencyKeyReusedException -> 422 Unprocessable Entity
+ * - InvalidIdempotencyKeyException -> 400 Bad Request
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(PublishRejectedException.class)
+    public ResponseEntity<ProblemDetail> onPublishRejected(PublishRejectedException ex) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        problem.setProperty("retryAfterSeconds", ex.getRetryAfterSeconds());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(problem);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail onIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ProblemDetail onInvalidIdempotencyKey(InvalidIdempotencyKeyException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+}
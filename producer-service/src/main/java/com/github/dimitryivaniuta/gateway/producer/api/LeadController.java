@@ -1,7 +1,12 @@
 package com.github.dimitryivaniuta.gateway.producer.api;
 
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
 import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
+import com.github.dimitryivaniuta.gateway.producer.service.IdempotencyService;
+import com.github.dimitryivaniuta.gateway.producer.service.LeadBatchIngestService;
 import com.github.dimitryivaniuta.gateway.producer.service.LeadPublisher;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishMetrics;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -9,17 +14,27 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Minimal REST façade for publishing Real Estate lead events to Kafka.
  *
  * Contract:
  *  - POST /api/leads
- *    Headers (optional): X-Tenant-Id
+ *    Headers (optional): X-Tenant-Id, Idempotency-Key
  *    Body: LeadCreateRequest
- *    Response: 201 Created, body = eventId (UUID as String), Location points to the event URI
+ *    Response: 201 Created, body = eventId (UUID as String), Location points to the event URI.
+ *              Sent only after the event's Kafka transaction committed; the request is handled asynchronously.
+ *              A retry with the same Idempotency-Key (same tenant and body) returns the original eventId;
+ *              the same key with a different body gets 422.
+ *  - POST /api/leads/batch
+ *    Headers (optional): X-Tenant-Id
+ *    Body: application/x-ndjson, one LeadCreateRequest per line
+ *    Response: 200 OK, application/x-ndjson, one {"line","eventId"|"error"} object per input line
  *
  * Notes:
  *  - The actual event publishing is done by LeadPublisher (transactional Kafka producer).
@@ -31,15 +46,56 @@ import java.util.UUID;
 @Validated
 public class LeadController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final LeadPublisher publisher;
+    private final LeadBatchIngestService batchIngest;
+    private final IdempotencyService idempotency;
+    private final PublishMetrics metrics;
 
+    /**
+     * Acknowledged publish: the servlet thread is released immediately and the 201 is written
+     * once the broker has acked the transaction, so a returned eventId is always durable.
+     * Handler entry to commit (or failure, including 429) is recorded as leads.publish.latency.
+     */
     @PostMapping(consumes = "application/json")
-    public ResponseEntity<String> createLead(
+    public CompletableFuture<ResponseEntity<String>> createLead(
             @Valid @RequestBody LeadCreateRequest request,
-            @RequestHeader(name = "X-Tenant-Id", required = false) String tenantId
+            @RequestHeader(name = "X-Tenant-Id", required = false) String tenantId,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        UUID eventId = publisher.publishCreate(request, tenantId);
+        long start = System.nanoTime();
+        String tenant = LeadPublisher.normalizeTenant(tenantId);
+        PublishMetrics.Meters meters = metrics.meters(tenant, LeadEventType.CREATED);
+        try {
+            return idempotency
+                    .publishOnce(idempotencyKey, tenant, request, () -> publisher.publishCreateAsync(request, tenantId))
+                    .whenComplete((eventId, ex) -> meters.recordLatency(start, ex == null))
+                    .thenApply(LeadController::created);
+        } catch (RuntimeException ex) {
+            meters.recordLatency(start, false);
+            throw ex;
+        }
+    }
+
+    /**
+     * Bulk ingestion for partner feeds. The body is streamed (never fully buffered) and published
+     * in chunked Kafka transactions; a bad line is reported on its own result line and does not abort its chunk.
+     */
+    @PostMapping(path = "/batch", consumes = NDJSON, produces = NDJSON)
+    public void createLeadsBatch(
+            InputStream body,
+            HttpServletResponse response,
+            @RequestHeader(name = "X-Tenant-Id", required = false) String tenantId
+    ) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(NDJSON);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        batchIngest.ingest(body, response.getOutputStream(), tenantId);
+    }
 
+    private static ResponseEntity<String> created(UUID eventId) {
         // Build a canonical Location header for observability/tools (no retrieval endpoint needed to be useful)
         URI location = URI.create("/api/leads/events/" + eventId);
 
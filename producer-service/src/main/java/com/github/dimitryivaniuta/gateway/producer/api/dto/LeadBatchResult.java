@@ -0,0 +1,26 @@
+package com.github.dimitryivaniuta.gateway.producer.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+/**
+ * One NDJSON response line of POST /api/leads/batch.
+ * - line: 1-based line number of the input record
+ * - eventId: set when the record was published
+ * - error: set when the record was rejected (validation/parse) or its chunk failed to publish
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LeadBatchResult(
+        long line,
+        UUID eventId,
+        String error
+) {
+    public static LeadBatchResult published(long line, UUID eventId) {
+        return new LeadBatchResult(line, eventId, null);
+    }
+
+    public static LeadBatchResult rejected(long line, String error) {
+        return new LeadBatchResult(line, null, error);
+    }
+}
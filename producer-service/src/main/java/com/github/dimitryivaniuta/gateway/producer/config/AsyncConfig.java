@@ -0,0 +1,25 @@
+package com.github.dimitryivaniuta.gateway.producer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for the acknowledged (commit-aware) publish path.
+ * Request handling itself runs on virtual threads via spring.threads.virtual.enabled=true.
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Per-call transactions of the acknowledged path (group commit off): committers virtual threads, one
+     * transaction (and transactional producer) each; further publishes queue here, bounded by admission control.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService publishAckExecutor(@Value("${app.kafka.group-commit.committers:2}") int committers) {
+        return Executors.newFixedThreadPool(committers, Thread.ofVirtual().name("lead-ack-", 0).factory());
+    }
+}
@@ -1,26 +1,43 @@
 package com.github.dimitryivaniuta.gateway.producer.config;
 
+import com.github.dimitryivaniuta.gateway.common.kafka.HotKeyAwarePartitioner;
+import com.github.dimitryivaniuta.gateway.common.kafka.HotKeyTracker;
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventFormat;
+import com.github.dimitryivaniuta.gateway.common.kafka.LeadEventSerializer;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Producer configuration:
- * - JSON value serializer (no type headers; consumers bind explicitly)
+ * - LeadEvent value serializer: JSON (no type headers; consumers bind explicitly) or the compact binary
+ *   format, selected by app.kafka.value-format and announced per record in the x-event-format header
  * - Idempotent + transactional producer (exactly-once when combined with a transactional sink)
  * - Sensible batching/compression defaults for throughput
+ * - Producer client metrics in Micrometer (kafka.producer.*), read by AdmissionController
+ * - Serialization time / record size per tenant and type (MeteredValueSerializer -> PublishMetrics)
+ * - HotKeyAwarePartitioner (app.kafka.partitioner.*): key-frequency/skew tracking, opt-in tenant salting
  */
+@Slf4j
 @Configuration
 public class KafkaProducerConfig {
 
@@ -29,12 +46,19 @@ public class KafkaProducerConfig {
      * Boot's KafkaProperties provide base props (bootstrap servers, etc.); we override critical settings here.
      */
     @Bean
-    public ProducerFactory<String, Object> producerFactory(KafkaProperties properties) {
+    public ProducerFactory<String, Object> producerFactory(
+            KafkaProperties properties,
+            MeterRegistry meterRegistry,
+            HotKeyTracker hotKeyTracker,
+            PublishMetrics publishMetrics,
+            @Value("${app.kafka.value-format:json}") String valueFormat,
+            @Value("${app.kafka.partitioner.hot-key-aware:true}") boolean hotKeyAware,
+            @Value("${app.kafka.partitioner.salted-tenants:}") String saltedTenants) {
         Map<String, Object> props = new HashMap<>(properties.buildProducerProperties());
 
-        // Serializers
+        // Serializers (value serializer instance below; the factory configures it with these props)
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.remove(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
         // No type headers – consumers bind explicitly to LeadEvent
         props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
 
@@ -47,7 +71,20 @@ public class KafkaProducerConfig {
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30_000);
         props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120_000);
 
-        DefaultKafkaProducerFactory<String, Object> pf = new DefaultKafkaProducerFactory<>(props);
+        // Unsalted keys land where the default partitioner puts them; salted tenants spread reused leadIds
+        if (hotKeyAware) {
+            props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, HotKeyAwarePartitioner.class);
+            props.put(HotKeyAwarePartitioner.TRACKER_CONFIG, hotKeyTracker);
+            props.put(HotKeyAwarePartitioner.SALTED_TENANTS_CONFIG, saltedTenants);
+        }
+
+        // LeadEvent: streaming JSON or binary codec; JsonSerializer only for any other value type
+        // Metered: serialization time + value size per tenant/type (PublishMetrics)
+        MeteredValueSerializer valueSerializer = new MeteredValueSerializer(
+                new LeadEventSerializer(LeadEventFormat.fromConfig(valueFormat), new JsonSerializer<>()),
+                publishMetrics);
+        DefaultKafkaProducerFactory<String, Object> pf =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), valueSerializer);
 
         // Make the factory transaction-capable
         String txPrefix = properties.getProducer().getTransactionIdPrefix();
@@ -57,9 +94,48 @@ public class KafkaProducerConfig {
         }
         pf.setTransactionIdPrefix(txPrefix);
 
+        // buffer-available-bytes, record-queue-time-avg, ... per producer (tagged with client.id)
+        pf.addListener(new MicrometerProducerListener<>(meterRegistry));
+
         return pf;
     }
 
+    /**
+     * Key-frequency and partition-load statistics shared by all producers' partitioners.
+     * - leads.partition.skew: busiest partition's load / even share (1.0 = even)
+     * - leads.hotkey.top.share: traffic share of the heaviest key
+     * - leads.hotkey.dropped: records the partitioners left out of the statistics rather than wait for the tracker
+     * - WARN log of the heaviest keys whenever one exceeds hot-share (checked every decay-every records)
+     */
+    @Bean
+    public HotKeyTracker hotKeyTracker(
+            MeterRegistry meterRegistry,
+            @Value("${app.kafka.partitioner.sketch-capacity:128}") int capacity,
+            @Value("${app.kafka.partitioner.decay-every:100000}") long decayEvery,
+            @Value("${app.kafka.partitioner.hot-share:0.05}") double hotShare) {
+        HotKeyTracker tracker = new HotKeyTracker(capacity, decayEvery);
+
+        Gauge.builder("leads.partition.skew", tracker, HotKeyTracker::skew)
+                .description("Busiest leads.events partition load relative to an even spread").register(meterRegistry);
+        Gauge.builder("leads.hotkey.top.share", tracker, t -> {
+                    List<HotKeyTracker.HotKey> top = t.topKeys(1);
+                    return top.isEmpty() ? 0.0 : top.get(0).share();
+                })
+                .description("Traffic share of the most frequent record key").register(meterRegistry);
+        FunctionCounter.builder("leads.hotkey.dropped", tracker, HotKeyTracker::dropped)
+                .description("Records left out of the key statistics (tracker busy)").register(meterRegistry);
+
+        tracker.onDecay(window -> {
+            List<HotKeyTracker.HotKey> hot = window.topKeys().stream().limit(5)
+                    .filter(k -> k.share() >= hotShare).toList();
+            if (!hot.isEmpty()) {
+                log.warn("Hot keys on {} (partition skew {}): {}",
+                        Topics.LEADS, "%.2f".formatted(window.skew()), hot);
+            }
+        });
+        return tracker;
+    }
+
     /**
      * Transaction manager for KafkaTemplate#executeInTransaction(...) and @Transactional("kafkaTransactionManager").
      * The transaction-id prefix should be configured in application.yml:
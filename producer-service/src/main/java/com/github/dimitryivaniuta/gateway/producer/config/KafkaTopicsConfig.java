@@ -11,6 +11,8 @@ import org.apache.kafka.clients.admin.NewTopic;
 /**
  * Creates topics on startup via AdminClient (enabled by spring.kafka.admin.*).
  * Defaults are safe for a single-broker dev stack; tune via env in higher envs.
+ * The retry tier topics (leads.events.retry.<group>.<delay>) are created by the consumer services, where their
+ * tiers are configured (RetryTiers).
  */
 @Configuration
 public class KafkaTopicsConfig {
@@ -43,20 +45,6 @@ public class KafkaTopicsConfig {
                 .build();
     }
 
-    /**
-     * Optional retry topic (if you implement delayed retries with a scheduler/bridge).
-     * Created now so tooling/Kafka UI shows it; you can remove if not used.
-     */
-    @Bean
-    public NewTopic leadsRetryTopic() {
-        return TopicBuilder.name(Topics.LEADS_RETRY)
-                .partitions(leadsPartitions)
-                .replicas(replicationFactor)
-                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(7L * 24 * 60 * 60 * 1000)) // 7 days
-                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE)
-                .build();
-    }
-
     /**
      * Dead-letter topic used by consumers' DefaultErrorHandler (DLT recoverer).
      * Keep long retention for forensic/audit; consider compaction if you plan dedupe downstream.
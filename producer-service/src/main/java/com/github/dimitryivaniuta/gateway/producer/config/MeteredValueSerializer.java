@@ -0,0 +1,62 @@
+package com.github.dimitryivaniuta.gateway.producer.config;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.producer.service.PublishMetrics;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Value serializer decorator that records serialization time and value size of every LeadEvent
+ * (leads.publish.serialization / leads.publish.record.size); other values pass through unmeasured.
+ */
+class MeteredValueSerializer implements Serializer<Object> {
+
+    private final Serializer<Object> delegate;
+    private final PublishMetrics metrics;
+
+    MeteredValueSerializer(Serializer<Object> delegate, PublishMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (!(data instanceof LeadEvent event)) {
+            return delegate.serialize(topic, data);
+        }
+        long start = System.nanoTime();
+        byte[] bytes = delegate.serialize(topic, data);
+        record(event, start, bytes);
+        return bytes;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (!(data instanceof LeadEvent event)) {
+            return delegate.serialize(topic, headers, data);
+        }
+        long start = System.nanoTime();
+        byte[] bytes = delegate.serialize(topic, headers, data);
+        record(event, start, bytes);
+        return bytes;
+    }
+
+    private void record(LeadEvent event, long start, byte[] bytes) {
+        long nanos = System.nanoTime() - start;
+        if (bytes != null && event.tenantId() != null && event.type() != null) {
+            metrics.meters(event.tenantId(), event.type()).recordSerialization(nanos, bytes.length);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.dimitryivaniuta.gateway.producer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-tenant ingestion rate limits (app.leads.rate-limit.*), see TenantRateLimiter.
+ * - tiers: named (rate-per-second, burst) pairs; none configured = one default tier of 200/s, burst 400
+ * - tenants: X-Tenant-Id -> tier name; tenants not listed use default-tier
+ * - idle-eviction: buckets untouched for this long are dropped (a returning tenant starts with a full burst)
+ */
+@ConfigurationProperties(prefix = "app.leads.rate-limit")
+public record RateLimitProperties(
+        Boolean enabled,
+        String defaultTier,
+        Map<String, Tier> tiers,
+        Map<String, String> tenants,
+        Duration idleEviction,
+        Long maxTenants
+) {
+    /** Used when no tiers are configured at all. */
+    public static final Tier DEFAULT_TIER = new Tier(200, 400);
+
+    public RateLimitProperties {
+        enabled = enabled == null || enabled;
+        defaultTier = defaultTier == null ? "standard" : defaultTier;
+        tiers = tiers == null || tiers.isEmpty() ? Map.of(defaultTier, DEFAULT_TIER) : Map.copyOf(tiers);
+        tenants = tenants == null ? Map.of() : Map.copyOf(tenants);
+        idleEviction = idleEviction == null ? Duration.ofMinutes(10) : idleEviction;
+        maxTenants = maxTenants == null ? 100_000L : maxTenants;
+
+        if (!tiers.containsKey(defaultTier)) {
+            throw new IllegalArgumentException("app.leads.rate-limit.default-tier '" + defaultTier + "' is not defined in tiers");
+        }
+        for (Map.Entry<String, String> t : tenants.entrySet()) {
+            if (!tiers.containsKey(t.getValue())) {
+                throw new IllegalArgumentException("Tenant '" + t.getKey() + "' uses undefined rate-limit tier '" + t.getValue() + "'");
+            }
+        }
+    }
+
+    /** Sustained records per second and the number of records a full bucket admits at once. */
+    public record Tier(double ratePerSecond, int burst) {
+        public Tier {
+            if (ratePerSecond <= 0) throw new IllegalArgumentException("rate-per-second must be > 0");
+            if (burst < 1) throw new IllegalArgumentException("burst must be >= 1");
+        }
+    }
+}
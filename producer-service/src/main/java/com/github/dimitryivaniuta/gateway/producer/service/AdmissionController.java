@@ -0,0 +1,240 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control in front of LeadPublisher: rejects early (429 + Retry-After) instead of letting
+ * KafkaTemplate#send block on max.block.ms while the brokers are slow.
+ *
+ * A publish is admitted only while all of these hold:
+ * - records in flight (admitted, not yet committed/failed) stay below an adaptive limit
+ * - the producers' buffer-available-bytes / buffer-total-bytes stays above min-buffer-available-ratio
+ * - the producers' record-queue-time-avg stays below max-record-queue-time-ms
+ *
+ * The limit adapts to the measured ack latency (AIMD):
+ * - ack latency above target-ack-latency-ms, or a producer signal over its threshold: limit *= backoff-ratio,
+ *   at most once per target interval so one slow burst does not collapse it
+ * - otherwise, while at least half of the limit is in use: limit += 1 per ack
+ * Producer signals come from the Micrometer producer metrics (see KafkaProducerConfig) and are re-read
+ * lazily at most every signal-refresh-ms. With app.kafka.admission.enabled=false everything is admitted
+ * but in-flight records and latency are still measured.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetAckLatencyNanos;
+    private final double backoffRatio;
+    private final double minBufferAvailableRatio;
+    private final double maxRecordQueueTimeMs;
+    private final long signalRefreshNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Written under the lock, read without it on the admission path
+    private volatile double limit;
+    private volatile double ackLatencyEwmaNanos;
+    private long nextDecreaseAt; // guarded by this
+
+    // Producer signals (written by whichever caller refreshes them)
+    private final AtomicLong signalsReadAt = new AtomicLong(System.nanoTime());
+    private volatile double bufferAvailableRatio = 1.0;
+    private volatile double recordQueueTimeMs = 0.0;
+
+    private final Counter rejectedInFlight;
+    private final Counter rejectedBuffer;
+    private final Counter rejectedQueueTime;
+
+    public AdmissionController(
+            MeterRegistry registry,
+            @Value("${app.kafka.admission.enabled:true}") boolean enabled,
+            @Value("${app.kafka.admission.initial-limit:1000}") int initialLimit,
+            @Value("${app.kafka.admission.min-limit:50}") int minLimit,
+            @Value("${app.kafka.admission.max-limit:10000}") int maxLimit,
+            @Value("${app.kafka.admission.target-ack-latency-ms:250}") long targetAckLatencyMs,
+            @Value("${app.kafka.admission.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${app.kafka.admission.min-buffer-available-ratio:0.2}") double minBufferAvailableRatio,
+            @Value("${app.kafka.admission.max-record-queue-time-ms:500}") double maxRecordQueueTimeMs,
+            @Value("${app.kafka.admission.signal-refresh-ms:250}") long signalRefreshMs) {
+
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("app.kafka.admission requires 1 <= min-limit <= max-limit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("app.kafka.admission.backoff-ratio must be in (0, 1)");
+        }
+
+        this.registry = registry;
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.targetAckLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetAckLatencyMs);
+        this.backoffRatio = backoffRatio;
+        this.minBufferAvailableRatio = minBufferAvailableRatio;
+        this.maxRecordQueueTimeMs = maxRecordQueueTimeMs;
+        this.signalRefreshNanos = TimeUnit.MILLISECONDS.toNanos(signalRefreshMs);
+        this.nextDecreaseAt = System.nanoTime();
+
+        Gauge.builder("leads.admission.limit", this, AdmissionController::limit)
+                .description("Adaptive limit of records in flight").register(registry);
+        Gauge.builder("leads.admission.inflight", inFlight, AtomicInteger::get)
+                .description("Admitted records not yet committed or failed").register(registry);
+        Gauge.builder("leads.admission.ack.latency", this, c -> c.ackLatencyEwmaNanos() / 1_000_000.0)
+                .description("Smoothed publish-to-commit latency").baseUnit("milliseconds").register(registry);
+
+        this.rejectedInFlight = rejected(registry, "inflight");
+        this.rejectedBuffer = rejected(registry, "buffer");
+        this.rejectedQueueTime = rejected(registry, "queue-time");
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("leads.admission.rejected")
+                .description("Publish calls rejected by admission control")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Admits {@code records} records or throws.
+     * A call larger than the whole limit (e.g., a bulk chunk) is admitted only when nothing else is in flight,
+     * so it can always make progress eventually.
+     * @return permit that must be released once the records are committed or failed
+     * @throws PublishRejectedException when the service is over one of its thresholds
+     */
+    public Permit acquire(int records) {
+        refreshProducerSignals();
+
+        if (enabled) {
+            if (bufferAvailableRatio < minBufferAvailableRatio) {
+                rejectedBuffer.increment();
+                throw reject("producer buffer %.0f%% free".formatted(bufferAvailableRatio * 100));
+            }
+            if (recordQueueTimeMs > maxRecordQueueTimeMs) {
+                rejectedQueueTime.increment();
+                throw reject("producer record queue time %.0fms".formatted(recordQueueTimeMs));
+            }
+        }
+
+        int current;
+        do {
+            current = inFlight.get();
+            int max = (int) limit;
+            if (enabled && current > 0 && current + records > max) {
+                rejectedInFlight.increment();
+                throw reject("%d records in flight (limit %d)".formatted(current, max));
+            }
+        } while (!inFlight.compareAndSet(current, current + records));
+
+        return new Permit(records, System.nanoTime());
+    }
+
+    /** Current adaptive limit of records in flight. */
+    public double limit() {
+        return limit;
+    }
+
+    double ackLatencyEwmaNanos() {
+        return ackLatencyEwmaNanos;
+    }
+
+    private PublishRejectedException reject(String reason) {
+        return new PublishRejectedException("Publishing is throttled: " + reason, retryAfterSeconds());
+    }
+
+    /** Roughly the time for the current backlog to drain: twice the smoothed ack or producer queue latency. */
+    private long retryAfterSeconds() {
+        double latencyMs = Math.max(ackLatencyEwmaNanos() / 1_000_000.0, recordQueueTimeMs);
+        return Math.clamp((long) Math.ceil(2 * latencyMs / 1000.0), 1, MAX_RETRY_AFTER_SECONDS);
+    }
+
+    private synchronized void onAck(int records, long latencyNanos) {
+        ackLatencyEwmaNanos = ackLatencyEwmaNanos == 0
+                ? latencyNanos
+                : ackLatencyEwmaNanos + EWMA_ALPHA * (latencyNanos - ackLatencyEwmaNanos);
+
+        if (latencyNanos > targetAckLatencyNanos) {
+            decrease(System.nanoTime());
+        } else if (inFlight.get() + records >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /** Multiplicative decrease, at most once per target-ack-latency interval. Caller holds the lock. */
+    private void decrease(long now) {
+        if (now - nextDecreaseAt < 0) return;
+        double previous = limit;
+        limit = Math.max(minLimit, limit * backoffRatio);
+        nextDecreaseAt = now + targetAckLatencyNanos;
+        if ((int) previous != (int) limit) {
+            log.debug("Admission limit {} -> {}", (int) previous, (int) limit);
+        }
+    }
+
+    /**
+     * Re-reads the producer metrics if they are older than signal-refresh-ms.
+     * Several producers may exist (transactional pool): the worst value across them counts.
+     */
+    private void refreshProducerSignals() {
+        long now = System.nanoTime();
+        long readAt = signalsReadAt.get();
+        if (now - readAt < signalRefreshNanos || !signalsReadAt.compareAndSet(readAt, now)) {
+            return;
+        }
+
+        double available = Search.in(registry).name("kafka.producer.buffer.available.bytes").gauges().stream()
+                .mapToDouble(g -> g.value()).filter(Double::isFinite).min().orElse(Double.NaN);
+        double total = Search.in(registry).name("kafka.producer.buffer.total.bytes").gauges().stream()
+                .mapToDouble(g -> g.value()).filter(Double::isFinite).max().orElse(Double.NaN);
+        double queueTime = Search.in(registry).name("kafka.producer.record.queue.time.avg").gauges().stream()
+                .mapToDouble(g -> g.value()).filter(Double::isFinite).max().orElse(0.0);
+
+        bufferAvailableRatio = total > 0 && Double.isFinite(available) ? available / total : 1.0;
+        recordQueueTimeMs = queueTime;
+
+        if (bufferAvailableRatio < minBufferAvailableRatio || recordQueueTimeMs > maxRecordQueueTimeMs) {
+            synchronized (this) {
+                decrease(now);
+            }
+        }
+    }
+
+    /** Admission of a number of records; releasing it feeds the measured latency back into the limit. */
+    public final class Permit {
+        private final int records;
+        private final long admittedAt;
+        private boolean released;
+
+        private Permit(int records, long admittedAt) {
+            this.records = records;
+            this.admittedAt = admittedAt;
+        }
+
+        /** Call exactly once, when the records are committed or failed. Later calls are ignored. */
+        public void release() {
+            synchronized (this) {
+                if (released) return;
+                released = true;
+            }
+            inFlight.addAndGet(-records);
+            onAck(records, System.nanoTime() - admittedAt);
+        }
+    }
+}
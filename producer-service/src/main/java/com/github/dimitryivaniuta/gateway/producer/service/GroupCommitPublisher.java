@@ -0,0 +1,187 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for Kafka transactions.
+ * - Concurrent publish calls enqueue their messages; a small, fixed pool of committer threads
+ *   folds everything that arrives within the window (or up to max-batch-records) into ONE transaction.
+ * - Each caller's future completes only after the shared transaction commits (or fails with it).
+ * - Only the committer threads touch the transactional producer, so at most {@code committers}
+ *   transactional producers exist regardless of the number of Tomcat threads.
+ * On unless app.kafka.group-commit.enabled=false; LeadPublisher then runs per-call transactions, still at most
+ * {@code committers} at once.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.kafka.group-commit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class GroupCommitPublisher {
+
+    private final KafkaTemplate<String, Object> kafka;
+    private final BlockingQueue<Pending> queue;
+    private final long windowNanos;
+    private final int committers;
+    private final int maxBatchRecords;
+    private final long enqueueTimeoutMs;
+
+    private final DistributionSummary batchRecords;
+    private final DistributionSummary batchCallers;
+    private final Timer commitTimer;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public GroupCommitPublisher(
+            KafkaTemplate<String, Object> kafka,
+            MeterRegistry registry,
+            @Value("${app.kafka.group-commit.window-ms:5}") long windowMs,
+            @Value("${app.kafka.group-commit.committers:2}") int committers,
+            @Value("${app.kafka.group-commit.max-batch-records:500}") int maxBatchRecords,
+            @Value("${app.kafka.group-commit.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.kafka.group-commit.enqueue-timeout-ms:5000}") long enqueueTimeoutMs) {
+
+        if (committers < 1) throw new IllegalArgumentException("app.kafka.group-commit.committers must be >= 1");
+        if (maxBatchRecords < 1) throw new IllegalArgumentException("app.kafka.group-commit.max-batch-records must be >= 1");
+
+        this.kafka = kafka;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.committers = committers;
+        this.maxBatchRecords = maxBatchRecords;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        // Static configuration, exported so dashboards can correlate latency with the chosen window/pool
+        Gauge.builder("leads.group.commit.window", this, p -> TimeUnit.NANOSECONDS.toMillis(p.windowNanos))
+                .description("Group-commit collection window").baseUnit("milliseconds").register(registry);
+        Gauge.builder("leads.group.commit.committers", this, p -> p.committers)
+                .description("Size of the transactional committer pool").register(registry);
+        Gauge.builder("leads.group.commit.max.batch", this, p -> p.maxBatchRecords)
+                .description("Max records folded into one transaction").register(registry);
+        Gauge.builder("leads.group.commit.queue", queue, BlockingQueue::size)
+                .description("Publish calls waiting for a committer").register(registry);
+
+        this.batchRecords = DistributionSummary.builder("leads.group.commit.batch.records")
+                .description("Records committed per shared transaction").register(registry);
+        this.batchCallers = DistributionSummary.builder("leads.group.commit.batch.callers")
+                .description("Publish calls folded into one shared transaction").register(registry);
+        this.commitTimer = Timer.builder("leads.group.commit.duration")
+                .description("Time from first send to commit of a shared transaction").register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < committers; i++) {
+            Thread t = new Thread(this::runCommitter, "lead-group-commit-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        log.info("Group commit enabled: window={}ms committers={} maxBatchRecords={}",
+                TimeUnit.NANOSECONDS.toMillis(windowNanos), committers, maxBatchRecords);
+    }
+
+    /** Stops accepting work; committers drain what is already queued before exiting. */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /**
+     * Enqueues messages that must be committed atomically (never split across transactions).
+     * @return future completed when the shared transaction containing the messages commits
+     */
+    public CompletableFuture<Void> submit(List<? extends Message<?>> messages) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Group commit is shutting down"));
+        }
+        Pending pending = new Pending(List.copyOf(messages), new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Group commit queue full for " + enqueueTimeoutMs + "ms"));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ex);
+        }
+        return pending.done();
+    }
+
+    private void runCommitter() {
+        List<Pending> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                group.add(first);
+                int records = first.messages().size();
+                long deadline = System.nanoTime() + windowNanos;
+
+                while (records < maxBatchRecords) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    group.add(next);
+                    records += next.messages().size();
+                }
+
+                commit(group, records);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                group.forEach(p -> p.done().completeExceptionally(ex));
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> group, int records) {
+        long start = System.nanoTime();
+        try {
+            kafka.executeInTransaction(ops -> {
+                for (Pending p : group) {
+                    for (Message<?> m : p.messages()) {
+                        ops.send(m);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.error("Group commit of {} records ({} callers) failed", records, group.size(), ex);
+            group.forEach(p -> p.done().completeExceptionally(ex));
+            return;
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        batchRecords.record(records);
+        batchCallers.record(group.size());
+        group.forEach(p -> p.done().complete(null));
+    }
+
+    private record Pending(List<? extends Message<?>> messages, CompletableFuture<Void> done) { }
+}
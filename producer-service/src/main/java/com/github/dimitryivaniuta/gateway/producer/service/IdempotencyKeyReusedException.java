@@ -0,0 +1,12 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+/**
+ * An Idempotency-Key was replayed with a different request body; nothing was published.
+ * Mapped to 422 Unprocessable Entity (see ApiExceptionHandler).
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
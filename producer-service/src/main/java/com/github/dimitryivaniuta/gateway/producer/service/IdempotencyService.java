@@ -0,0 +1,126 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for POST /api/leads: a retried request returns the eventId of the original publish
+ * instead of minting a new one (sink idempotency only covers identical eventIds).
+ * - Bounded (max-entries), concurrent, TTL-evicting in-memory cache (Caffeine), keyed by tenant + key.
+ * - Coalescing (coalesce-in-flight=true): a retry that arrives while the first publish is still in flight
+ *   waits on that publish instead of racing it. Otherwise only completed publishes are remembered.
+ * - Failed publishes are forgotten, so the client can retry with the same key.
+ * - Reusing a key with a different body is rejected (IdempotencyKeyReusedException -> 422).
+ * - Hit/miss/eviction counters: cache.gets / cache.evictions tagged cache=leads.idempotency.
+ * Scope is one instance: retries routed to another replica are not deduplicated.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> cache;
+    private final boolean enabled;
+    private final boolean coalesceInFlight;
+
+    public IdempotencyService(
+            MeterRegistry registry,
+            @Value("${app.leads.idempotency.enabled:true}") boolean enabled,
+            @Value("${app.leads.idempotency.ttl:PT10M}") Duration ttl,
+            @Value("${app.leads.idempotency.max-entries:100000}") long maxEntries,
+            @Value("${app.leads.idempotency.coalesce-in-flight:true}") boolean coalesceInFlight) {
+        this.enabled = enabled;
+        this.coalesceInFlight = coalesceInFlight;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "leads.idempotency");
+    }
+
+    /**
+     * Publishes once per (tenant, idempotency key).
+     * @param idempotencyKey client-supplied key; null/blank disables deduplication for this call
+     * @param tenantId       normalized tenant id
+     * @param request        request body, compared with the original on a hit
+     * @param publish        starts the actual publish; called at most once per key while the entry lives
+     * @return future of the eventId: the original one on a hit
+     */
+    public CompletableFuture<UUID> publishOnce(String idempotencyKey, String tenantId, LeadCreateRequest request,
+                                               Supplier<CompletableFuture<UUID>> publish) {
+        if (!enabled || idempotencyKey == null || idempotencyKey.isBlank()) {
+            return publish.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = tenantId + '\u0000' + idempotencyKey;
+
+        if (!coalesceInFlight) {
+            Entry known = cache.getIfPresent(key);
+            if (known != null) {
+                return replay(known, request, idempotencyKey);
+            }
+            Entry entry = new Entry(request, new CompletableFuture<>());
+            start(key, entry, publish);
+            // Remember completed publishes only; concurrent first attempts may race
+            return entry.eventId().thenApply(eventId -> {
+                cache.put(key, entry);
+                return eventId;
+            });
+        }
+
+        Entry[] created = new Entry[1];
+        Entry entry = cache.get(key, k -> created[0] = new Entry(request, new CompletableFuture<>()));
+        if (entry != created[0]) {
+            return replay(entry, request, idempotencyKey);
+        }
+        start(key, entry, publish);
+        return entry.eventId().copy();
+    }
+
+    private void start(String key, Entry entry, Supplier<CompletableFuture<UUID>> publish) {
+        CompletableFuture<UUID> result = entry.eventId();
+        try {
+            publish.get().whenComplete((eventId, ex) -> {
+                if (ex != null) {
+                    cache.asMap().remove(key, entry);
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(eventId);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // e.g., PublishRejectedException: coalesced waiters fail the same way
+            cache.asMap().remove(key, entry);
+            result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private static CompletableFuture<UUID> replay(Entry entry, LeadCreateRequest request, String idempotencyKey) {
+        if (!entry.request().equals(request)) {
+            throw new IdempotencyKeyReusedException(
+                    "Idempotency-Key '" + idempotencyKey + "' was already used with a different request body");
+        }
+        log.debug("Idempotent replay for key {}", idempotencyKey);
+        // Callers must not be able to complete the shared future
+        return entry.eventId().copy();
+    }
+
+    /** Original request + eventId future (completed, or in flight when coalescing). */
+    private record Entry(LeadCreateRequest request, CompletableFuture<UUID> eventId) { }
+}
@@ -0,0 +1,12 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+/**
+ * The Idempotency-Key header is malformed (e.g. too long); nothing was published.
+ * Mapped to 400 Bad Request (see ApiExceptionHandler).
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadBatchResult;
+import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming NDJSON bulk ingestion (POST /api/leads/batch).
+ * - Reads the body line by line; only one chunk of requests/results is held in memory at a time.
+ * - Each chunk of valid lines is published in ONE Kafka transaction (LeadPublisher#publishCreateAll).
+ * - Invalid lines (bad JSON or bean-validation errors) are reported per line and never abort the chunk.
+ * - Results are written back as NDJSON in input order and flushed after every chunk.
+ * - Tenant rate limit: a chunk waits for its tokens (up to max-throttle-wait) before the next lines are read,
+ *   so a feed over its tier's rate is slowed down, with the request body pushed back, instead of rejected.
+ * - Admission control, or a tenant further than max-throttle-wait over its rate: if the first chunk is
+ *   rejected, nothing has been written yet and the PublishRejectedException propagates (429 + Retry-After);
+ *   later rejections are reported per line.
+ */
+@Slf4j
+@Service
+public class LeadBatchIngestService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final LeadPublisher publisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+
+    /** Max lines (valid + invalid) per Kafka transaction / response flush. */
+    @Value("${app.leads.batch.chunk-size:500}")
+    private int chunkSize;
+
+    /** Longest wait of one chunk for the tenant's rate limit before its lines are rejected. */
+    @Value("${app.leads.batch.max-throttle-wait:PT60S}")
+    private Duration maxThrottleWait;
+
+    public LeadBatchIngestService(LeadPublisher publisher, Validator validator, ObjectMapper objectMapper) {
+        this.publisher = publisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(LeadCreateRequest.class);
+    }
+
+    /**
+     * Consumes the NDJSON body and writes one NDJSON result line per non-blank input line.
+     * @return number of input lines processed
+     */
+    public long ingest(InputStream body, OutputStream out, String tenantHeader) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        Chunk chunk = new Chunk(chunkSize);
+        long lineNo = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+
+            chunk.add(lineNo, line);
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, out, tenantHeader);
+            }
+        }
+        flush(chunk, out, tenantHeader);
+        return lineNo;
+    }
+
+    private void flush(Chunk chunk, OutputStream out, String tenantHeader) throws IOException {
+        if (chunk.size() == 0) return;
+
+        if (!chunk.valid.isEmpty()) {
+            String error = null;
+            try {
+                List<UUID> eventIds = publisher.publishCreateAll(chunk.valid, tenantHeader, maxThrottleWait);
+                for (int i = 0; i < eventIds.size(); i++) {
+                    int slot = chunk.validSlots.get(i);
+                    chunk.results.set(slot, LeadBatchResult.published(chunk.results.get(slot).line(), eventIds.get(i)));
+                }
+            } catch (PublishRejectedException ex) {
+                if (!chunk.started) throw ex; // response not started yet: let the client see 429 + Retry-After
+                error = "throttled: " + ex.getMessage() + " (retry after " + ex.getRetryAfterSeconds() + "s)";
+            } catch (RuntimeException ex) {
+                // The whole transaction is aborted: none of the chunk's events are visible to consumers
+                log.error("Failed to publish batch chunk of {} leads", chunk.valid.size(), ex);
+                error = "publish failed: " + ex.getMessage();
+            }
+            if (error != null) {
+                for (int slot : chunk.validSlots) {
+                    chunk.results.set(slot, LeadBatchResult.rejected(chunk.results.get(slot).line(), error));
+                }
+            }
+        }
+
+        for (LeadBatchResult result : chunk.results) {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write(NEWLINE);
+        }
+        out.flush();
+        chunk.started = true;
+        chunk.clear();
+    }
+
+    /** Parses + validates one line; returns null when valid, otherwise a human-readable error. */
+    private String parse(String line, List<LeadCreateRequest> sink) {
+        final LeadCreateRequest req;
+        try {
+            req = requestReader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            return "malformed JSON: " + ex.getOriginalMessage();
+        }
+        if (req == null) {
+            return "malformed JSON: null record";
+        }
+
+        Set<ConstraintViolation<LeadCreateRequest>> violations = validator.validate(req);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        sink.add(req);
+        return null;
+    }
+
+    /** Reusable per-request buffer for one chunk of lines. */
+    private final class Chunk {
+        final List<LeadBatchResult> results;
+        final List<LeadCreateRequest> valid;
+        final List<Integer> validSlots;
+        /** Whether any result has been written (the response is committed). */
+        boolean started;
+
+        Chunk(int capacity) {
+            this.results = new ArrayList<>(capacity);
+            this.valid = new ArrayList<>(capacity);
+            this.validSlots = new ArrayList<>(capacity);
+        }
+
+        void add(long lineNo, String line) {
+            String error = parse(line, valid);
+            if (error == null) {
+                validSlots.add(results.size());
+                results.add(new LeadBatchResult(lineNo, null, null)); // filled in after publish
+            } else {
+                results.add(LeadBatchResult.rejected(lineNo, error));
+            }
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        void clear() {
+            results.clear();
+            valid.clear();
+            validSlots.clear();
+        }
+    }
+}
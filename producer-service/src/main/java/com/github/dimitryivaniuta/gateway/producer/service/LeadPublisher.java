@@ -3,51 +3,256 @@ package com.github.dimitryivaniuta.gateway.producer.service;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
 import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
 import com.github.dimitryivaniuta.gateway.common.event.LeadPayload;
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
 import com.github.dimitryivaniuta.gateway.common.kafka.Headers;
 import com.github.dimitryivaniuta.gateway.common.kafka.Topics;
 import com.github.dimitryivaniuta.gateway.producer.api.dto.LeadCreateRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 /**
  * Publishes domain events for Real-Estate leads.
  * - Idempotent semantics are enforced downstream (eventId is the sink PK).
- * - Uses Kafka transactions via "kafkaTransactionManager" (configured in KafkaProducerConfig).
+ * - Every call is committed in a Kafka transaction before it returns: one shared with concurrent callers
+ *   (GroupCommitPublisher, the default) or, with app.kafka.group-commit.enabled=false, its own
+ *   (KafkaTemplate#executeInTransaction). Either way at most app.kafka.group-commit.committers transactions,
+ *   each holding a transactional producer, are open at once; per-call transactions queue for a slot.
  * - No type headers in JSON; consumers bind to LeadEvent.class programmatically.
+ * - Every call passes the tenant's rate limit (TenantRateLimiter) and AdmissionController first and fails
+ *   fast with PublishRejectedException when the tenant or the service is over its limit.
+ * - With app.leads.spool.enabled=true, a publish that fails because the brokers are unreachable (or arrives
+ *   while earlier ones still wait for replay) is written to the local LeadSpool and reported as published.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class LeadPublisher {
 
     private static final String DEFAULT_TENANT = "default";
 
     private final KafkaTemplate<String, Object> kafka;
 
+    /** Present only when group commit is enabled. */
+    private final Optional<GroupCommitPublisher> groupCommit;
+
+    /** Runs per-call transactions off the request threads, committers at a time (see AsyncConfig). */
+    private final ExecutorService publishAckExecutor;
+
+    private final AdmissionController admission;
+
+    private final TenantRateLimiter rateLimiter;
+
+    /** Present only when the disk spool is enabled. */
+    private final Optional<LeadSpool> spool;
+
+    private final PublishMetrics metrics;
+
+    /** Per-call transactions open at once: each takes its own transactional producer from the factory. */
+    private final Semaphore transactions;
+
+    public LeadPublisher(KafkaTemplate<String, Object> kafka,
+                         Optional<GroupCommitPublisher> groupCommit,
+                         ExecutorService publishAckExecutor,
+                         AdmissionController admission,
+                         TenantRateLimiter rateLimiter,
+                         Optional<LeadSpool> spool,
+                         PublishMetrics metrics,
+                         @Value("${app.kafka.group-commit.committers:2}") int transactionSlots) {
+        if (transactionSlots < 1) throw new IllegalArgumentException("app.kafka.group-commit.committers must be >= 1");
+        this.kafka = kafka;
+        this.groupCommit = groupCommit;
+        this.publishAckExecutor = publishAckExecutor;
+        this.admission = admission;
+        this.rateLimiter = rateLimiter;
+        this.spool = spool;
+        this.metrics = metrics;
+        this.transactions = new Semaphore(transactionSlots);
+    }
+
     /**
      * Creates and publishes a LeadEvent(CREATED) from a REST DTO.
      * @return generated eventId (idempotency key).
      */
-    @Transactional("kafkaTransactionManager")
     public UUID publishCreate(LeadCreateRequest req, String tenantHeader) {
         Objects.requireNonNull(req, "LeadCreateRequest must not be null");
 
+        String tenantId = normalizeTenant(tenantHeader);
+        rateLimiter.acquire(tenantId, 1);
+        AdmissionController.Permit permit = admission.acquire(1);
+        try {
+            Message<LeadEvent> message = toMessage(req, tenantId, MDC.get("traceId"));
+            commitOrSpool(List.of(message));
+            return message.getPayload().eventId();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Acknowledged, non-blocking variant of {@link #publishCreate}.
+     * The future completes with the eventId only after the event's Kafka transaction has committed
+     * (acks=all), or exceptionally if it could not be published; the calling thread is never blocked.
+     */
+    public CompletableFuture<UUID> publishCreateAsync(LeadCreateRequest req, String tenantHeader) {
+        Objects.requireNonNull(req, "LeadCreateRequest must not be null");
+
+        // Rejected on the caller thread, before any work is queued
+        String tenantId = normalizeTenant(tenantHeader);
+        rateLimiter.acquire(tenantId, 1);
+        AdmissionController.Permit permit = admission.acquire(1);
+
+        CompletableFuture<UUID> published;
+        try {
+            // Built on the caller thread so the MDC trace id is captured before the hop
+            Message<LeadEvent> message = toMessage(req, tenantId, MDC.get("traceId"));
+            UUID eventId = message.getPayload().eventId();
+            List<Message<LeadEvent>> messages = List.of(message);
+
+            if (spool.isPresent() && spool.get().appendIfActive(messages)) {
+                published = CompletableFuture.completedFuture(eventId);
+            } else if (groupCommit.isPresent()) {
+                published = groupCommit.get().submit(messages).thenApply(committed -> eventId);
+            } else {
+                // A per-call transaction blocks until commit: run it on the bounded executor, not the caller
+                published = CompletableFuture.supplyAsync(() -> {
+                    commit(messages);
+                    return eventId;
+                }, publishAckExecutor);
+            }
+            if (spool.isPresent()) {
+                published = published.exceptionally(ex -> spoolOrRethrow(messages, ex, eventId));
+            }
+        } catch (RuntimeException ex) {
+            permit.release();
+            throw ex;
+        }
+        return published.whenComplete((eventId, ex) -> permit.release());
+    }
+
+    /**
+     * Publishes a chunk of LeadEvent(CREATED) in a single Kafka transaction (bulk ingestion).
+     * Either all events of the chunk become visible to read_committed consumers, or none.
+     * Waits up to {@code maxThrottleWait} for the tenant's rate limit (TenantRateLimiter#acquireWaiting).
+     * @return generated eventIds, in the same order as the requests.
+     */
+    public List<UUID> publishCreateAll(List<LeadCreateRequest> requests, String tenantHeader,
+                                       Duration maxThrottleWait) {
+        Objects.requireNonNull(requests, "requests must not be null");
+
         final String tenantId = normalizeTenant(tenantHeader);
-        final UUID eventId = UUID.randomUUID();
+        final String traceId = MDC.get("traceId");
+
+        rateLimiter.acquireWaiting(tenantId, requests.size(), maxThrottleWait);
+        AdmissionController.Permit permit = admission.acquire(requests.size());
+        try {
+            List<Message<LeadEvent>> messages = new ArrayList<>(requests.size());
+            List<UUID> eventIds = new ArrayList<>(requests.size());
+            for (LeadCreateRequest req : requests) {
+                Message<LeadEvent> message = toMessage(Objects.requireNonNull(req, "LeadCreateRequest must not be null"), tenantId, traceId);
+                messages.add(message);
+                eventIds.add(message.getPayload().eventId());
+            }
+            commitOrSpool(messages);
+            return eventIds;
+        } finally {
+            permit.release();
+        }
+    }
+
+    /** {@link #commit}, or the spool while it is active or when the brokers turn out to be unreachable. */
+    private void commitOrSpool(List<Message<LeadEvent>> messages) {
+        if (spool.isEmpty()) {
+            commit(messages);
+            return;
+        }
+        if (spool.get().appendIfActive(messages)) {
+            return;
+        }
+        try {
+            commit(messages);
+        } catch (RuntimeException ex) {
+            spoolOrRethrow(messages, ex, null);
+        }
+    }
+
+    /** Spools messages whose publish failed with a broker outage; rethrows any other failure. */
+    private <T> T spoolOrRethrow(List<Message<LeadEvent>> messages, Throwable failure, T result) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (!LeadSpool.isBrokerUnavailable(cause)) {
+            if (failure instanceof RuntimeException rt) throw rt;
+            throw new CompletionException(failure);
+        }
+        try {
+            spool.orElseThrow().append(messages);
+        } catch (RuntimeException spoolFailure) {
+            spoolFailure.addSuppressed(cause);
+            throw spoolFailure;
+        }
+        log.debug("Spooled {} lead events after publish failure: {}", messages.size(), cause.toString());
+        return result;
+    }
+
+    /**
+     * Sends the messages atomically and returns once their transaction has committed.
+     * All messages of one call share tenant and type; the commit time is recorded once per call.
+     */
+    private void commit(List<Message<LeadEvent>> messages) {
+        long start = System.nanoTime();
+        LeadEvent first = messages.get(0).getPayload();
+
+        if (groupCommit.isPresent()) {
+            await(groupCommit.get().submit(messages));
+        } else {
+            // One transaction per call; equivalent to @Transactional("kafkaTransactionManager")
+            try {
+                transactions.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a Kafka transaction slot", ex);
+            }
+            try {
+                kafka.executeInTransaction(ops -> {
+                    for (Message<LeadEvent> message : messages) {
+                        CompletableFuture<SendResult<String, Object>> sent = ops.send(message);
+                        if (metrics.sampleLog()) {
+                            logOutcome(message.getPayload(), sent);
+                        }
+                    }
+                    return null;
+                });
+            } finally {
+                transactions.release();
+            }
+        }
+        metrics.meters(first.tenantId(), first.type()).recordTransaction(start);
+    }
+
+    /** Builds the event + headers for one request (public for the benchmarks module). */
+    public static Message<LeadEvent> toMessage(LeadCreateRequest req, String tenantId, String traceId) {
+        // Time-ordered ids: cheap to generate and append-friendly for the sinks' B-tree indexes
+        final UUID eventId = UuidV7.next();
         final String leadId = req.leadId() != null && !req.leadId().isBlank()
                 ? req.leadId().trim()
-                : UUID.randomUUID().toString();
+                : UuidV7.nextString();
 
         final LeadPayload payload = new LeadPayload(
                 leadId,
@@ -66,14 +271,19 @@ public class LeadPublisher {
                 payload,
                 Instant.now()
         );
+        return toMessage(event, traceId);
+    }
+
+    /** Wraps an event with its Kafka key and headers (also used to replay spooled events). */
+    public static Message<LeadEvent> toMessage(LeadEvent event, String traceId) {
+        final UUID eventId = event.eventId();
+        final String tenantId = event.tenantId();
 
         // Kafka key: keep per-lead ordering across the stream
         final String key = event.key();
 
-        // Propagate correlation/trace id from MDC if present
-        final String traceId = MDC.get("traceId");
-
-        Message<LeadEvent> message = MessageBuilder
+        // Correlation/trace id is propagated from MDC by the caller (if present)
+        return MessageBuilder
                 .withPayload(event)
                 .setHeader(KafkaHeaders.TOPIC, Topics.LEADS)
                 .setHeader(KafkaHeaders.KEY, key)
@@ -82,24 +292,35 @@ public class LeadPublisher {
                 .setHeader(Headers.TYPE, event.type().name())
                 .setHeader(Headers.TRACE_ID, traceId)
                 .build();
+    }
 
-        // Send within the Kafka transaction (active due to @Transactional with Kafka TM)
-        kafka.send(message).whenComplete((result, ex) -> {
+    /** Sampled per-record log (app.metrics.publish.log-sample-rate); failures also reach the caller. */
+    private static void logOutcome(LeadEvent event, CompletableFuture<SendResult<String, Object>> future) {
+        future.whenComplete((result, ex) -> {
             if (ex != null) {
-                log.error("Failed to publish lead eventId={} key={}", eventId, key, ex);
+                log.error("Failed to publish lead eventId={} key={}", event.eventId(), event.key(), ex);
             } else if (result != null && result.getRecordMetadata() != null) {
                 var md = result.getRecordMetadata();
                 log.info("Published lead eventId={} key={} topic={} partition={} offset={}",
-                        eventId, key, md.topic(), md.partition(), md.offset());
+                        event.eventId(), event.key(), md.topic(), md.partition(), md.offset());
             } else {
-                log.info("Published lead eventId={} key={} (no metadata available)", eventId, key);
+                log.info("Published lead eventId={} key={} (no metadata available)", event.eventId(), event.key());
             }
         });
+    }
 
-        return eventId;
+    /** Waits for a group commit and rethrows its failure unwrapped. */
+    private static void await(CompletableFuture<Void> commit) {
+        try {
+            commit.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
     }
 
-    private static String normalizeTenant(String tenantHeader) {
+    /** X-Tenant-Id as used in events: trimmed, "default" when missing/blank. */
+    public static String normalizeTenant(String tenantHeader) {
         if (tenantHeader == null) return DEFAULT_TENANT;
         String t = tenantHeader.trim();
         return t.isEmpty() ? DEFAULT_TENANT : t;
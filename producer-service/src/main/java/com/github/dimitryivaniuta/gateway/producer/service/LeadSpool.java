@@ -0,0 +1,233 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import com.github.dimitryivaniuta.gateway.common.codec.LeadEventBinaryCodec;
+import com.github.dimitryivaniuta.gateway.common.event.LeadEvent;
+import com.github.dimitryivaniuta.gateway.common.kafka.Headers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-ahead spool for publishes while the brokers are unreachable.
+ * - LeadPublisher hands a publish to the spool when it failed with a retriable broker error (timeouts,
+ *   disconnects, missing metadata); the caller gets its eventId as soon as the events are on local disk.
+ * - While the spool holds records it is "active": new publishes go straight to it, behind the spooled ones,
+ *   so per-lead order is kept and callers do not wait for max.block.ms against dead brokers.
+ * - A replay thread drains the spool into leads.events in order, replay-batch records per Kafka transaction,
+ *   retrying every replay-interval-ms; the spool turns inactive once it is empty.
+ * - Records: binary LeadEvent codec + trace id in a checksummed, memory-mapped segment log (SpoolLog).
+ * - Delivery is at-least-once: a crash between a replay commit and the read-offset update replays that batch
+ *   again; the sinks deduplicate by eventId.
+ * - Metrics: leads.spool.depth (unreplayed records), leads.spool.segments, leads.spool.records{outcome}.
+ * Enabled with app.leads.spool.enabled=true; scope is one instance (its local disk).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.leads.spool", name = "enabled", havingValue = "true")
+public class LeadSpool {
+
+    private static final int NO_TRACE = 0xFFFF;
+
+    private final KafkaTemplate<String, Object> kafka;
+    private final SpoolLog spoolLog;
+    private final int replayBatch;
+    private final ScheduledExecutorService replayer;
+
+    private final Counter spooled;
+    private final Counter replayed;
+    private final Counter dropped;
+
+    // Replay thread only: halved on non-retriable failures to isolate a bad record
+    private int batchLimit;
+
+    // Guarded by this: switched on by append, off by the replayer once the log is empty
+    private boolean active;
+    private boolean replayFailing;
+
+    public LeadSpool(
+            KafkaTemplate<String, Object> kafka,
+            MeterRegistry registry,
+            @Value("${app.leads.spool.dir:./data/lead-spool}") String dir,
+            @Value("${app.leads.spool.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${app.leads.spool.fsync:false}") boolean fsync,
+            @Value("${app.leads.spool.replay-batch:500}") int replayBatch,
+            @Value("${app.leads.spool.replay-interval-ms:1000}") long replayIntervalMs) {
+
+        if (replayBatch < 1) throw new IllegalArgumentException("app.leads.spool.replay-batch must be >= 1");
+
+        this.kafka = kafka;
+        this.spoolLog = new SpoolLog(Path.of(dir), Math.multiplyExact(segmentSizeMb, 1024 * 1024), fsync);
+        this.replayBatch = replayBatch;
+        this.batchLimit = replayBatch;
+        this.active = spoolLog.depth() > 0;
+
+        Gauge.builder("leads.spool.depth", spoolLog, SpoolLog::depth)
+                .description("Spooled records not yet replayed to Kafka").register(registry);
+        Gauge.builder("leads.spool.segments", spoolLog, SpoolLog::segmentCount)
+                .description("Spool segment files on disk").register(registry);
+        this.spooled = Counter.builder("leads.spool.records").tag("outcome", "spooled")
+                .description("Records written to / replayed from the spool").register(registry);
+        this.replayed = Counter.builder("leads.spool.records").tag("outcome", "replayed")
+                .description("Records written to / replayed from the spool").register(registry);
+        this.dropped = Counter.builder("leads.spool.records").tag("outcome", "dropped")
+                .description("Records written to / replayed from the spool").register(registry);
+
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lead-spool-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        replayer.shutdown();
+        replayer.awaitTermination(10, TimeUnit.SECONDS);
+        spoolLog.close();
+    }
+
+    /** True if {@code ex} (or a cause) means the brokers are unreachable rather than the record being bad. */
+    public static boolean isBrokerUnavailable(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof RetriableException) return true;
+        }
+        return false;
+    }
+
+    /** Appends the messages if earlier records are still waiting for replay; otherwise leaves them to the caller. */
+    public synchronized boolean appendIfActive(List<Message<LeadEvent>> messages) {
+        if (!active) return false;
+        write(messages);
+        return true;
+    }
+
+    /** Appends the messages (their publish failed) and activates the spool. */
+    public synchronized void append(List<Message<LeadEvent>> messages) {
+        write(messages);
+        if (!active) {
+            log.warn("Kafka unavailable: spooling publishes to disk until the brokers recover");
+            active = true;
+        }
+    }
+
+    private void write(List<Message<LeadEvent>> messages) {
+        List<byte[]> records = new ArrayList<>(messages.size());
+        for (Message<LeadEvent> m : messages) {
+            records.add(encode(m.getPayload(), m.getHeaders().get(Headers.TRACE_ID, String.class)));
+        }
+        spoolLog.append(records);
+        spooled.increment(records.size());
+    }
+
+    /**
+     * Drains the spool in order; stops at the first broker failure and retries on the next tick.
+     * A non-retriable failure (a record the broker refuses or that no longer decodes) halves the batch until the
+     * record is alone; that record is dropped (logged, leads.spool.records{outcome=dropped}). Successful batches
+     * double the size again, up to replay-batch.
+     */
+    void replay() {
+        while (true) {
+            List<byte[]> batch = spoolLog.peek(batchLimit);
+            if (batch.isEmpty()) {
+                synchronized (this) {
+                    // appends happen under this lock: empty here means nothing can overtake
+                    if (spoolLog.depth() == 0 && active) {
+                        active = false;
+                        log.info("Spool drained: publishing directly to Kafka again");
+                    }
+                }
+                return;
+            }
+            try {
+                List<Message<LeadEvent>> messages = new ArrayList<>(batch.size());
+                for (byte[] record : batch) {
+                    messages.add(decode(record));
+                }
+                kafka.executeInTransaction(ops -> {
+                    for (Message<LeadEvent> message : messages) {
+                        ops.send(message);
+                    }
+                    return null;
+                });
+            } catch (RuntimeException ex) {
+                if (isBrokerUnavailable(ex)) {
+                    if (!replayFailing) {
+                        replayFailing = true;
+                        log.warn("Spool replay failed ({} records waiting), retrying: {}", spoolLog.depth(), ex.toString());
+                    }
+                    return;
+                }
+                if (batch.size() > 1) {
+                    batchLimit = batch.size() / 2;
+                    continue;
+                }
+                log.error("Dropping spooled record that cannot be published: {}", describe(batch.get(0)), ex);
+                spoolLog.advance(1);
+                dropped.increment();
+                continue;
+            }
+            spoolLog.advance(batch.size());
+            replayed.increment(batch.size());
+            batchLimit = Math.min(replayBatch, batchLimit * 2);
+            if (replayFailing) {
+                replayFailing = false;
+                log.info("Spool replay resumed, {} records left", spoolLog.depth());
+            }
+        }
+    }
+
+    private static String describe(byte[] record) {
+        try {
+            LeadEvent event = decode(record).getPayload();
+            return "eventId=" + event.eventId() + " key=" + event.key();
+        } catch (RuntimeException ex) {
+            return "undecodable record of " + record.length + " bytes";
+        }
+    }
+
+    /** u16 trace id length (0xFFFF = none), trace id UTF-8, binary LeadEvent. */
+    static byte[] encode(LeadEvent event, String traceId) {
+        byte[] body = LeadEventBinaryCodec.encode(event);
+        byte[] trace = traceId == null ? new byte[0] : traceId.getBytes(StandardCharsets.UTF_8);
+        if (trace.length >= NO_TRACE) {
+            trace = new byte[0];
+            traceId = null;
+        }
+        return ByteBuffer.allocate(2 + trace.length + body.length)
+                .putShort((short) (traceId == null ? NO_TRACE : trace.length))
+                .put(trace)
+                .put(body)
+                .array();
+    }
+
+    static Message<LeadEvent> decode(byte[] record) {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        int traceLength = Short.toUnsignedInt(buf.getShort());
+        String traceId = null;
+        if (traceLength != NO_TRACE) {
+            traceId = new String(record, 2, traceLength, StandardCharsets.UTF_8);
+            buf.position(2 + traceLength);
+        }
+        byte[] body = new byte[buf.remaining()];
+        buf.get(body);
+        return LeadPublisher.toMessage(LeadEventBinaryCodec.decode(body), traceId);
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import com.github.dimitryivaniuta.gateway.common.event.LeadEventType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish-path meters, tagged by tenant and event type:
+ * - leads.publish.latency{outcome=success|failure}: POST /api/leads until the Kafka commit (or failure)
+ * - leads.publish.transaction: time from handing records to Kafka until their transaction committed
+ * - leads.publish.serialization: value serialization time per record
+ * - leads.publish.record.size: serialized value size per record (bytes)
+ * Timers publish percentile histograms (Prometheus buckets) so SLOs can be computed across instances.
+ *
+ * Cheap on the hot path: all meters of a tenant are registered once, on its first publish, and then found with
+ * one map lookup + array index (no tag lists or registry lookups per request). Beyond max-tenants distinct
+ * tenants, further ones share the tenant="_other" meters to bound the series count.
+ * Also owns the sampling of the per-record publish log (publish-log-sample-rate, 0 = off).
+ */
+@Component
+public class PublishMetrics {
+
+    private static final String OTHER_TENANT = "_other";
+    private static final LeadEventType[] TYPES = LeadEventType.values();
+
+    private final MeterRegistry registry;
+    private final int maxTenants;
+    private final double logSampleRate;
+    private final Map<String, Meters[]> tenants = new ConcurrentHashMap<>();
+
+    public PublishMetrics(
+            MeterRegistry registry,
+            @Value("${app.metrics.publish.max-tenants:500}") int maxTenants,
+            @Value("${app.metrics.publish.log-sample-rate:0.0}") double logSampleRate) {
+        this.registry = registry;
+        this.maxTenants = maxTenants;
+        this.logSampleRate = logSampleRate;
+    }
+
+    /** Meters of a (normalized) tenant and event type. */
+    public Meters meters(String tenantId, LeadEventType type) {
+        Meters[] byType = tenants.get(tenantId);
+        if (byType == null) {
+            String tenant = tenants.size() >= maxTenants ? OTHER_TENANT : tenantId;
+            byType = tenants.computeIfAbsent(tenant, this::register);
+        }
+        return byType[type.ordinal()];
+    }
+
+    /** True for the fraction of records whose publish outcome should be logged at INFO. */
+    public boolean sampleLog() {
+        return logSampleRate > 0 && (logSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < logSampleRate);
+    }
+
+    private Meters[] register(String tenant) {
+        Meters[] byType = new Meters[TYPES.length];
+        for (LeadEventType type : TYPES) {
+            byType[type.ordinal()] = new Meters(registry, tenant, type.name());
+        }
+        return byType;
+    }
+
+    /** Preregistered meters for one tenant and event type. */
+    public static final class Meters {
+        private final Timer latencySuccess;
+        private final Timer latencyFailure;
+        private final Timer transaction;
+        private final Timer serialization;
+        private final DistributionSummary recordSize;
+
+        private Meters(MeterRegistry registry, String tenant, String type) {
+            this.latencySuccess = latency(registry, tenant, type, "success");
+            this.latencyFailure = latency(registry, tenant, type, "failure");
+            this.transaction = Timer.builder("leads.publish.transaction")
+                    .description("Time from handing records to Kafka until their transaction committed")
+                    .tags("tenant", tenant, "type", type)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(120))
+                    .register(registry);
+            this.serialization = Timer.builder("leads.publish.serialization")
+                    .description("LeadEvent value serialization time")
+                    .tags("tenant", tenant, "type", type)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofMillis(10))
+                    .register(registry);
+            this.recordSize = DistributionSummary.builder("leads.publish.record.size")
+                    .description("Serialized LeadEvent value size")
+                    .baseUnit("bytes")
+                    .tags("tenant", tenant, "type", type)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(64.0)
+                    .maximumExpectedValue(1_048_576.0)
+                    .register(registry);
+        }
+
+        private static Timer latency(MeterRegistry registry, String tenant, String type, String outcome) {
+            return Timer.builder("leads.publish.latency")
+                    .description("POST /api/leads until the event's Kafka transaction committed")
+                    .tags("tenant", tenant, "type", type, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(120))
+                    .register(registry);
+        }
+
+        /** Records the end-to-end latency of one publish started at {@code startNanos} (System.nanoTime()). */
+        public void recordLatency(long startNanos, boolean success) {
+            (success ? latencySuccess : latencyFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordTransaction(long startNanos) {
+            transaction.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordSerialization(long nanos, int bytes) {
+            serialization.record(nanos, TimeUnit.NANOSECONDS);
+            recordSize.record(bytes);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown before anything is sent when the service is overloaded; nothing was published.
+ * Mapped to 429 Too Many Requests with a Retry-After header (see ApiExceptionHandler).
+ */
+@Getter
+public class PublishRejectedException extends RuntimeException {
+
+    /** Suggested client back-off, in seconds (>= 1). */
+    private final long retryAfterSeconds;
+
+    public PublishRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files (the storage of LeadSpool).
+ *
+ * Segment file {@code <sequence>.spool}, fixed size, zero-filled by the OS:
+ *   header: int magic, int version, long read offset (first unread frame; advanced after replay)
+ *   frames: int length (> 0), int CRC32C of the data, data
+ * A zero length marks the end of the written frames. A segment that cannot take the next frame is rolled;
+ * fully read segments (other than the one being written) are deleted.
+ *
+ * Appends are plain memory writes: they survive a crash of the JVM (the page cache belongs to the OS), and
+ * with fsync=true also of the machine, at the cost of a force() per append. On open, the frames of every
+ * segment are re-validated; the first frame with a bad CRC (a torn write) ends that segment.
+ * Thread-safe: all methods are synchronized (appends are short memory copies).
+ */
+@Slf4j
+final class SpoolLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x4C53504C; // "LSPL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int READ_OFFSET_POS = 8;
+    private static final int FRAME_OVERHEAD = 8;
+    private static final String SUFFIX = ".spool";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long depth;
+    private long nextSequence;
+
+    SpoolLog(Path dir, int segmentBytes, boolean fsync) {
+        if (segmentBytes <= HEADER_BYTES + FRAME_OVERHEAD) {
+            throw new IllegalArgumentException("Spool segment size too small: " + segmentBytes);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(dir);
+            recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open spool directory " + dir, ex);
+        }
+    }
+
+    /** Appends the records in order; each must fit into an empty segment. */
+    synchronized void append(List<byte[]> records) {
+        for (byte[] data : records) {
+            int frame = FRAME_OVERHEAD + data.length;
+            if (frame > segmentBytes - HEADER_BYTES) {
+                throw new IllegalArgumentException("Record of " + data.length + " bytes does not fit a spool segment");
+            }
+            Segment tail = segments.peekLast();
+            if (tail == null || tail.writePos + frame > segmentBytes) {
+                tail = roll(tail);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(data);
+            MappedByteBuffer buf = tail.buf;
+            // Data and CRC first, length last: a frame becomes visible only when complete
+            buf.putInt(tail.writePos + 4, (int) crc.getValue());
+            buf.put(tail.writePos + FRAME_OVERHEAD, data);
+            buf.putInt(tail.writePos, data.length);
+            tail.writePos += frame;
+            tail.records++;
+            depth++;
+        }
+        if (fsync && !segments.isEmpty()) {
+            segments.peekLast().buf.force();
+        }
+    }
+
+    /** Up to {@code max} unread records from the head, oldest first, without consuming them. */
+    synchronized List<byte[]> peek(int max) {
+        List<byte[]> out = new ArrayList<>(Math.min(max, (int) Math.min(depth, Integer.MAX_VALUE)));
+        for (Segment s : segments) {
+            int pos = s.readPos;
+            while (out.size() < max && pos < s.writePos) {
+                int length = s.buf.getInt(pos);
+                byte[] data = new byte[length];
+                s.buf.get(pos + FRAME_OVERHEAD, data);
+                out.add(data);
+                pos += FRAME_OVERHEAD + length;
+            }
+            if (out.size() >= max) break;
+        }
+        return out;
+    }
+
+    /** Consumes the first {@code count} unread records (after they were replayed) and deletes drained segments. */
+    synchronized void advance(int count) {
+        int left = count;
+        while (left > 0 && !segments.isEmpty()) {
+            Segment s = segments.peekFirst();
+            while (left > 0 && s.readPos < s.writePos) {
+                s.readPos += FRAME_OVERHEAD + s.buf.getInt(s.readPos);
+                s.records--;
+                depth--;
+                left--;
+            }
+            s.buf.putLong(READ_OFFSET_POS, s.readPos);
+            if (s.readPos >= s.writePos && segments.size() > 1) {
+                segments.pollFirst();
+                delete(s);
+            } else {
+                break;
+            }
+        }
+        if (fsync && !segments.isEmpty()) {
+            segments.peekFirst().buf.force();
+        }
+    }
+
+    /** Unread records. */
+    synchronized long depth() {
+        return depth;
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment s : segments) {
+            s.buf.force();
+        }
+    }
+
+    private Segment roll(Segment tail) {
+        long sequence = nextSequence++;
+        // A drained tail is no longer needed once a new segment takes over
+        if (tail != null && tail.readPos >= tail.writePos) {
+            segments.pollLast();
+            delete(tail);
+        }
+        Path file = dir.resolve("%020d%s".formatted(sequence, SUFFIX));
+        try {
+            Segment s = new Segment(file, map(file));
+            s.buf.putInt(0, MAGIC);
+            s.buf.putInt(4, VERSION);
+            s.buf.putLong(READ_OFFSET_POS, HEADER_BYTES);
+            segments.addLast(s);
+            log.debug("Spool rolled to segment {}", file.getFileName());
+            return s;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create spool segment " + file, ex);
+        }
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (Files.size(file) != segmentBytes) {
+                log.warn("Skipping spool segment {} with unexpected size {} (segment-size changed?)", file, Files.size(file));
+                continue;
+            }
+            Segment s = new Segment(file, map(file));
+            if (s.buf.getInt(0) != MAGIC || s.buf.getInt(4) != VERSION) {
+                log.warn("Skipping spool segment {} with unknown header", file);
+                continue;
+            }
+            long readOffset = s.buf.getLong(READ_OFFSET_POS);
+            int pos = HEADER_BYTES;
+            CRC32C crc = new CRC32C();
+            while (pos + FRAME_OVERHEAD <= segmentBytes) {
+                int length = s.buf.getInt(pos);
+                if (length <= 0 || pos + FRAME_OVERHEAD + length > segmentBytes) break;
+                crc.reset();
+                crc.update(s.buf.slice(pos + FRAME_OVERHEAD, length));
+                if ((int) crc.getValue() != s.buf.getInt(pos + 4)) {
+                    log.warn("Spool segment {}: checksum mismatch at offset {}, dropping the rest", file, pos);
+                    break;
+                }
+                if (pos >= readOffset) s.records++;
+                pos += FRAME_OVERHEAD + length;
+            }
+            s.writePos = pos;
+            s.readPos = (int) Math.clamp(readOffset, HEADER_BYTES, pos);
+            if (s.records == 0 && !files.getLast().equals(file)) {
+                delete(s);
+                continue;
+            }
+            segments.addLast(s);
+            depth += s.records;
+        }
+        if (depth > 0) {
+            log.warn("Spool recovered {} unreplayed records in {} segments from {}", depth, segments.size(), dir);
+        }
+    }
+
+    private static void delete(Segment s) {
+        try {
+            Files.deleteIfExists(s.file);
+        } catch (IOException ex) {
+            log.warn("Cannot delete replayed spool segment {}", s.file, ex);
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer buf;
+        int writePos = HEADER_BYTES;
+        int readPos = HEADER_BYTES;
+        long records;
+
+        Segment(Path file, MappedByteBuffer buf) {
+            this.file = file;
+            this.buf = buf;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.dimitryivaniuta.gateway.producer.service;
+
+import com.github.dimitryivaniuta.gateway.producer.config.RateLimitProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-tenant token buckets on the ingestion path, so one tenant's bulk import cannot starve the others
+ * on the shared leads.events topic.
+ * - Each bucket is GCRA (generic cell rate algorithm) state: ONE long holding the theoretical arrival
+ *   time, updated with a CAS loop - no locks, no refill thread, a few nanoseconds per check.
+ * - Buckets live in a ConcurrentHashMap (a plain lookup; a cache with access-order bookkeeping costs ~10x more
+ *   per check at tens of thousands of tenants). A sweeper drops buckets idle for idle-eviction: a bucket whose
+ *   arrival time lies that far in the past is full anyway, so no extra access timestamp is needed.
+ * - Beyond max-tenants live buckets, new tenants share one overflow bucket per tier until the next sweep.
+ * - Rates/bursts come from tiers (RateLimitProperties); unlisted tenants get default-tier.
+ * - A request larger than the burst (a bulk chunk) is admitted when the bucket is full and puts the
+ *   bucket into debt, so chunks are never starved but the sustained rate still holds.
+ * - Bulk ingestion waits for its tokens (acquireWaiting) instead of being rejected, so a feed is slowed down
+ *   to its tier's rate rather than turned away line by line.
+ * - Metrics per tenant: leads.tenant.records{tenant, outcome=admitted|rejected}; removed with the bucket.
+ * Rejections are PublishRejectedException (429 + Retry-After until enough tokens are back).
+ */
+@Slf4j
+@Service
+public class TenantRateLimiter {
+
+    private static final String OVERFLOW_TENANT = "_overflow";
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry registry;
+    private final long idleNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> overflow = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public TenantRateLimiter(RateLimitProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.idleNanos = properties.idleEviction().toNanos();
+
+        Gauge.builder("leads.tenant.buckets", buckets, Map::size)
+                .description("Tenants with a live rate-limit bucket").register(registry);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tenant-bucket-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, properties.idleEviction().toMillis() / 2);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Takes {@code records} tokens from the tenant's bucket.
+     * @param tenantId normalized tenant id
+     * @throws PublishRejectedException when the tenant is over its rate
+     */
+    public void acquire(String tenantId, int records) {
+        if (!properties.enabled()) return;
+
+        Bucket bucket = bucket(tenantId);
+        long waitNanos = bucket.tryAcquire(records, System.nanoTime(), true);
+        if (waitNanos == 0) return;
+        throw rejected(tenantId, bucket, waitNanos);
+    }
+
+    /**
+     * As {@link #acquire}, but waits until the tokens are there, as long as the bucket puts them at most
+     * {@code maxWait} away (what acquire would report as Retry-After).
+     * @throws PublishRejectedException when the tokens are further away than maxWait
+     */
+    public void acquireWaiting(String tenantId, int records, Duration maxWait) {
+        if (!properties.enabled()) return;
+
+        Bucket bucket = bucket(tenantId);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            long now = System.nanoTime();
+            long waitNanos = bucket.tryAcquire(records, now, false);
+            if (waitNanos == 0) return;
+            if (now + waitNanos - deadline > 0) {
+                bucket.countRejected(records);
+                throw rejected(tenantId, bucket, waitNanos);
+            }
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                bucket.countRejected(records);
+                throw rejected(tenantId, bucket, waitNanos);
+            }
+        }
+    }
+
+    private Bucket bucket(String tenantId) {
+        Bucket bucket = buckets.get(tenantId);
+        return bucket != null ? bucket : bucketFor(tenantId);
+    }
+
+    private static PublishRejectedException rejected(String tenantId, Bucket bucket, long waitNanos) {
+        return new PublishRejectedException(
+                "Tenant '" + tenantId + "' is over its ingestion rate (" + bucket.tierName + " tier)",
+                Math.max(1, (long) Math.ceil(waitNanos / 1e9)));
+    }
+
+    private Bucket bucketFor(String tenantId) {
+        String tierName = properties.tenants().getOrDefault(tenantId, properties.defaultTier());
+        if (buckets.size() >= properties.maxTenants()) {
+            return overflow.computeIfAbsent(tierName, t -> newBucket(OVERFLOW_TENANT, t));
+        }
+        return buckets.computeIfAbsent(tenantId, t -> newBucket(t, tierName));
+    }
+
+    private Bucket newBucket(String tenantId, String tierName) {
+        return new Bucket(tenantId, tierName, properties.tiers().get(tierName), registry);
+    }
+
+    /** Drops buckets (and their meters) that have been full for at least idle-eviction. */
+    void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Bucket> e : buckets.entrySet()) {
+            Bucket bucket = e.getValue();
+            if (now - bucket.tat() >= idleNanos && buckets.remove(e.getKey(), bucket)) {
+                bucket.unregister(registry);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle tenant rate-limit buckets, {} live", evicted, buckets.size());
+        }
+    }
+
+    /**
+     * GCRA state + counts of one tenant. All hot fields live in this one object (VarHandle atomics instead of
+     * AtomicLong/Counter instances), so a check touches a single cache line after the map lookup.
+     */
+    static final class Bucket {
+        private static final VarHandle TAT;
+        private static final VarHandle ADMITTED;
+        private static final VarHandle REJECTED;
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                TAT = lookup.findVarHandle(Bucket.class, "tat", long.class);
+                ADMITTED = lookup.findVarHandle(Bucket.class, "admitted", long.class);
+                REJECTED = lookup.findVarHandle(Bucket.class, "rejected", long.class);
+            } catch (ReflectiveOperationException ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+
+        final String tierName;
+        final long intervalNanos;   // time to earn one token
+        final long toleranceNanos;  // burst * interval: how far ahead of "now" the arrival time may run
+        private volatile long tat;  // theoretical arrival time (System.nanoTime() scale); <= now means full
+        private volatile long admitted;
+        private volatile long rejected;
+        private final FunctionCounter admittedMeter;
+        private final FunctionCounter rejectedMeter;
+
+        Bucket(String tenantId, String tierName, RateLimitProperties.Tier tier, MeterRegistry registry) {
+            this.tierName = tierName;
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tier.ratePerSecond()));
+            this.toleranceNanos = intervalNanos * tier.burst();
+            this.tat = System.nanoTime();
+            this.admittedMeter = counter(registry, tenantId, tierName, "admitted", b -> b.admitted);
+            this.rejectedMeter = counter(registry, tenantId, tierName, "rejected", b -> b.rejected);
+        }
+
+        /**
+         * @param countRejection whether a refusal counts as rejected (not while the caller is going to wait)
+         * @return 0 when admitted, otherwise nanoseconds until the request would fit
+         */
+        long tryAcquire(int records, long now, boolean countRejection) {
+            long cost = intervalNanos * records;
+            while (true) {
+                long current = tat;
+                long start = Math.max(current, now);
+                long next = start + cost;
+                // Fits in the burst, or the bucket is full (start == now) and the request may go into debt
+                if (next - now > toleranceNanos && current - now > 0) {
+                    if (countRejection) countRejected(records);
+                    return Math.min(next - now - toleranceNanos, current - now);
+                }
+                if (TAT.compareAndSet(this, current, next)) {
+                    ADMITTED.getAndAdd(this, (long) records);
+                    return 0;
+                }
+            }
+        }
+
+        void countRejected(int records) {
+            REJECTED.getAndAdd(this, (long) records);
+        }
+
+        long tat() {
+            return tat;
+        }
+
+        void unregister(MeterRegistry registry) {
+            registry.remove(admittedMeter);
+            registry.remove(rejectedMeter);
+        }
+
+        private FunctionCounter counter(MeterRegistry registry, String tenantId, String tier, String outcome,
+                                        ToDoubleFunction<Bucket> count) {
+            return FunctionCounter.builder("leads.tenant.records", this, count)
+                    .description("Records admitted/rejected by the per-tenant rate limit")
+                    .tag("tenant", tenantId)
+                    .tag("tier", tier)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
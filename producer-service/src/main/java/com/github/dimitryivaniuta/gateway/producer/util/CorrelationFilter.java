@@ -1,5 +1,6 @@
 package com.github.dimitryivaniuta.gateway.producer.util;
 
+import com.github.dimitryivaniuta.gateway.common.id.UuidV7;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,11 +14,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.UUID;
 
 /**
  * Per-request correlation/trace ID propagation.
- * - Reads X-Request-Id / X-Correlation-Id if present; otherwise generates a UUID.
+ * - Reads X-Request-Id / X-Correlation-Id if present; otherwise generates a time-ordered UUID (v7).
  * - Stores in SLF4J MDC under key "traceId" so logs and Kafka headers can include it.
  * - Echoes "X-Trace-Id" header back to the client for debugging.
  */
@@ -43,7 +43,7 @@ public class CorrelationFilter extends OncePerRequestFilter {
                 request.getHeader(HEADER_TRACE_ID)
         );
         if (traceId == null) {
-            traceId = UUID.randomUUID().toString();
+            traceId = UuidV7.nextString();
         }
 
         MDC.put(MDC_KEY, traceId);